@@ -0,0 +1,114 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link LiveVariableAnalysis} on the test programs,
+ * for each solver and fact implementation.
+ * <p>
+ * Run with {@code ./gradlew jmh} from the project directory, as the
+ * programs are loaded from {@code src/test/resources}.
+ * {@link #analyzeProgram} reports the throughput of analyzing all methods
+ * of a program, and {@link #analyzeMethod} samples the latency of analyzing
+ * a single method (cycling through the methods), which yields the
+ * latency percentiles. Allocation rates are given by the gc profiler
+ * configured in {@code build.gradle.kts}.
+ */
+@State(Scope.Benchmark)
+public class LiveVariableBenchmark {
+
+    private static final String CLASS_PATH = "src/test/resources/dataflow/livevar/";
+
+    @Param({"Array", "Assign", "Branch", "BranchLoop", "Fibonacci", "Reference"})
+    public String program;
+
+    @Param({"iterative", "priority"})
+    public String solver;
+
+    @Param({"false", "true"})
+    public boolean bitVector;
+
+    private IR[] irs;
+
+    private LiveVariableAnalysis analysis;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // builds the World and the CFGs of all methods of the program
+        Main.main(new String[]{
+                "-pp", "-cp", CLASS_PATH, "-m", program,
+                "-a", CFGBuilder.ID + "=exception:explicit",
+        });
+        irs = World.get().getClassHierarchy()
+                .applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .map(JMethod::getIR)
+                .toArray(IR[]::new);
+        analysis = new LiveVariableAnalysis(new AnalysisConfig(
+                LiveVariableAnalysis.ID,
+                "strongly", false,
+                "bit-vector", bitVector,
+                "solver", solver));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void analyzeProgram(Blackhole bh) {
+        for (IR ir : irs) {
+            bh.consume(analysis.analyze(ir));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object analyzeMethod() {
+        IR ir = irs[next];
+        next = (next + 1) % irs.length;
+        return analysis.analyze(ir);
+    }
+}
@@ -22,14 +22,18 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.dataflow.fact.SetFact;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.LValue;
 import pascal.taie.ir.exp.RValue;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Stmt;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,8 +45,24 @@ public class LiveVariableAnalysis extends
 
     public static final String ID = "livevar";
 
+    /**
+     * Key of the {@link DefUse} cached in each {@link IR}.
+     */
+    private static final String DEF_USE = ID + "-def-use";
+
+    /**
+     * Whether represent facts by bit vectors indexed by {@link Var#getIndex()}.
+     */
+    private final boolean bitVector;
+
+    /**
+     * {@link DefUse} of the IR being analyzed by current thread.
+     */
+    private final ThreadLocal<DefUse> currentDefUse = new ThreadLocal<>();
+
     public LiveVariableAnalysis(AnalysisConfig config) {
         super(config);
+        bitVector = getOptions().getBooleanOrDefault("bit-vector", false);
     }
 
     @Override
@@ -52,7 +72,7 @@ public class LiveVariableAnalysis extends
 
     @Override
     public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
-        return new SetFact<>();
+        return newInitialFact(cfg);
     }
 
     @Override
@@ -60,6 +80,15 @@ public class LiveVariableAnalysis extends
         return new SetFact<>();
     }
 
+    @Override
+    public SetFact<Var> newInitialFact(CFG<Stmt> cfg) {
+        if (bitVector) {
+            IR ir = cfg.getIR();
+            return new BitSetFact<>(ir::getVar);
+        }
+        return newInitialFact();
+    }
+
     /**
      *
      * @param fact
@@ -72,11 +101,26 @@ public class LiveVariableAnalysis extends
         target.union(fact);
     }
 
+    @Override
+    public DataflowResult<Stmt, SetFact<Var>> analyze(IR ir) {
+        currentDefUse.set(ir.getResult(DEF_USE, () -> new DefUse(ir)));
+        try {
+            return super.analyze(ir);
+        } finally {
+            currentDefUse.remove();
+        }
+    }
+
     /**
      * 活跃变量分析使用 backward analysis
      * 从 OUT 推断 IN
      * 1. OUT[B] = U IN[S]
      * 2. IN[B] = use_B U (OUT[B] - def_B)
+     * <p>
+     * As OUT facts only grow during solving, so do IN facts, thus
+     * use_B U (OUT[B] - def_B) is computed directly into IN in a single
+     * pass, without any temporary facts.
+     *
      * @param stmt
      * @param in    IN[] 变量集合
      * @param out   OUT[] 变量集合
@@ -84,36 +128,80 @@ public class LiveVariableAnalysis extends
      */
     @Override
     public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
-        SetFact<Var> inTmp = new SetFact<>();
-        inTmp.union(out);
-
-        List<RValue> uses = stmt.getUses();
-        Optional<LValue> defs = stmt.getDef();
-
-        // 如果本 stmt 存在定义行为 -> (OUT[B] - def_B)
-        if (defs.isPresent()) {
-            // 获得被定义变量名
-            LValue lv = defs.get();
-            // 如果是 variable（而不是字段访问 x.a、数组访问等 x[i]）
-            if (lv instanceof Var) {
-                // 在 bit vector 删去这个变量所在的 bit
-                inTmp.remove((Var) lv);
-            }
+        DefUse defUse = currentDefUse.get();
+        Var def;
+        Var[] uses;
+        if (defUse != null && defUse.covers(stmt)) {
+            def = defUse.getDef(stmt);
+            uses = defUse.getUses(stmt);
+        } else {
+            def = DefUse.computeDef(stmt);
+            uses = DefUse.computeUses(stmt);
+        }
+        // (OUT[B] - def_B)
+        boolean changed = in.unionExcept(out, def);
+        // use_B U (OUT[B] - def_B)
+        for (Var use : uses) {
+            changed |= in.add(use);
         }
+        return changed;
+    }
+
+    /**
+     * Variables defined and used by each statement of an IR, indexed by
+     * {@link Stmt#getIndex()}. Computed once per IR and cached in it,
+     * so that transfer functions need not query (and allocate)
+     * {@link Stmt#getDef()} and {@link Stmt#getUses()} on every visit.
+     */
+    private static class DefUse {
+
+        private static final Var[] NO_USES = {};
+
+        private final Var[] defs;
+
+        private final Var[][] uses;
 
-        // 并上 use -> use_B U (OUT[B] - def_B)
-        for (RValue rv: uses) {
-            if (rv instanceof Var) {
-                inTmp.add((Var) rv);
+        private DefUse(IR ir) {
+            List<Stmt> stmts = ir.getStmts();
+            defs = new Var[stmts.size()];
+            uses = new Var[stmts.size()][];
+            for (Stmt stmt : stmts) {
+                defs[stmt.getIndex()] = computeDef(stmt);
+                uses[stmt.getIndex()] = computeUses(stmt);
             }
         }
 
-        // 某个 BB 的
-        if (inTmp.equals(in)) {
-            return false;
-        } else {
-            in.set(inTmp);
-            return true;
+        private boolean covers(Stmt stmt) {
+            int index = stmt.getIndex();
+            return 0 <= index && index < defs.length;
+        }
+
+        @Nullable
+        private Var getDef(Stmt stmt) {
+            return defs[stmt.getIndex()];
+        }
+
+        private Var[] getUses(Stmt stmt) {
+            return uses[stmt.getIndex()];
+        }
+
+        /**
+         * @return the variable defined by given statement, or null if
+         * it does not define a variable (e.g., it stores to x.f or x[i]).
+         */
+        @Nullable
+        private static Var computeDef(Stmt stmt) {
+            Optional<LValue> def = stmt.getDef();
+            return def.isPresent() && def.get() instanceof Var var ? var : null;
+        }
+
+        private static Var[] computeUses(Stmt stmt) {
+            List<RValue> uses = stmt.getUses();
+            Var[] result = uses.stream()
+                    .filter(use -> use instanceof Var)
+                    .distinct()
+                    .toArray(Var[]::new);
+            return result.length == 0 ? NO_USES : result;
         }
     }
 }
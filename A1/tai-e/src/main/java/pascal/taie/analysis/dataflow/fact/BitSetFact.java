@@ -0,0 +1,220 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * Set-like data-flow facts represented by dense bit vectors.
+ * Each element is mapped to the bit at its index, thus union, intersection,
+ * copy and equality of two such facts are performed on machine words
+ * without hashing elements or allocating entries.
+ * <p>
+ * All facts that are combined with each other must share the same
+ * index space, e.g., variables of the same method.
+ *
+ * @param <E> type of elements
+ */
+public class BitSetFact<E extends Indexable> extends SetFact<E> {
+
+    /**
+     * @param decoder maps an index back to its element,
+     *                e.g., {@code ir::getVar} for variables.
+     */
+    public BitSetFact(IntFunction<E> decoder) {
+        super(() -> new IndexableBitSet<>(new BitSet(), decoder));
+    }
+
+    private BitSetFact(BitSetFact<E> fact) {
+        super(() -> fact.bitSet().copy());
+    }
+
+    @Override
+    public boolean union(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            return bitSet().union(that.bitSet());
+        }
+        return super.union(other);
+    }
+
+    @Override
+    public boolean unionExcept(SetFact<E> other, @Nullable E e) {
+        if (other instanceof BitSetFact<E> that) {
+            return bitSet().unionExcept(that.bitSet(), e);
+        }
+        return super.unionExcept(other, e);
+    }
+
+    @Override
+    public boolean intersect(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            return bitSet().intersect(that.bitSet());
+        }
+        return super.intersect(other);
+    }
+
+    @Override
+    public BitSetFact<E> copy() {
+        return new BitSetFact<>(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof BitSetFact<?> that) {
+            return bitSet().bits.equals(that.bitSet().bits);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private IndexableBitSet<E> bitSet() {
+        return (IndexableBitSet<E>) set;
+    }
+
+    /**
+     * A {@link java.util.Set} view of a {@link BitSet} whose bits are
+     * indexes of the elements.
+     */
+    private static class IndexableBitSet<E extends Indexable>
+            extends AbstractSet<E> {
+
+        private final BitSet bits;
+
+        private final IntFunction<E> decoder;
+
+        private IndexableBitSet(BitSet bits, IntFunction<E> decoder) {
+            this.bits = bits;
+            this.decoder = decoder;
+        }
+
+        private IndexableBitSet<E> copy() {
+            return new IndexableBitSet<>((BitSet) bits.clone(), decoder);
+        }
+
+        private boolean union(IndexableBitSet<E> other) {
+            int oldSize = bits.cardinality();
+            bits.or(other.bits);
+            return bits.cardinality() != oldSize;
+        }
+
+        private boolean unionExcept(IndexableBitSet<E> other, @Nullable E e) {
+            int oldSize = bits.cardinality();
+            boolean keep = e == null || bits.get(e.getIndex());
+            bits.or(other.bits);
+            if (!keep) {
+                bits.clear(e.getIndex());
+            }
+            return bits.cardinality() != oldSize;
+        }
+
+        private boolean intersect(IndexableBitSet<E> other) {
+            int oldSize = bits.cardinality();
+            bits.and(other.bits);
+            return bits.cardinality() != oldSize;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Indexable e && bits.get(e.getIndex());
+        }
+
+        @Override
+        public boolean add(E e) {
+            int index = e.getIndex();
+            if (bits.get(index)) {
+                return false;
+            }
+            bits.set(index);
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (contains(o)) {
+                bits.clear(((Indexable) o).getIndex());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            bits.clear();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return bits.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<>() {
+
+                private int next = bits.nextSetBit(0);
+
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public E next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = bits.nextSetBit(next + 1);
+                    return decoder.apply(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    bits.clear(last);
+                    last = -1;
+                }
+            };
+        }
+    }
+}
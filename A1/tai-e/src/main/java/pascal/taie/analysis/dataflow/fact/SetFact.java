@@ -25,10 +25,13 @@ package pascal.taie.analysis.dataflow.fact;
 import pascal.taie.util.collection.CollectionUtils;
 import pascal.taie.util.collection.Sets;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -48,6 +51,15 @@ public class SetFact<E> {
         this(Collections.emptySet());
     }
 
+    /**
+     * Creates a fact backed by the set given by {@code setFactory}.
+     * The set is used as is (not copied), which allows subclasses
+     * to provide specialized set representations.
+     */
+    protected SetFact(Supplier<? extends Set<E>> setFactory) {
+        set = setFactory.get();
+    }
+
     /**
      * @return true if this set contains the specified element, otherwise false.
      */
@@ -92,6 +104,22 @@ public class SetFact<E> {
         return set.addAll(other.set);
     }
 
+    /**
+     * Unions other fact, except the given element, into this fact.
+     * If {@code e} is already in this fact, it remains in this fact.
+     *
+     * @return true if this fact changed as a result of the call, otherwise false.
+     */
+    public boolean unionExcept(SetFact<E> other, @Nullable E e) {
+        boolean changed = false;
+        for (E elem : other.set) {
+            if (!Objects.equals(elem, e)) {
+                changed |= set.add(elem);
+            }
+        }
+        return changed;
+    }
+
     /**
      * @return a new fact which is the union of this and other facts.
      */
@@ -0,0 +1,200 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Work-list solver which processes nodes in reverse postorder of the CFG
+ * for forward analyses, and in postorder for backward analyses, so that
+ * (ignoring back edges) a node is processed after all nodes it depends on.
+ * <p>
+ * The work-list is a bit set over the priorities (i.e., positions in the
+ * order) of the nodes: polling returns the pending node with the highest
+ * priority, and each node is queued at most once at any time.
+ */
+class PriorityWorkListSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    PriorityWorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        Order<Node> order = new Order<>(cfg, true);
+        BitSet workList = order.newWorkList();
+        for (int i = workList.nextSetBit(0); i >= 0; i = workList.nextSetBit(0)) {
+            workList.clear(i);
+            Node node = order.nodes[i];
+            Fact in = result.getInFact(node);
+            for (int pred : order.preds[i]) {
+                analysis.meetInto(result.getOutFact(order.nodes[pred]), in);
+            }
+            if (analysis.transferNode(node, in, result.getOutFact(node))) {
+                order.enqueue(workList, order.succs[i]);
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        Order<Node> order = new Order<>(cfg, false);
+        BitSet workList = order.newWorkList();
+        for (int i = workList.nextSetBit(0); i >= 0; i = workList.nextSetBit(0)) {
+            workList.clear(i);
+            Node node = order.nodes[i];
+            Fact out = result.getOutFact(node);
+            for (int succ : order.succs[i]) {
+                analysis.meetInto(result.getInFact(order.nodes[succ]), out);
+            }
+            if (analysis.transferNode(node, result.getInFact(node), out)) {
+                order.enqueue(workList, order.preds[i]);
+            }
+        }
+    }
+
+    /**
+     * Processing order of the nodes in a CFG. Each node is identified by
+     * its priority (a smaller number means a higher priority), and its
+     * predecessors and successors are pre-translated to priorities so that
+     * the solving loop does not look up nodes in maps.
+     */
+    private static class Order<Node> {
+
+        private final Node[] nodes;
+
+        private final int[][] preds;
+
+        private final int[][] succs;
+
+        /**
+         * Priority of the boundary node, i.e., the entry (exit) node in
+         * forward (backward) analysis, which is never queued.
+         */
+        private final int boundary;
+
+        @SuppressWarnings("unchecked")
+        private Order(CFG<Node> cfg, boolean isForward) {
+            List<Node> postOrder = postOrder(cfg);
+            int n = postOrder.size();
+            nodes = (Node[]) new Object[n];
+            Map<Node, Integer> priorities = Maps.newMap(n);
+            for (int i = 0; i < n; ++i) {
+                // reverse postorder for forward analyses,
+                // and postorder for backward analyses
+                Node node = postOrder.get(isForward ? n - 1 - i : i);
+                nodes[i] = node;
+                priorities.put(node, i);
+            }
+            preds = new int[n][];
+            succs = new int[n][];
+            for (int i = 0; i < n; ++i) {
+                preds[i] = toPriorities(cfg.getPredsOf(nodes[i]), priorities);
+                succs[i] = toPriorities(cfg.getSuccsOf(nodes[i]), priorities);
+            }
+            boundary = priorities.get(isForward ? cfg.getEntry() : cfg.getExit());
+        }
+
+        /**
+         * @return a work-list containing all nodes except the boundary node.
+         */
+        private BitSet newWorkList() {
+            BitSet workList = new BitSet(nodes.length);
+            workList.set(0, nodes.length);
+            workList.clear(boundary);
+            return workList;
+        }
+
+        private void enqueue(BitSet workList, int[] priorities) {
+            for (int priority : priorities) {
+                if (priority != boundary) {
+                    workList.set(priority);
+                }
+            }
+        }
+
+        private static <Node> int[] toPriorities(
+                Set<Node> nodes, Map<Node, Integer> priorities) {
+            int[] result = new int[nodes.size()];
+            int i = 0;
+            for (Node node : nodes) {
+                result[i++] = priorities.get(node);
+            }
+            return result;
+        }
+
+        /**
+         * Computes postorder of the nodes by iterative depth-first search
+         * from the entry, so that deep CFGs cannot overflow the stack.
+         * Nodes unreachable from the entry are appended in their
+         * original order.
+         */
+        private static <Node> List<Node> postOrder(CFG<Node> cfg) {
+            List<Node> postOrder = new ArrayList<>(cfg.getNumberOfNodes());
+            Set<Node> visited = Sets.newSet(cfg.getNumberOfNodes());
+            visit(cfg, cfg.getEntry(), visited, postOrder);
+            for (Node node : cfg) {
+                visit(cfg, node, visited, postOrder);
+            }
+            return postOrder;
+        }
+
+        private static <Node> void visit(CFG<Node> cfg, Node root,
+                                         Set<Node> visited, List<Node> postOrder) {
+            if (visited.contains(root)) {
+                return;
+            }
+            Deque<Node> stack = new ArrayDeque<>();
+            Deque<Iterator<Node>> succIters = new ArrayDeque<>();
+            visited.add(root);
+            stack.push(root);
+            succIters.push(cfg.getSuccsOf(root).iterator());
+            while (!stack.isEmpty()) {
+                Iterator<Node> succIter = succIters.peek();
+                if (succIter.hasNext()) {
+                    Node succ = succIter.next();
+                    if (visited.add(succ)) {
+                        stack.push(succ);
+                        succIters.push(cfg.getSuccsOf(succ).iterator());
+                    }
+                } else {
+                    postOrder.add(stack.pop());
+                    succIters.pop();
+                }
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@
 package pascal.taie.analysis;
 
 import org.junit.Assert;
+import pascal.taie.Assignment;
 import pascal.taie.Main;
 import pascal.taie.World;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
@@ -61,6 +62,23 @@ public final class Tests {
      * @param opts      options for the analysis
      */
     public static void test(String main, String classPath, String id, String... opts) {
+        doTest(0, main, classPath, id, opts);
+    }
+
+    /**
+     * Starts an analysis for a specific test case, where method analyses
+     * are run by given number of threads, and the results are compared
+     * with the same expected results as {@link #test}.
+     *
+     * @see Assignment#run(String[], int)
+     */
+    public static void testInParallel(int parallelism, String main,
+                                      String classPath, String id, String... opts) {
+        doTest(parallelism, main, classPath, id, opts);
+    }
+
+    private static void doTest(int parallelism, String main,
+                               String classPath, String id, String... opts) {
         List<String> args = new ArrayList<>();
         args.add("-pp");
         Collections.addAll(args, "-cp", classPath);
@@ -93,7 +111,7 @@ public final class Tests {
         String testcaseCmdString = String.join(" ", args.toArray(new String[0]));
         System.out.println("测试命令: " + testcaseCmdString);
 
-        Main.main(args.toArray(new String[0]));
+        Assignment.run(args.toArray(new String[0]), parallelism);
         if (action.equals("compare")) {
             Set<String> mismatches = World.get().getResult(ResultProcessor.ID);
             Assert.assertTrue("Mismatches of analysis \"" + id + "\":\n" +
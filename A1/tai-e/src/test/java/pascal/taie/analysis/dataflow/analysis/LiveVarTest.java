@@ -32,6 +32,21 @@ public class LiveVarTest {
                 LiveVariableAnalysis.ID, "strongly:false");
     }
 
+    void testBitVectorLV(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/livevar",
+                LiveVariableAnalysis.ID, "strongly:false;bit-vector:true");
+    }
+
+    void testPriorityLV(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/livevar",
+                LiveVariableAnalysis.ID, "strongly:false;solver:priority");
+    }
+
+    void testParallelLV(String inputClass) {
+        Tests.testInParallel(4, inputClass, "src/test/resources/dataflow/livevar",
+                LiveVariableAnalysis.ID, "strongly:false");
+    }
+
     @Test
     public void testAssign() {
         testLV("Assign");
@@ -61,4 +76,34 @@ public class LiveVarTest {
     public void Reference() {
         testLV("Reference");
     }
+
+    @Test
+    public void testBitVectorBranchLoop() {
+        testBitVectorLV("BranchLoop");
+    }
+
+    @Test
+    public void testBitVectorFibonacci() {
+        testBitVectorLV("Fibonacci");
+    }
+
+    @Test
+    public void testPriorityBranchLoop() {
+        testPriorityLV("BranchLoop");
+    }
+
+    @Test
+    public void testPriorityFibonacci() {
+        testPriorityLV("Fibonacci");
+    }
+
+    @Test
+    public void testParallelBranchLoop() {
+        testParallelLV("BranchLoop");
+    }
+
+    @Test
+    public void testParallelFibonacci() {
+        testParallelLV("Fibonacci");
+    }
 }
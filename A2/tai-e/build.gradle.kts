@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 repositories {
@@ -25,6 +26,21 @@ tasks.test {
     maxHeapSize = "4G"
 }
 
+// Benchmarks under src/jmh, run by "./gradlew jmh".
+// Results (with the allocation rates given by the gc profiler)
+// are written to build/results/jmh/results.json.
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.set(listOf("-Xmx4G"))
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+}
+
+tasks.named<JavaCompile>("compileJmhJava") { options.encoding = "UTF-8" }
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(17))
@@ -23,10 +23,11 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.fact.PersistentMap;
 import pascal.taie.ir.exp.Var;
 
-import java.util.Collections;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Represents data facts of constant propagation, which maps variables
@@ -37,15 +38,27 @@ import java.util.Map;
  * it represents that the lattice value of the variable is UNDEF;
  * moreover, if we set the lattice value of a variable to UNDEF,
  * it effectively removes the variable from the CPFact.
+ * <p>
+ * The mappings are kept in a {@link PersistentMap}, so that {@link #copy()}
+ * takes constant time and updates on a copy share structure with the
+ * original fact.
  */
 public class CPFact extends MapFact<Var, Value> {
 
     public CPFact() {
-        this(Collections.emptyMap());
+        this(new PersistentMap<>());
     }
 
-    private CPFact(Map<Var, Value> map) {
-        super(map);
+    private CPFact(PersistentMap<Var, Value> map) {
+        super(() -> map);
+    }
+
+    /**
+     * Creates a fact backed by the map given by {@code mapFactory},
+     * for subclasses that provide specialized representations.
+     */
+    protected CPFact(Supplier<? extends Map<Var, Value>> mapFactory) {
+        super(mapFactory);
     }
 
     /**
@@ -69,8 +82,24 @@ public class CPFact extends MapFact<Var, Value> {
         }
     }
 
+    /**
+     * @return the {@link PackedValue packed} value of given variable in this fact.
+     */
+    public long getPacked(Var key) {
+        return PackedValue.fromValue(get(key));
+    }
+
+    /**
+     * Updates the value of given variable to given {@link PackedValue packed} value.
+     *
+     * @return if the update changes this fact.
+     */
+    public boolean updatePacked(Var key, long value) {
+        return update(key, PackedValue.toValue(value));
+    }
+
     @Override
     public CPFact copy() {
-        return new CPFact(this.map);
+        return new CPFact(((PersistentMap<Var, Value>) map).copy());
     }
 }
@@ -0,0 +1,235 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.ir.exp.Var;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link CPFact} which stores {@link PackedValue packed} values in a
+ * primitive array indexed by {@link Var#getIndex()}, so that reading and
+ * updating values via {@link #getPacked(Var)} and {@link #updatePacked(Var, long)}
+ * never allocate. The {@link Value}-based API is still supported,
+ * boxing the values on demand.
+ */
+public class IndexedCPFact extends CPFact {
+
+    private final ValueArray values;
+
+    public IndexedCPFact() {
+        this(new ValueArray());
+    }
+
+    private IndexedCPFact(ValueArray values) {
+        super(() -> values);
+        this.values = values;
+    }
+
+    @Override
+    public long getPacked(Var key) {
+        return values.getPacked(key.getIndex());
+    }
+
+    @Override
+    public boolean updatePacked(Var key, long value) {
+        return values.setPacked(key, value) != value;
+    }
+
+    @Override
+    public IndexedCPFact copy() {
+        return new IndexedCPFact(values.copy());
+    }
+
+    /**
+     * Map view of the packed values. UNDEF values are absent from the map.
+     */
+    private static class ValueArray extends AbstractMap<Var, Value> {
+
+        private static final long[] EMPTY_VALUES = {};
+
+        private static final Var[] EMPTY_VARS = {};
+
+        private long[] values;
+
+        /**
+         * The variables having non-UNDEF values, used to decode keys.
+         */
+        private Var[] vars;
+
+        private int size;
+
+        private ValueArray() {
+            this(EMPTY_VALUES, EMPTY_VARS, 0);
+        }
+
+        private ValueArray(long[] values, Var[] vars, int size) {
+            this.values = values;
+            this.vars = vars;
+            this.size = size;
+        }
+
+        private ValueArray copy() {
+            return new ValueArray(values.clone(), vars.clone(), size);
+        }
+
+        private long getPacked(int index) {
+            return index < values.length ? values[index] : PackedValue.UNDEF;
+        }
+
+        /**
+         * Sets the value of given variable.
+         *
+         * @return the previous packed value of the variable.
+         */
+        private long setPacked(Var var, long value) {
+            int index = var.getIndex();
+            if (index >= values.length) {
+                if (PackedValue.isUndef(value)) {
+                    return PackedValue.UNDEF;
+                }
+                int capacity = Math.max(index + 1, values.length * 2);
+                values = Arrays.copyOf(values, capacity);
+                vars = Arrays.copyOf(vars, capacity);
+            }
+            long old = values[index];
+            if (old != value) {
+                values[index] = value;
+                if (PackedValue.isUndef(old)) {
+                    vars[index] = var;
+                    ++size;
+                } else if (PackedValue.isUndef(value)) {
+                    vars[index] = null;
+                    --size;
+                }
+            }
+            return old;
+        }
+
+        private static Value box(long value) {
+            return PackedValue.isUndef(value) ? null : PackedValue.toValue(value);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Var var
+                    && !PackedValue.isUndef(getPacked(var.getIndex()));
+        }
+
+        @Override
+        public Value get(Object key) {
+            return key instanceof Var var ? box(getPacked(var.getIndex())) : null;
+        }
+
+        @Override
+        public Value put(Var key, Value value) {
+            return box(setPacked(key, PackedValue.fromValue(value)));
+        }
+
+        @Override
+        public Value remove(Object key) {
+            return key instanceof Var var
+                    ? box(setPacked(var, PackedValue.UNDEF)) : null;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(values, PackedValue.UNDEF);
+            Arrays.fill(vars, null);
+            size = 0;
+        }
+
+        @Override
+        public Set<Entry<Var, Value>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Var, Value>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof ValueArray that) {
+                return size == that.size
+                        && Arrays.equals(values, 0, Math.min(values.length, that.values.length),
+                        that.values, 0, Math.min(values.length, that.values.length));
+            }
+            return super.equals(o);
+        }
+
+        private class EntryIterator implements Iterator<Entry<Var, Value>> {
+
+            private int next = advance(0);
+
+            private int last = -1;
+
+            private int advance(int from) {
+                while (from < vars.length && vars[from] == null) {
+                    ++from;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < vars.length;
+            }
+
+            @Override
+            public Entry<Var, Value> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return new SimpleImmutableEntry<>(vars[last], box(values[last]));
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                setPacked(vars[last], PackedValue.UNDEF);
+                last = -1;
+            }
+        }
+    }
+}
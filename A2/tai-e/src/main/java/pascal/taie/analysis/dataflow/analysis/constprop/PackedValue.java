@@ -0,0 +1,120 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.util.AnalysisException;
+
+/**
+ * Packed encoding of constant propagation lattice values as {@code long}s,
+ * which allows manipulating the values without allocation.
+ * <p>
+ * The high 32 bits hold the kind of a value and the low 32 bits hold
+ * the constant (if any). UNDEF is encoded as 0, so that a zero-filled
+ * {@code long} array represents all-UNDEF values.
+ * {@link Value} remains the boxed view of the packed values.
+ */
+public final class PackedValue {
+
+    /**
+     * The packed UNDEF.
+     */
+    public static final long UNDEF = 0L;
+
+    /**
+     * The packed NAC.
+     */
+    public static final long NAC = 2L << 32;
+
+    /**
+     * Kind bits of packed constants.
+     */
+    private static final long CONSTANT = 1L << 32;
+
+    private PackedValue() {
+    }
+
+    /**
+     * @return the packed value of given constant.
+     */
+    public static long makeConstant(int value) {
+        return CONSTANT | (value & 0xFFFFFFFFL);
+    }
+
+    public static boolean isUndef(long value) {
+        return value == UNDEF;
+    }
+
+    public static boolean isConstant(long value) {
+        return (value & ~0xFFFFFFFFL) == CONSTANT;
+    }
+
+    public static boolean isNAC(long value) {
+        return value == NAC;
+    }
+
+    /**
+     * @return the constant held by given packed value.
+     * @throws AnalysisException if the value is not a constant
+     */
+    public static int getConstant(long value) {
+        if (!isConstant(value)) {
+            throw new AnalysisException(toValue(value) + " is not a constant");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Meets two packed values.
+     */
+    public static long meet(long v1, long v2) {
+        if (v1 == NAC || v2 == NAC) {
+            return NAC;
+        } else if (v1 == UNDEF) {
+            return v2;
+        } else if (v2 == UNDEF || v1 == v2) {
+            return v1;
+        } else {
+            return NAC;
+        }
+    }
+
+    /**
+     * @return the packed form of given value.
+     */
+    public static long fromValue(Value value) {
+        if (value.isConstant()) {
+            return makeConstant(value.getConstant());
+        }
+        return value.isNAC() ? NAC : UNDEF;
+    }
+
+    /**
+     * @return the boxed {@link Value} of given packed value.
+     */
+    public static Value toValue(long value) {
+        if (isConstant(value)) {
+            return Value.makeConstant((int) value);
+        }
+        return value == NAC ? Value.getNAC() : Value.getUndef();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.graph.cfg.BasicBlocks;
+import pascal.taie.analysis.graph.cfg.CFG;
+
+import java.util.List;
+
+/**
+ * A {@link DataflowResult} which keeps only the facts at basic-block
+ * boundaries, i.e., the in fact of the first node of each block for
+ * forward analyses, and the out fact of the last node of each block for
+ * backward analyses. Facts of other nodes are recomputed on demand by
+ * re-applying the transfer functions within the block. The facts of the
+ * most recently recomputed block are cached, so that querying the nodes
+ * of a block one after another recomputes the block only once.
+ * The cached facts of a block are never modified after they are computed,
+ * and they are replaced as a whole, thus this result can be queried by
+ * multiple threads.
+ * <p>
+ * This trades time for memory when results of huge methods are kept.
+ * Facts returned for non-boundary nodes are fresh objects,
+ * thus modifying them does not affect this result.
+ *
+ * @param <Node> type of nodes
+ * @param <Fact> type of data-flow facts
+ */
+public class CompactDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private final CFG<Node> cfg;
+
+    private final DataflowAnalysis<Node, Fact> analysis;
+
+    private final BasicBlocks<Node> blocks;
+
+    /**
+     * Facts of the most recently recomputed block, or null if none.
+     */
+    private volatile BlockFacts cache;
+
+    /**
+     * Creates a compact result from the facts computed by a solver.
+     * Only the facts at the boundaries of {@code blocks} are read from
+     * {@code result}, so solvers need not compute facts of other nodes.
+     *
+     * @param result   the facts of {@code analysis} on {@code cfg}
+     * @param cfg      the CFG where the analysis was performed on
+     * @param analysis the analysis that produces the result
+     * @param blocks   the basic blocks of {@code cfg}
+     */
+    public CompactDataflowResult(DataflowResult<Node, Fact> result,
+                                 CFG<Node> cfg,
+                                 DataflowAnalysis<Node, Fact> analysis,
+                                 BasicBlocks<Node> blocks) {
+        this.cfg = cfg;
+        this.analysis = analysis;
+        this.blocks = blocks;
+        for (int b = 0; b < blocks.getNumberOfBlocks(); ++b) {
+            List<Node> block = blocks.getBlock(b);
+            Node head = block.get(0);
+            Node tail = block.get(block.size() - 1);
+            if (isBoundaryNode(head)) {
+                // entry and exit are not transferred, keep both facts
+                super.setInFact(head, result.getInFact(head));
+                super.setOutFact(head, result.getOutFact(head));
+            } else if (analysis.isForward()) {
+                super.setInFact(head, result.getInFact(head));
+            } else {
+                super.setOutFact(tail, result.getOutFact(tail));
+            }
+        }
+    }
+
+    private boolean isBoundaryNode(Node node) {
+        return cfg.isEntry(node) || cfg.isExit(node);
+    }
+
+    @Override
+    public Fact getInFact(Node node) {
+        if (isBoundaryNode(node) ||
+                (analysis.isForward() && blocks.getPositionOf(node) == 0)) {
+            return super.getInFact(node);
+        }
+        return getCachedFact(node, true);
+    }
+
+    @Override
+    public Fact getOutFact(Node node) {
+        if (isBoundaryNode(node) ||
+                (!analysis.isForward() && isTail(node))) {
+            return super.getOutFact(node);
+        }
+        return getCachedFact(node, false);
+    }
+
+    private boolean isTail(Node node) {
+        List<Node> block = blocks.getBlock(blocks.getBlockIndexOf(node));
+        return blocks.getPositionOf(node) == block.size() - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Fact getCachedFact(Node node, boolean in) {
+        int b = blocks.getBlockIndexOf(node);
+        BlockFacts facts = cache;
+        if (facts == null || facts.block() != b) {
+            facts = recompute(b);
+            cache = facts;
+        }
+        int pos = blocks.getPositionOf(node);
+        return (Fact) (in ? facts.ins()[pos] : facts.outs()[pos]);
+    }
+
+    /**
+     * Recomputes in/out facts of all nodes in given block from
+     * the fact kept at the boundary of the block.
+     */
+    private BlockFacts recompute(int b) {
+        List<Node> block = blocks.getBlock(b);
+        int n = block.size();
+        Object[] ins = new Object[n];
+        Object[] outs = new Object[n];
+        if (analysis.isForward()) {
+            Fact in = super.getInFact(block.get(0));
+            for (int i = 0; i < n; ++i) {
+                Fact out = analysis.newInitialFact();
+                analysis.transferNode(block.get(i), in, out);
+                ins[i] = in;
+                outs[i] = out;
+                if (i + 1 < n) {
+                    in = analysis.newInitialFact();
+                    analysis.meetInto(out, in);
+                }
+            }
+        } else {
+            Fact out = super.getOutFact(block.get(n - 1));
+            for (int i = n - 1; i >= 0; --i) {
+                Fact in = analysis.newInitialFact();
+                analysis.transferNode(block.get(i), in, out);
+                ins[i] = in;
+                outs[i] = out;
+                if (i > 0) {
+                    out = analysis.newInitialFact();
+                    analysis.meetInto(in, out);
+                }
+            }
+        }
+        return new BlockFacts(b, ins, outs);
+    }
+
+    /**
+     * In/out facts of the nodes in a block, indexed by their positions.
+     */
+    private record BlockFacts(int block, Object[] ins, Object[] outs) {
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A {@link DataflowResult} which stores facts in arrays indexed by
+ * {@link Indexable#getIndex()} of the nodes, so that accessing a fact
+ * is an array access instead of a hash lookup.
+ * <p>
+ * The nodes must implement {@link Indexable} and their indexes should be
+ * dense, e.g., {@link pascal.taie.ir.stmt.Stmt}s in a CFG, whose indexes
+ * range from 0 to the number of nodes - 1.
+ *
+ * @param <Node> type of nodes
+ * @param <Fact> type of data-flow facts
+ */
+public class IndexedDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private Object[] inFacts;
+
+    private Object[] outFacts;
+
+    /**
+     * @param capacity expected number of nodes
+     */
+    public IndexedDataflowResult(int capacity) {
+        super(Map.of(), Map.of());
+        inFacts = new Object[capacity];
+        outFacts = new Object[capacity];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Fact getInFact(Node node) {
+        int i = indexOf(node);
+        return i < inFacts.length ? (Fact) inFacts[i] : null;
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        int i = indexOf(node);
+        if (i >= inFacts.length) {
+            inFacts = grow(inFacts, i);
+        }
+        inFacts[i] = fact;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Fact getOutFact(Node node) {
+        int i = indexOf(node);
+        return i < outFacts.length ? (Fact) outFacts[i] : null;
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        int i = indexOf(node);
+        if (i >= outFacts.length) {
+            outFacts = grow(outFacts, i);
+        }
+        outFacts[i] = fact;
+    }
+
+    private static int indexOf(Object node) {
+        return ((Indexable) node).getIndex();
+    }
+
+    private static Object[] grow(Object[] facts, int index) {
+        return Arrays.copyOf(facts, Math.max(index + 1, facts.length * 2));
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,6 +55,15 @@ public class MapFact<K, V> {
         this.map = Maps.newHybridMap(map);
     }
 
+    /**
+     * Creates a fact backed by the map given by {@code mapFactory}.
+     * The map is used as is (not copied), which allows subclasses
+     * to provide specialized map representations.
+     */
+    protected MapFact(Supplier<? extends Map<K, V>> mapFactory) {
+        this.map = mapFactory.get();
+    }
+
     /**
      * @return the value to which the specified key is mapped,
      * or null if this map contains no mapping for the key.
@@ -0,0 +1,178 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.CompactDataflowResult;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.BasicBlocks;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.SetQueue;
+
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Work-list solver which works on basic blocks of the CFG instead of
+ * individual nodes. Each time a block is processed, the facts flowing
+ * into the block are met once at its boundary, and then the transfer
+ * functions of its nodes are applied one after another, where the out
+ * (in) fact of a node is directly used as the in (out) fact of the next
+ * (previous) node in forward (backward) analysis. Thus the nodes inside
+ * a block pay neither meet nor queue overhead.
+ * <p>
+ * The facts flowing into the inner nodes of blocks, i.e., in (out) facts
+ * of non-first (non-last) nodes in forward (backward) analysis, are not
+ * touched during solving, and they are filled in when the solving is done.
+ * When a compact result is requested, they are not filled in at all, and
+ * the facts at block boundaries are handed to the
+ * {@link CompactDataflowResult} directly.
+ */
+class BlockWorkListSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    BlockWorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    public DataflowResult<Node, Fact> solve(CFG<Node> cfg, boolean compact) {
+        if (!compact) {
+            return solve(cfg);
+        }
+        BasicBlocks<Node> blocks = new BasicBlocks<>(cfg);
+        DataflowResult<Node, Fact> result = initialize(cfg);
+        if (analysis.isForward()) {
+            solveForward(cfg, blocks, result);
+        } else {
+            solveBackward(cfg, blocks, result);
+        }
+        return new CompactDataflowResult<>(result, cfg, analysis, blocks);
+    }
+
+    @Override
+    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BasicBlocks<Node> blocks = new BasicBlocks<>(cfg);
+        solveForward(cfg, blocks, result);
+        // fill in the in facts of inner nodes
+        for (int b = 0; b < blocks.getNumberOfBlocks(); ++b) {
+            List<Node> block = blocks.getBlock(b);
+            for (int i = 1; i < block.size(); ++i) {
+                analysis.meetInto(result.getOutFact(block.get(i - 1)),
+                        result.getInFact(block.get(i)));
+            }
+        }
+    }
+
+    private void solveForward(CFG<Node> cfg, BasicBlocks<Node> blocks,
+                              DataflowResult<Node, Fact> result) {
+        boolean[] visited = new boolean[blocks.getNumberOfBlocks()];
+        Queue<Integer> workList = newWorkList(blocks);
+        while (!workList.isEmpty()) {
+            int b = workList.poll();
+            List<Node> block = blocks.getBlock(b);
+            if (cfg.isEntry(block.get(0))) {
+                continue;
+            }
+            Fact in = result.getInFact(block.get(0));
+            for (int pred : blocks.getPredsOf(b)) {
+                List<Node> predBlock = blocks.getBlock(pred);
+                analysis.meetInto(
+                        result.getOutFact(predBlock.get(predBlock.size() - 1)), in);
+            }
+            boolean changed = false;
+            for (Node node : block) {
+                Fact out = result.getOutFact(node);
+                changed = analysis.transferNode(node, in, out);
+                if (!changed && visited[b]) {
+                    // the rest of the block receives the same facts as before
+                    break;
+                }
+                in = out;
+            }
+            visited[b] = true;
+            if (changed) {
+                for (int succ : blocks.getSuccsOf(b)) {
+                    workList.add(succ);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
+        BasicBlocks<Node> blocks = new BasicBlocks<>(cfg);
+        solveBackward(cfg, blocks, result);
+        // fill in the out facts of inner nodes
+        for (int b = 0; b < blocks.getNumberOfBlocks(); ++b) {
+            List<Node> block = blocks.getBlock(b);
+            for (int i = 0; i + 1 < block.size(); ++i) {
+                analysis.meetInto(result.getInFact(block.get(i + 1)),
+                        result.getOutFact(block.get(i)));
+            }
+        }
+    }
+
+    private void solveBackward(CFG<Node> cfg, BasicBlocks<Node> blocks,
+                               DataflowResult<Node, Fact> result) {
+        boolean[] visited = new boolean[blocks.getNumberOfBlocks()];
+        Queue<Integer> workList = newWorkList(blocks);
+        while (!workList.isEmpty()) {
+            int b = workList.poll();
+            List<Node> block = blocks.getBlock(b);
+            int last = block.size() - 1;
+            if (cfg.isExit(block.get(last))) {
+                continue;
+            }
+            Fact out = result.getOutFact(block.get(last));
+            for (int succ : blocks.getSuccsOf(b)) {
+                analysis.meetInto(
+                        result.getInFact(blocks.getBlock(succ).get(0)), out);
+            }
+            boolean changed = false;
+            for (int i = last; i >= 0; --i) {
+                Node node = block.get(i);
+                Fact in = result.getInFact(node);
+                changed = analysis.transferNode(node, in, out);
+                if (!changed && visited[b]) {
+                    // the rest of the block receives the same facts as before
+                    break;
+                }
+                out = in;
+            }
+            visited[b] = true;
+            if (changed) {
+                for (int pred : blocks.getPredsOf(b)) {
+                    workList.add(pred);
+                }
+            }
+        }
+    }
+
+    private static Queue<Integer> newWorkList(BasicBlocks<?> blocks) {
+        Queue<Integer> workList = new SetQueue<>();
+        for (int b = 0; b < blocks.getNumberOfBlocks(); ++b) {
+            workList.add(b);
+        }
+        return workList;
+    }
+}
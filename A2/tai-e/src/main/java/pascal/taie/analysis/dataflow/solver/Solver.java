@@ -23,8 +23,15 @@
 package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.CompactDataflowResult;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.IndexedDataflowResult;
+import pascal.taie.analysis.graph.cfg.BasicBlocks;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.config.ConfigException;
+import pascal.taie.util.Indexable;
+
+import javax.annotation.Nullable;
 
 /**
  * Base class for data-flow analysis solver, which provides common
@@ -49,6 +56,26 @@ public abstract class Solver<Node, Fact> {
         return new WorkListSolver<>(analysis);
     }
 
+    /**
+     * Static factory method to create a new solver of given kind
+     * for given analysis.
+     *
+     * @param kind kind of the solver, i.e., "worklist" or "block"
+     *             (work-list solver over basic blocks).
+     *             If it is null, the default solver is created.
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, @Nullable String kind) {
+        if (kind == null) {
+            return makeSolver(analysis);
+        }
+        return switch (kind) {
+            case "worklist" -> new WorkListSolver<>(analysis);
+            case "block" -> new BlockWorkListSolver<>(analysis);
+            default -> throw new ConfigException("Unknown solver: " + kind);
+        };
+    }
+
     /**
      * Starts this solver on the given CFG.
      *
@@ -61,13 +88,29 @@ public abstract class Solver<Node, Fact> {
         return result;
     }
 
+    /**
+     * Starts this solver on the given CFG.
+     *
+     * @param cfg     control-flow graph where the analysis is performed on
+     * @param compact whether to return a {@link CompactDataflowResult}
+     *                which keeps only the facts at basic-block boundaries
+     * @return the analysis result
+     */
+    public DataflowResult<Node, Fact> solve(CFG<Node> cfg, boolean compact) {
+        if (!compact) {
+            return solve(cfg);
+        }
+        return new CompactDataflowResult<>(
+                solve(cfg), cfg, analysis, new BasicBlocks<>(cfg));
+    }
+
     /**
      * Creates and initializes a new data-flow result for given CFG.
      *
      * @return the initialized data-flow result
      */
-    private DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = new DataflowResult<>();
+    protected DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
+        DataflowResult<Node, Fact> result = newResult(cfg);
         if (analysis.isForward()) {
             initializeForward(cfg, result);
         } else {
@@ -76,6 +119,19 @@ public abstract class Solver<Node, Fact> {
         return result;
     }
 
+    /**
+     * Creates an empty data-flow result for given CFG. If the nodes are
+     * {@link Indexable} (e.g., {@link pascal.taie.ir.stmt.Stmt}),
+     * facts are kept in arrays indexed by the nodes.
+     */
+    private DataflowResult<Node, Fact> newResult(CFG<Node> cfg) {
+        if (cfg.getEntry() instanceof Indexable) {
+            return new IndexedDataflowResult<>(cfg.getNumberOfNodes());
+        } else {
+            return new DataflowResult<>();
+        }
+    }
+
     protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
         // OUT[entry] = null (NAC)
         result.setOutFact(cfg.getEntry(), analysis.newBoundaryFact(cfg));
@@ -91,7 +147,16 @@ public abstract class Solver<Node, Fact> {
     }
 
     protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        throw new UnsupportedOperationException();
+        // IN[exit] = boundary fact
+        result.setInFact(cfg.getExit(), analysis.newBoundaryFact(cfg));
+
+        for (Node node: cfg.getNodes()) {
+            if (cfg.isExit(node)) {
+                continue;
+            }
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
     }
 
     /**
@@ -25,9 +25,16 @@ package pascal.taie.analysis.dataflow.solver;
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.SetQueue;
 
-import java.util.ArrayList;
+import java.util.Queue;
 
+/**
+ * Work-list solver for both forward and backward analyses.
+ * The work-list is a FIFO queue which ignores nodes that are already
+ * in it, so a node is processed again only when a fact it depends on
+ * has changed since it was last queued.
+ */
 class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
     WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
@@ -36,44 +43,51 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
     @Override
     protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        ArrayList<Node> nodeArrayList = new ArrayList<>();
-        for (Node node : cfg.getNodes()) {
-            if (cfg.isEntry(node)) {
-                continue;
+        Queue<Node> workList = new SetQueue<>();
+        for (Node node : cfg) {
+            if (!cfg.isEntry(node)) {
+                workList.add(node);
             }
-            nodeArrayList.add(node);
         }
-
-        while (!nodeArrayList.isEmpty()) {
-            // 取出来头结点
-            Node currentNode = nodeArrayList.remove(0);
-            System.out.println("==========");
-            System.out.println("in stmt: " + currentNode);
-
-            // 做前向分析，应该拿到所有前面结点
-            // ⚠️ for (Node p: cfg.getSuccsOf(currentNode)) {
-            for (Node p: cfg.getPredsOf(currentNode)) {
-                // 两个 fact 是空的
-                // analysis.meetInto(result.getOutFact(p), result.getInFact(p));
-                // ⚠️ 前面结点的 OUT 汇聚到当前结点的 IN
-                analysis.meetInto(result.getOutFact(p), result.getInFact(currentNode));
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            // 前面结点的 OUT 汇聚到当前结点的 IN
+            Fact in = result.getInFact(node);
+            for (Node pred : cfg.getPredsOf(node)) {
+                analysis.meetInto(result.getOutFact(pred), in);
             }
-            boolean changed = analysis.transferNode(
-                    currentNode,
-                    result.getInFact(currentNode),
-                    result.getOutFact(currentNode)
-            );
-
-            if (changed) {
-                nodeArrayList.addAll(cfg.getSuccsOf(currentNode));
+            if (analysis.transferNode(node, in, result.getOutFact(node))) {
+                for (Node succ : cfg.getSuccsOf(node)) {
+                    if (!cfg.isEntry(succ)) {
+                        workList.add(succ);
+                    }
+                }
             }
         }
-
     }
 
     @Override
     protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        throw new UnsupportedOperationException();
+        Queue<Node> workList = new SetQueue<>();
+        for (Node node : cfg) {
+            if (!cfg.isExit(node)) {
+                workList.add(node);
+            }
+        }
+        while (!workList.isEmpty()) {
+            Node node = workList.poll();
+            // 后继结点的 IN 汇聚到当前结点的 OUT
+            Fact out = result.getOutFact(node);
+            for (Node succ : cfg.getSuccsOf(node)) {
+                analysis.meetInto(result.getInFact(succ), out);
+            }
+            if (analysis.transferNode(node, result.getInFact(node), out)) {
+                for (Node pred : cfg.getPredsOf(node)) {
+                    if (!cfg.isExit(pred)) {
+                        workList.add(pred);
+                    }
+                }
+            }
+        }
     }
 }
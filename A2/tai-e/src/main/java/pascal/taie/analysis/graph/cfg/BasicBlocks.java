@@ -0,0 +1,174 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partition of the nodes of a CFG into basic blocks, i.e., maximal
+ * sequences of nodes that are always executed one after another:
+ * every node of a block except the first one has exactly one predecessor,
+ * which is the previous node in the block and has no other successors.
+ * The entry and exit nodes of the CFG always form blocks by themselves.
+ * <p>
+ * Blocks are identified by their indexes, which range from 0 to
+ * {@link #getNumberOfBlocks()} - 1.
+ *
+ * @param <N> type of CFG nodes.
+ */
+public class BasicBlocks<N> {
+
+    private final List<List<N>> blocks = new ArrayList<>();
+
+    /**
+     * Maps each node to the index of the block containing it.
+     */
+    private final Map<N, Integer> blockIndexes;
+
+    /**
+     * Maps each node to its position in the block containing it.
+     */
+    private final Map<N, Integer> positions;
+
+    private final int[][] predBlocks;
+
+    private final int[][] succBlocks;
+
+    public BasicBlocks(CFG<N> cfg) {
+        blockIndexes = Maps.newMap(cfg.getNumberOfNodes());
+        positions = Maps.newMap(cfg.getNumberOfNodes());
+        for (N node : cfg) {
+            if (isLeader(cfg, node)) {
+                addBlock(cfg, node);
+            }
+        }
+        // remaining nodes are in cycles that have no leaders,
+        // which are unreachable from the entry
+        for (N node : cfg) {
+            if (!blockIndexes.containsKey(node)) {
+                addBlock(cfg, node);
+            }
+        }
+        predBlocks = new int[blocks.size()][];
+        succBlocks = new int[blocks.size()][];
+        for (int i = 0; i < blocks.size(); ++i) {
+            List<N> block = blocks.get(i);
+            predBlocks[i] = toBlockIndexes(cfg.getPredsOf(block.get(0)));
+            succBlocks[i] = toBlockIndexes(
+                    cfg.getSuccsOf(block.get(block.size() - 1)));
+        }
+    }
+
+    private static <N> boolean isLeader(CFG<N> cfg, N node) {
+        if (cfg.isEntry(node) || cfg.isExit(node)) {
+            return true;
+        }
+        Set<N> preds = cfg.getPredsOf(node);
+        if (preds.size() != 1) {
+            return true;
+        }
+        N pred = preds.iterator().next();
+        return cfg.isEntry(pred) || cfg.getSuccsOf(pred).size() != 1;
+    }
+
+    private void addBlock(CFG<N> cfg, N leader) {
+        int index = blocks.size();
+        List<N> block = new ArrayList<>();
+        N node = leader;
+        while (true) {
+            blockIndexes.put(node, index);
+            positions.put(node, block.size());
+            block.add(node);
+            if (cfg.isExit(node)) {
+                break;
+            }
+            Set<N> succs = cfg.getSuccsOf(node);
+            if (succs.size() != 1) {
+                break;
+            }
+            N succ = succs.iterator().next();
+            if (blockIndexes.containsKey(succ) || isLeader(cfg, succ)) {
+                break;
+            }
+            node = succ;
+        }
+        blocks.add(Collections.unmodifiableList(block));
+    }
+
+    private int[] toBlockIndexes(Set<N> nodes) {
+        return nodes.stream()
+                .mapToInt(blockIndexes::get)
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * @return the number of blocks.
+     */
+    public int getNumberOfBlocks() {
+        return blocks.size();
+    }
+
+    /**
+     * @return nodes of the given block in execution order.
+     */
+    public List<N> getBlock(int block) {
+        return blocks.get(block);
+    }
+
+    /**
+     * @return index of the block containing the given node.
+     */
+    public int getBlockIndexOf(N node) {
+        return blockIndexes.get(node);
+    }
+
+    /**
+     * @return position of the given node in the block containing it.
+     */
+    public int getPositionOf(N node) {
+        return positions.get(node);
+    }
+
+    /**
+     * @return indexes of the predecessor blocks of the given block.
+     * The returned array must not be modified.
+     */
+    public int[] getPredsOf(int block) {
+        return predBlocks[block];
+    }
+
+    /**
+     * @return indexes of the successor blocks of the given block.
+     * The returned array must not be modified.
+     */
+    public int[] getSuccsOf(int block) {
+        return succBlocks[block];
+    }
+}
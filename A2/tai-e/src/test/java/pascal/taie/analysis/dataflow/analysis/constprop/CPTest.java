@@ -32,6 +32,26 @@ public class CPTest {
                 ConstantPropagation.ID, "edge-refine:false");
     }
 
+    void testCompactCP(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/constprop/",
+                ConstantPropagation.ID, "edge-refine:false;compact-result:true");
+    }
+
+    void testBlockCP(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/constprop/",
+                ConstantPropagation.ID, "edge-refine:false;solver:block");
+    }
+
+    void testPackedCP(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/constprop/",
+                ConstantPropagation.ID, "edge-refine:false;packed-fact:true");
+    }
+
+    void testParallelCP(String inputClass) {
+        Tests.testInParallel(4, inputClass, "src/test/resources/dataflow/constprop/",
+                ConstantPropagation.ID, "edge-refine:false");
+    }
+
     @Test
     public void testAssign() {
         testCP("Assign");
@@ -66,4 +86,49 @@ public class CPTest {
     public void testInterprocedural() {
         testCP("Interprocedural");
     }
+
+    @Test
+    public void testCompactSimpleBranch() {
+        testCompactCP("SimpleBranch");
+    }
+
+    @Test
+    public void testCompactBranchConstant() {
+        testCompactCP("BranchConstant");
+    }
+
+    @Test
+    public void testBlockSimpleBranch() {
+        testBlockCP("SimpleBranch");
+    }
+
+    @Test
+    public void testBlockBranchConstant() {
+        testBlockCP("BranchConstant");
+    }
+
+    @Test
+    public void testBlockInterprocedural() {
+        testBlockCP("Interprocedural");
+    }
+
+    @Test
+    public void testPackedSimpleBinary() {
+        testPackedCP("SimpleBinary");
+    }
+
+    @Test
+    public void testPackedBranchConstant() {
+        testPackedCP("BranchConstant");
+    }
+
+    @Test
+    public void testParallelSimpleBranch() {
+        testParallelCP("SimpleBranch");
+    }
+
+    @Test
+    public void testParallelInterprocedural() {
+        testParallelCP("Interprocedural");
+    }
 }
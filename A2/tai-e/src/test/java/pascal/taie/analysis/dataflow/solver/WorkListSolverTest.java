@@ -0,0 +1,215 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.CompactDataflowResult;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.analysis.graph.cfg.MockCFG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class WorkListSolverTest {
+
+    /**
+     * Live variable analysis over the variables defined and used
+     * by each node.
+     */
+    private record LiveVars(Map<Integer, String> defs, Map<Integer, Set<String>> uses)
+            implements DataflowAnalysis<Integer, Set<String>> {
+
+        @Override
+        public boolean isForward() {
+            return false;
+        }
+
+        @Override
+        public Set<String> newBoundaryFact(CFG<Integer> cfg) {
+            return new HashSet<>();
+        }
+
+        @Override
+        public Set<String> newInitialFact() {
+            return new HashSet<>();
+        }
+
+        @Override
+        public void meetInto(Set<String> fact, Set<String> target) {
+            target.addAll(fact);
+        }
+
+        @Override
+        public boolean transferNode(Integer node, Set<String> in, Set<String> out) {
+            Set<String> newIn = new HashSet<>(out);
+            newIn.remove(defs.get(node));
+            newIn.addAll(uses.getOrDefault(node, Set.of()));
+            return in.addAll(newIn);
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Integer> edge) {
+            return false;
+        }
+
+        @Override
+        public Set<String> transferEdge(Edge<Integer> edge, Set<String> nodeFact) {
+            return nodeFact;
+        }
+    }
+
+    /**
+     * Solves given analysis by iterating over all nodes (backwards)
+     * until no fact changes.
+     */
+    private static DataflowResult<Integer, Set<String>> solveIteratively(
+            LiveVars analysis, CFG<Integer> cfg) {
+        DataflowResult<Integer, Set<String>> result = new DataflowResult<>();
+        for (Integer node : cfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, analysis.newInitialFact());
+        }
+        List<Integer> nodes = new ArrayList<>(cfg.getNodes());
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = nodes.size() - 1; i >= 0; --i) {
+                Integer node = nodes.get(i);
+                if (cfg.isExit(node)) {
+                    continue;
+                }
+                Set<String> out = result.getOutFact(node);
+                cfg.getSuccsOf(node).forEach(succ ->
+                        analysis.meetInto(result.getInFact(succ), out));
+                changed |= analysis.transferNode(node, result.getInFact(node), out);
+            }
+        } while (changed);
+        return result;
+    }
+
+    private static void assertSameResult(
+            CFG<Integer> cfg, DataflowResult<Integer, Set<String>> expected,
+            DataflowResult<Integer, Set<String>> result, String message) {
+        for (Integer node : cfg) {
+            Assert.assertEquals("in fact of " + node + message,
+                    expected.getInFact(node), result.getInFact(node));
+            if (cfg.isExit(node)) {
+                // OUT[exit] is irrelevant to backward analyses
+                continue;
+            }
+            Assert.assertEquals("out fact of " + node + message,
+                    expected.getOutFact(node), result.getOutFact(node));
+        }
+    }
+
+    @Test
+    public void testBackwardLoop() {
+        // 0 -> 1: x = ... -> 2: y = x -> 3: x = y -> 4 (exit), and 3 -> 2
+        MockCFG cfg = new MockCFG(5);
+        cfg.addEdge(0, 1);
+        cfg.addEdge(1, 2);
+        cfg.addEdge(2, 3);
+        cfg.addEdge(3, 4);
+        cfg.addEdge(3, 2);
+        LiveVars analysis = new LiveVars(Map.of(1, "x", 2, "y", 3, "x"),
+                Map.of(2, Set.of("x"), 3, Set.of("y")));
+        DataflowResult<Integer, Set<String>> result =
+                new WorkListSolver<>(analysis).solve(cfg);
+        Assert.assertEquals(Set.of("x"), result.getOutFact(1));
+        Assert.assertEquals(Set.of("y"), result.getOutFact(2));
+        // x is live out of node 3 via the back edge
+        Assert.assertEquals(Set.of("x"), result.getOutFact(3));
+        assertSameResult(cfg, solveIteratively(analysis, cfg), result, "");
+    }
+
+    @Test
+    public void testBackwardRandomCFGs() {
+        Random random = new Random(0);
+        for (int i = 0; i < 300; ++i) {
+            MockCFG cfg = MockCFG.random(random, 3 + random.nextInt(20));
+            LiveVars analysis = randomLiveVars(random, cfg);
+            assertSameResult(cfg, solveIteratively(analysis, cfg),
+                    new WorkListSolver<>(analysis).solve(cfg), " in round " + i);
+        }
+    }
+
+    @Test
+    public void testCompactResults() throws InterruptedException {
+        Random random = new Random(1);
+        for (int i = 0; i < 100; ++i) {
+            MockCFG cfg = MockCFG.random(random, 3 + random.nextInt(20));
+            LiveVars analysis = randomLiveVars(random, cfg);
+            DataflowResult<Integer, Set<String>> expected =
+                    solveIteratively(analysis, cfg);
+            for (String kind : List.of("worklist", "block")) {
+                Solver<Integer, Set<String>> solver = Solver.makeSolver(analysis, kind);
+                DataflowResult<Integer, Set<String>> compact = solver.solve(cfg, true);
+                Assert.assertTrue(compact instanceof CompactDataflowResult);
+                // query the compact result from several threads at once
+                List<Thread> threads = new ArrayList<>();
+                List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+                for (int t = 0; t < 4; ++t) {
+                    String message = " of " + kind + " solver in round " + i;
+                    Thread thread = new Thread(() ->
+                            assertSameResult(cfg, expected, compact, message));
+                    thread.setUncaughtExceptionHandler((th, e) -> failures.add(e));
+                    threads.add(thread);
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                if (!failures.isEmpty()) {
+                    throw new AssertionError(failures.get(0));
+                }
+            }
+        }
+    }
+
+    private static LiveVars randomLiveVars(Random random, CFG<Integer> cfg) {
+        String[] vars = { "a", "b", "c", "d", "e" };
+        Map<Integer, String> defs = new HashMap<>();
+        Map<Integer, Set<String>> uses = new HashMap<>();
+        for (Integer node : cfg) {
+            if (random.nextBoolean()) {
+                defs.put(node, vars[random.nextInt(vars.length)]);
+            }
+            Set<String> used = new HashSet<>();
+            for (int j = random.nextInt(3); j > 0; --j) {
+                used.add(vars[random.nextInt(vars.length)]);
+            }
+            uses.put(node, used);
+        }
+        return new LiveVars(defs, uses);
+    }
+}
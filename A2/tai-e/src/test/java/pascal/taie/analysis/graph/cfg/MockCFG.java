@@ -0,0 +1,141 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * CFG for testing solvers without a program. The nodes are integers
+ * 0, 1, ..., n - 1, where node 0 is the entry and node n - 1 is the exit.
+ */
+public class MockCFG implements CFG<Integer> {
+
+    private final Map<Integer, Set<Edge<Integer>>> inEdges = new LinkedHashMap<>();
+
+    private final Map<Integer, Set<Edge<Integer>>> outEdges = new LinkedHashMap<>();
+
+    public MockCFG(int size) {
+        for (int i = 0; i < size; ++i) {
+            inEdges.put(i, new LinkedHashSet<>());
+            outEdges.put(i, new LinkedHashSet<>());
+        }
+    }
+
+    public void addEdge(int source, int target) {
+        Edge<Integer> edge = new Edge<>(Edge.Kind.FALL_THROUGH, source, target);
+        outEdges.get(source).add(edge);
+        inEdges.get(target).add(edge);
+    }
+
+    /**
+     * @return a random CFG of given size, which connects the nodes in
+     * a chain and adds random (forward and backward) jumps.
+     */
+    public static MockCFG random(Random random, int size) {
+        MockCFG cfg = new MockCFG(size);
+        for (int i = 0; i + 1 < size; ++i) {
+            cfg.addEdge(i, i + 1);
+        }
+        for (int i = random.nextInt(size); i > 0; --i) {
+            int source = 1 + random.nextInt(size - 2);
+            cfg.addEdge(source, 1 + random.nextInt(size - 1));
+        }
+        return cfg;
+    }
+
+    @Override
+    public IR getIR() {
+        return null;
+    }
+
+    @Override
+    public JMethod getMethod() {
+        return null;
+    }
+
+    @Override
+    public Integer getEntry() {
+        return 0;
+    }
+
+    @Override
+    public Integer getExit() {
+        return inEdges.size() - 1;
+    }
+
+    @Override
+    public boolean isEntry(Integer node) {
+        return node.equals(getEntry());
+    }
+
+    @Override
+    public boolean isExit(Integer node) {
+        return node.equals(getExit());
+    }
+
+    @Override
+    public Set<Edge<Integer>> getInEdgesOf(Integer node) {
+        return inEdges.get(node);
+    }
+
+    @Override
+    public Set<Edge<Integer>> getOutEdgesOf(Integer node) {
+        return outEdges.get(node);
+    }
+
+    @Override
+    public boolean hasNode(Integer node) {
+        return inEdges.containsKey(node);
+    }
+
+    @Override
+    public boolean hasEdge(Integer source, Integer target) {
+        return getSuccsOf(source).contains(target);
+    }
+
+    @Override
+    public Set<Integer> getPredsOf(Integer node) {
+        Set<Integer> preds = new LinkedHashSet<>();
+        inEdges.get(node).forEach(edge -> preds.add(edge.getSource()));
+        return preds;
+    }
+
+    @Override
+    public Set<Integer> getSuccsOf(Integer node) {
+        Set<Integer> succs = new LinkedHashSet<>();
+        outEdges.get(node).forEach(edge -> succs.add(edge.getTarget()));
+        return succs;
+    }
+
+    @Override
+    public Set<Integer> getNodes() {
+        return inEdges.keySet();
+    }
+}
@@ -25,20 +25,81 @@ package pascal.taie;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main class for assignments.
  */
 public class Assignment {
 
+    /**
+     * Option for the number of threads that run method analyses,
+     * which defaults to the parallelism of the common fork-join pool.
+     */
+    private static final String PARALLELISM = "--parallelism";
+
     public static void main(String[] args) {
         if (args.length > 0) {
             List<String> argList = new ArrayList<>();
             Collections.addAll(argList, "-pp", "-p", "plan.yml");
-            Collections.addAll(argList, args);
-            Main.main(argList.toArray(new String[0]));
+            int parallelism = 0;
+            for (int i = 0; i < args.length; ++i) {
+                if (args[i].equals(PARALLELISM)) {
+                    parallelism = i + 1 < args.length ?
+                            parseParallelism(args[++i]) : -1;
+                    if (parallelism < 0) {
+                        printUsage();
+                        return;
+                    }
+                } else {
+                    argList.add(args[i]);
+                }
+            }
+            run(argList.toArray(new String[0]), parallelism);
         } else {
-            System.out.println("Usage: -cp <CLASS_PATH> -m <CLASS_NAME>");
+            printUsage();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: [" + PARALLELISM + " <N>]" +
+                " -cp <CLASS_PATH> -m <CLASS_NAME>");
+    }
+
+    /**
+     * @return the number of threads given by the value of
+     * {@link #PARALLELISM}, or -1 if the value is not a positive integer.
+     */
+    static int parseParallelism(String value) {
+        try {
+            int parallelism = Integer.parseInt(value);
+            return parallelism > 0 ? parallelism : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs Tai-e with given arguments. Method analyses are fanned out
+     * over methods by parallel streams, which run in the fork-join pool
+     * of the thread that starts them, so running Tai-e inside a dedicated
+     * pool bounds the number of threads analyzing methods. Each method's
+     * results are stored in its own IR, and results are dumped in
+     * a deterministic order, regardless of the parallelism.
+     *
+     * @param parallelism number of threads, or non-positive number
+     *                    to use the common fork-join pool.
+     */
+    public static void run(String[] args, int parallelism) {
+        if (parallelism <= 0) {
+            Main.main(args);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> Main.main(args)).join();
+        } finally {
+            pool.shutdown();
         }
     }
 }
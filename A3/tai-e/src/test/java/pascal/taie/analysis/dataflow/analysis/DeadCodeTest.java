@@ -34,6 +34,13 @@ public class DeadCodeTest {
                 "-a", "constprop=edge-refine:false");
     }
 
+    void testParallelDCD(String inputClass) {
+        Tests.testInParallel(4, inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false");
+    }
+
     @Test
     public void testControlFlowUnreachable() {
         testDCD("ControlFlowUnreachable");
@@ -58,4 +65,14 @@ public class DeadCodeTest {
     public void testLoops() {
         testDCD("Loops");
     }
+
+    @Test
+    public void testParallelLoops() {
+        testParallelDCD("Loops");
+    }
+
+    @Test
+    public void testParallelUnreachableSwitchBranch() {
+        testParallelDCD("UnreachableSwitchBranch");
+    }
 }
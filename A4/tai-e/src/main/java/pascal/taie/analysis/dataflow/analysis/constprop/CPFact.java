@@ -23,11 +23,9 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.analysis.dataflow.fact.PersistentMap;
 import pascal.taie.ir.exp.Var;
 
-import java.util.Collections;
-import java.util.Map;
-
 /**
  * Represents data facts of constant propagation, which maps variables
  * to their lattice values.
@@ -37,15 +35,19 @@ import java.util.Map;
  * it represents that the lattice value of the variable is UNDEF;
  * moreover, if we set the lattice value of a variable to UNDEF,
  * it effectively removes the variable from the CPFact.
+ * <p>
+ * The mappings are kept in a {@link PersistentMap}, so that {@link #copy()}
+ * takes constant time and updates on a copy share structure with the
+ * original fact.
  */
 public class CPFact extends MapFact<Var, Value> {
 
     public CPFact() {
-        this(Collections.emptyMap());
+        this(new PersistentMap<>());
     }
 
-    private CPFact(Map<Var, Value> map) {
-        super(map);
+    private CPFact(PersistentMap<Var, Value> map) {
+        super(() -> map);
     }
 
     /**
@@ -71,6 +73,6 @@ public class CPFact extends MapFact<Var, Value> {
 
     @Override
     public CPFact copy() {
-        return new CPFact(this.map);
+        return new CPFact(((PersistentMap<Var, Value>) map).copy());
     }
 }
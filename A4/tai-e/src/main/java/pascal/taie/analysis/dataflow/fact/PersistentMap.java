@@ -0,0 +1,582 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Map} backed by a persistent hash array mapped trie.
+ * <p>
+ * The trie itself is immutable: {@link #put} and {@link #remove} build
+ * a new root that shares all untouched sub-tries with the old one and
+ * then swing this map to it. Hence {@link #copy()} takes O(1) time, and
+ * {@link #equals(Object)} skips every sub-trie shared by both maps,
+ * which makes comparing a fact with a slightly modified copy of itself
+ * proportional to the size of the difference.
+ * <p>
+ * This class is not thread-safe, but copies may be used by different
+ * threads independently.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Number of hash bits consumed by each level of the trie.
+     */
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Upper bound of the trie depth: seven bitmap levels
+     * (covering 32 hash bits) plus one collision level.
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private BitmapNode root;
+
+    private int size;
+
+    /**
+     * Sum of the hash codes of all entries, maintained incrementally.
+     */
+    private int hash;
+
+    /**
+     * The leaf displaced by the last put/remove on the trie, or null.
+     */
+    private Leaf displaced;
+
+    private EntrySet entrySet;
+
+    public PersistentMap() {
+        this(BitmapNode.EMPTY, 0, 0);
+    }
+
+    private PersistentMap(BitmapNode root, int size, int hash) {
+        this.root = root;
+        this.size = size;
+        this.hash = hash;
+    }
+
+    /**
+     * @return a copy of this map which shares the whole trie with this map.
+     */
+    public PersistentMap<K, V> copy() {
+        return new PersistentMap<>(root, size, hash);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root.find(spread(key), key, 0) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = root.find(spread(key), key, 0);
+        return leaf != null ? (V) leaf.getValue() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Leaf leaf = new Leaf(spread(key), key, value);
+        displaced = null;
+        BitmapNode newRoot = (BitmapNode) root.put(leaf, 0, this);
+        Leaf old = displaced;
+        displaced = null;
+        if (newRoot != root) {
+            root = newRoot;
+            if (old == null) {
+                ++size;
+                hash += leaf.hashCode();
+            } else {
+                hash += leaf.hashCode() - old.hashCode();
+            }
+        }
+        return old != null ? (V) old.getValue() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        displaced = null;
+        Object newRoot = root.remove(spread(key), key, 0, this);
+        Leaf old = displaced;
+        displaced = null;
+        if (old == null) {
+            return null;
+        }
+        root = BitmapNode.asRoot(newRoot);
+        --size;
+        hash -= old.hashCode();
+        return (V) old.getValue();
+    }
+
+    @Override
+    public void clear() {
+        root = BitmapNode.EMPTY;
+        size = 0;
+        hash = 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        EntrySet es = entrySet;
+        return es != null ? es : (entrySet = new EntrySet());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof PersistentMap<?, ?> that) {
+            // the trie shape only depends on the key set, so two maps
+            // can be compared structurally, skipping shared sub-tries
+            return root == that.root || (size == that.size
+                    && hash == that.hash && nodeEquals(root, that.root));
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static int spread(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitOf(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static boolean nodeEquals(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a instanceof Leaf la) {
+            return b instanceof Leaf lb && la.equals(lb);
+        }
+        if (a instanceof BitmapNode na) {
+            if (!(b instanceof BitmapNode nb) || na.bitmap != nb.bitmap) {
+                return false;
+            }
+            for (int i = 0; i < na.slots.length; ++i) {
+                if (!nodeEquals(na.slots[i], nb.slots[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // collision nodes hold their leaves in insertion order
+        CollisionNode ca = (CollisionNode) a;
+        if (!(b instanceof CollisionNode cb)
+                || ca.hash != cb.hash
+                || ca.slots.length != cb.slots.length) {
+            return false;
+        }
+        for (Object leaf : ca.slots) {
+            Leaf l = (Leaf) leaf;
+            if (!l.equals(cb.find(l.hash, l.getKey(), 0))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * An immutable key-value mapping, together with the spread hash of its key.
+     */
+    private static final class Leaf extends SimpleImmutableEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int hash;
+
+        private Leaf(int hash, Object key, Object value) {
+            super(key, value);
+            this.hash = hash;
+        }
+
+        private boolean hasKey(int hash, Object key) {
+            return this.hash == hash && Objects.equals(getKey(), key);
+        }
+    }
+
+    /**
+     * An immutable trie node. Each slot holds either a {@link Leaf}
+     * or a child {@link Node}.
+     */
+    private abstract static class Node {
+
+        final Object[] slots;
+
+        Node(Object[] slots) {
+            this.slots = slots;
+        }
+
+        abstract Leaf find(int hash, Object key, int shift);
+
+        /**
+         * @return the node with given leaf put, or this node if the
+         * mapping is already present. The replaced leaf (if any) is
+         * recorded in {@code owner.displaced}.
+         */
+        abstract Node put(Leaf leaf, int shift, PersistentMap<?, ?> owner);
+
+        /**
+         * @return the node (or its only remaining leaf or collision node)
+         * after removing given key, or this node if the key is absent. The removed leaf
+         * is recorded in {@code owner.displaced}.
+         */
+        abstract Object remove(int hash, Object key, int shift,
+                               PersistentMap<?, ?> owner);
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            super(slots);
+            this.bitmap = bitmap;
+        }
+
+        private int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Leaf find(int hash, Object key, int shift) {
+            int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = slots[indexOf(bit)];
+            if (slot instanceof Leaf leaf) {
+                return leaf.hasKey(hash, key) ? leaf : null;
+            }
+            return ((Node) slot).find(hash, key, shift + BITS);
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, PersistentMap<?, ?> owner) {
+            int bit = bitOf(leaf.hash, shift);
+            int index = indexOf(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = leaf;
+                System.arraycopy(slots, index, newSlots, index + 1,
+                        slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Leaf old) {
+                if (old.hasKey(leaf.hash, leaf.getKey())) {
+                    owner.displaced = old;
+                    if (Objects.equals(old.getValue(), leaf.getValue())) {
+                        return this;
+                    }
+                    newSlot = leaf;
+                } else {
+                    newSlot = merge(old, leaf, shift + BITS);
+                }
+            } else {
+                newSlot = ((Node) slot).put(leaf, shift + BITS, owner);
+                if (newSlot == slot) {
+                    return this;
+                }
+            }
+            Object[] newSlots = slots.clone();
+            newSlots[index] = newSlot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        @Override
+        Object remove(int hash, Object key, int shift, PersistentMap<?, ?> owner) {
+            int bit = bitOf(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = indexOf(bit);
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Leaf leaf) {
+                if (!leaf.hasKey(hash, key)) {
+                    return this;
+                }
+                owner.displaced = leaf;
+                newSlot = null;
+            } else {
+                newSlot = ((Node) slot).remove(hash, key, shift + BITS, owner);
+                if (newSlot == slot) {
+                    return this;
+                }
+            }
+            if (newSlot != null) {
+                // a lone leaf or collision node is lifted up to the
+                // parent, keeping the trie shape canonical
+                if (slots.length == 1 && !(newSlot instanceof BitmapNode)) {
+                    return newSlot;
+                }
+                Object[] newSlots = slots.clone();
+                newSlots[index] = newSlot;
+                return new BitmapNode(bitmap, newSlots);
+            }
+            if (slots.length == 1) {
+                return EMPTY;
+            }
+            if (slots.length == 2 && !(slots[1 - index] instanceof BitmapNode)) {
+                return slots[1 - index];
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index,
+                    slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+
+        /**
+         * @return the root node for the result of a removal on the root.
+         */
+        private static BitmapNode asRoot(Object node) {
+            if (node instanceof BitmapNode root) {
+                return root;
+            }
+            int hash = node instanceof Leaf leaf ? leaf.hash
+                    : ((CollisionNode) node).hash;
+            return new BitmapNode(bitOf(hash, 0), new Object[]{ node });
+        }
+
+        /**
+         * @return a sub-trie (at given shift) holding two leaves with different keys.
+         */
+        private static Node merge(Leaf l1, Leaf l2, int shift) {
+            if (l1.hash == l2.hash) {
+                return new CollisionNode(l1.hash, new Object[]{ l1, l2 });
+            }
+            int b1 = bitOf(l1.hash, shift);
+            int b2 = bitOf(l2.hash, shift);
+            if (b1 == b2) {
+                return new BitmapNode(b1,
+                        new Object[]{ merge(l1, l2, shift + BITS) });
+            }
+            return new BitmapNode(b1 | b2, Integer.compareUnsigned(b1, b2) < 0
+                    ? new Object[]{ l1, l2 } : new Object[]{ l2, l1 });
+        }
+    }
+
+    /**
+     * Holds the leaves whose keys have the same full hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] leaves) {
+            super(leaves);
+            this.hash = hash;
+        }
+
+        @Override
+        Leaf find(int hash, Object key, int shift) {
+            if (hash == this.hash) {
+                for (Object slot : slots) {
+                    Leaf leaf = (Leaf) slot;
+                    if (Objects.equals(leaf.getKey(), key)) {
+                        return leaf;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, PersistentMap<?, ?> owner) {
+            if (leaf.hash != hash) {
+                // the new key diverges from the colliding ones below
+                // this level, so push this node one level down
+                return new BitmapNode(bitOf(hash, shift), new Object[]{ this })
+                        .put(leaf, shift, owner);
+            }
+            for (int i = 0; i < slots.length; ++i) {
+                Leaf old = (Leaf) slots[i];
+                if (Objects.equals(old.getKey(), leaf.getKey())) {
+                    owner.displaced = old;
+                    if (Objects.equals(old.getValue(), leaf.getValue())) {
+                        return this;
+                    }
+                    Object[] newSlots = slots.clone();
+                    newSlots[i] = leaf;
+                    return new CollisionNode(hash, newSlots);
+                }
+            }
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, slots.length);
+            newSlots[slots.length] = leaf;
+            return new CollisionNode(hash, newSlots);
+        }
+
+        @Override
+        Object remove(int hash, Object key, int shift, PersistentMap<?, ?> owner) {
+            Leaf leaf = find(hash, key, shift);
+            if (leaf == null) {
+                return this;
+            }
+            owner.displaced = leaf;
+            if (slots.length == 2) {
+                return slots[0] == leaf ? slots[1] : slots[0];
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            int i = 0;
+            for (Object slot : slots) {
+                if (slot != leaf) {
+                    newSlots[i++] = slot;
+                }
+            }
+            return new CollisionNode(hash, newSlots);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Entry<?, ?> e) {
+                Leaf leaf = root.find(spread(e.getKey()), e.getKey(), 0);
+                return leaf != null && Objects.equals(leaf.getValue(), e.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public void clear() {
+            PersistentMap.this.clear();
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the trie, so that removals
+     * via {@link #remove()} do not disturb the traversal.
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private final Object[][] stack = new Object[MAX_DEPTH][];
+
+        private final int[] positions = new int[MAX_DEPTH];
+
+        private int depth;
+
+        private Leaf next;
+
+        private Leaf last;
+
+        private EntryIterator() {
+            stack[0] = root.slots;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] slots = stack[depth];
+                int pos = positions[depth];
+                if (pos == slots.length) {
+                    --depth;
+                    continue;
+                }
+                positions[depth] = pos + 1;
+                Object slot = slots[pos];
+                if (slot instanceof Leaf leaf) {
+                    next = leaf;
+                    return;
+                }
+                ++depth;
+                stack[depth] = ((Node) slot).slots;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return (Entry<K, V>) (Entry<?, ?>) last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            PersistentMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+}
@@ -25,14 +25,20 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
 import pascal.taie.analysis.graph.icfg.ICFGBuilder;
 import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.LazyICFG;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
 
 /**
  * Provides common functionalities for {@link InterDataflowAnalysis} implementations.
@@ -45,6 +51,16 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
         extends ProgramAnalysis
         implements InterDataflowAnalysis<Node, Fact> {
 
+    /**
+     * Default of option "summary-limit".
+     */
+    private static final int SUMMARY_LIMIT = 8;
+
+    /**
+     * Default of option "lazy-icfg-capacity".
+     */
+    private static final int LAZY_ICFG_CAPACITY = 4096;
+
     protected ICFG<Method, Node> icfg;
 
     protected InterSolver<Method, Node, Fact> solver;
@@ -119,11 +135,49 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
 
     @Override
     public Object analyze() {
-        icfg = World.get().getResult(ICFGBuilder.ID);
+        icfg = getICFG();
         initialize();
-        solver = new InterSolver<>(this, icfg);
-        DataflowResult<Node, Fact> result = solver.solve();
+        DataflowResult<Node, Fact> result;
+        if (getOptions().getBooleanOrDefault("summary", false)) {
+            result = new SummarySolver<>(this, icfg,
+                    getIntOption("summary-limit", SUMMARY_LIMIT)).solve();
+        } else if (getOptions().getBooleanOrDefault("parallel", false)) {
+            result = new ParallelInterSolver<>(this, icfg).solve();
+        } else {
+            solver = new InterSolver<>(this, icfg, newSchedule());
+            result = solver.solve();
+        }
         finish();
         return result;
     }
+
+    /**
+     * @return the schedule of the methods in the call graph, which
+     * the ICFG is built from.
+     */
+    private SCCSchedule<Method> newSchedule() {
+        CallGraph<Node, Method> callGraph = World.get().getResult(CallGraphBuilder.ID);
+        return new SCCSchedule<>(callGraph);
+    }
+
+    /**
+     * @return the ICFG built by {@link ICFGBuilder}, or a {@link LazyICFG}
+     * if option "lazy-icfg" is set or {@link ICFGBuilder} has not run.
+     * As the stock configuration of inter-constprop requires icfg, the
+     * latter only happens with a configuration that drops it.
+     */
+    @SuppressWarnings("unchecked")
+    private ICFG<Method, Node> getICFG() {
+        ICFG<Method, Node> built = World.get().getResult(ICFGBuilder.ID);
+        if (built == null || getOptions().getBooleanOrDefault("lazy-icfg", false)) {
+            CallGraph<Stmt, JMethod> callGraph = World.get().getResult(CallGraphBuilder.ID);
+            return (ICFG<Method, Node>) new LazyICFG(callGraph,
+                    getIntOption("lazy-icfg-capacity", LAZY_ICFG_CAPACITY));
+        }
+        return built;
+    }
+
+    private int getIntOption(String key, int defaultValue) {
+        return getOptions().get(key) != null ? getOptions().getInt(key) : defaultValue;
+    }
 }
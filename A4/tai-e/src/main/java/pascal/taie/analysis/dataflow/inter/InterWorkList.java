@@ -0,0 +1,230 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Sets.newSet;
+
+/**
+ * Work-list of {@link InterSolver}, which contains each node at most once
+ * and always yields the node of the highest priority.
+ * <p>
+ * The nodes are prioritized first by their methods, which are ordered
+ * top-down (callers first) along the SCCs of the call graph, and then by
+ * reverse postorder of the intra-procedural edges in their methods.
+ * Thus, the facts usually reach a node after all its predecessors have
+ * been processed. The ranks of the methods are given by an
+ * {@link SCCSchedule}, which needs no CFGs, while the nodes of a method
+ * are numbered when the method is first touched, i.e., when a node of it
+ * is first added, so the methods that are never reached are never
+ * numbered. The work-list itself is a bit set of the ranks of the methods
+ * with pending nodes, together with a bit set per method indexed by
+ * the numbers of its nodes.
+ */
+class InterWorkList<Method, Node> {
+
+    private final ICFG<Method, Node> icfg;
+
+    /**
+     * Ranks of the methods, callers first.
+     */
+    private final Map<Method, Integer> ranks = newMap();
+
+    /**
+     * Numbered nodes of the touched methods, by the ranks of the methods.
+     */
+    private final List<MethodNodes> methods = new ArrayList<>();
+
+    /**
+     * Numbers of the nodes within their methods. Like the numbered nodes,
+     * they are kept until solving finishes and only cover touched methods.
+     */
+    private final Map<Node, Integer> ids = newMap();
+
+    /**
+     * Ranks of the methods that have nodes in this work-list.
+     */
+    private final BitSet pending = new BitSet();
+
+    /**
+     * No bit below this index is set in {@link #pending}.
+     */
+    private int cursor = 0;
+
+    private class MethodNodes {
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        private final BitSet members = new BitSet();
+    }
+
+    /**
+     * @param schedule the schedule of the methods in {@code icfg}; methods
+     *                 not in it are ranked after the others
+     */
+    InterWorkList(ICFG<Method, Node> icfg, SCCSchedule<Method> schedule) {
+        this.icfg = icfg;
+        // SCCSchedule gives callees first, so we traverse its components
+        // backwards to rank the callers first
+        List<List<Method>> components = schedule.getComponents();
+        for (int i = components.size() - 1; i >= 0; --i) {
+            components.get(i).forEach(m -> ranks.put(m, ranks.size()));
+        }
+    }
+
+    private int getRank(Method method) {
+        Integer rank = ranks.get(method);
+        if (rank == null) {
+            rank = ranks.size();
+            ranks.put(method, rank);
+        }
+        return rank;
+    }
+
+    /**
+     * @return the numbered nodes of the method of given rank, which numbers
+     * them if the method has not been touched.
+     */
+    private MethodNodes getMethodNodes(Method method, int rank) {
+        while (methods.size() <= rank) {
+            methods.add(null);
+        }
+        MethodNodes nodes = methods.get(rank);
+        if (nodes == null) {
+            nodes = new MethodNodes();
+            methods.set(rank, nodes);
+            numberInReversePostOrder(method, nodes);
+        }
+        return nodes;
+    }
+
+    private void numberInReversePostOrder(Method method, MethodNodes nodes) {
+        List<Node> postOrder = new ArrayList<>();
+        Set<Node> visited = newSet();
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Iterator<Node>> succs = new ArrayDeque<>();
+        Node entry = icfg.getEntryOf(method);
+        visited.add(entry);
+        stack.push(entry);
+        succs.push(getLocalSuccsOf(entry));
+        while (!stack.isEmpty()) {
+            Iterator<Node> iter = succs.peek();
+            if (iter.hasNext()) {
+                Node succ = iter.next();
+                if (visited.add(succ)) {
+                    stack.push(succ);
+                    succs.push(getLocalSuccsOf(succ));
+                }
+            } else {
+                succs.pop();
+                postOrder.add(stack.pop());
+            }
+        }
+        for (int i = postOrder.size() - 1; i >= 0; --i) {
+            number(postOrder.get(i), nodes);
+        }
+    }
+
+    /**
+     * @return the successors of given node via intra-procedural edges.
+     */
+    private Iterator<Node> getLocalSuccsOf(Node node) {
+        return icfg.getOutEdgesOf(node)
+                .stream()
+                .filter(e -> !(e instanceof CallEdge) && !(e instanceof ReturnEdge))
+                .map(ICFGEdge::getTarget)
+                .iterator();
+    }
+
+    private int number(Node node, MethodNodes nodes) {
+        int id = nodes.nodes.size();
+        ids.put(node, id);
+        nodes.nodes.add(node);
+        return id;
+    }
+
+    /**
+     * Adds given node to this work-list.
+     *
+     * @return true if the node was not in this work-list.
+     */
+    boolean add(Node node) {
+        Method method = icfg.getContainingMethodOf(node);
+        int rank = getRank(method);
+        MethodNodes nodes = getMethodNodes(method, rank);
+        Integer id = ids.get(node);
+        if (id == null) {
+            // unreachable from the entry of its method
+            id = number(node, nodes);
+        }
+        if (nodes.members.get(id)) {
+            return false;
+        }
+        nodes.members.set(id);
+        pending.set(rank);
+        cursor = Math.min(cursor, rank);
+        return true;
+    }
+
+    /**
+     * Removes and returns the node of the highest priority.
+     *
+     * @return the removed node, or null if this work-list is empty.
+     */
+    @Nullable
+    Node poll() {
+        int rank = pending.nextSetBit(cursor);
+        if (rank < 0) {
+            cursor = methods.size();
+            return null;
+        }
+        cursor = rank;
+        MethodNodes nodes = methods.get(rank);
+        int id = nodes.members.nextSetBit(0);
+        nodes.members.clear(id);
+        if (nodes.members.isEmpty()) {
+            pending.clear(rank);
+        }
+        return nodes.nodes.get(id);
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+}
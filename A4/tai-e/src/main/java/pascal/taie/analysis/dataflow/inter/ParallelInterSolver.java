@@ -0,0 +1,224 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.util.collection.SetQueue;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
+import static pascal.taie.util.collection.Sets.newSet;
+
+/**
+ * Solver for inter-procedural data-flow analysis, which solves independent
+ * parts of the ICFG in parallel.
+ * <p>
+ * The nodes reachable from the entry methods are first collected, and
+ * partitioned by the SCCs of the call relation among their containing
+ * methods. Each SCC is solved to a local fixed point by its own work-list.
+ * The SCCs are processed in waves by an {@link SCCSchedule} of the reverse
+ * call relation, i.e., top-down: the SCCs in the same batch do not call
+ * each other, thus no ICFG edge connects them and they are solved in
+ * parallel by an executor. When the out fact of a node changes,
+ * the successors in other SCCs (via call and return edges) are posted to
+ * the mailboxes of these SCCs, which are drained when the SCCs are solved
+ * next time. The waves are repeated until all mailboxes are empty.
+ * <p>
+ * Each SCC keeps the facts of its own nodes, and as the SCCs that read
+ * the facts of a node are never solved together with the SCC that writes
+ * them, the facts need no synchronization. However, the transfer functions
+ * of the analysis must be safe to be called concurrently for nodes of
+ * different methods. For monotone analyses, the result is identical to
+ * that of {@link InterSolver}, as both compute the same (least) fixed point.
+ */
+class ParallelInterSolver<Method, Node, Fact>
+        extends AbstractInterSolver<Method, Node, Fact> {
+
+    private final Map<Node, Unit> units = newMap();
+
+    private final Map<Method, Unit> methodUnits = newMap();
+
+    /**
+     * Schedule of the reverse call relation, whose bottom-up order is
+     * the top-down order of the calls.
+     */
+    private SCCSchedule<Method> schedule;
+
+    ParallelInterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                        ICFG<Method, Node> icfg) {
+        super(analysis, icfg);
+    }
+
+    DataflowResult<Node, Fact> solve() {
+        initialize();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            doSolve(executor);
+        } finally {
+            executor.shutdown();
+        }
+        return collectResult();
+    }
+
+    private void initialize() {
+        // ordered, so that the partition is deterministic
+        Map<Method, List<Node>> methodNodes = new LinkedHashMap<>();
+        Map<Method, Set<Method>> callers = newMap();
+        Set<Node> reached = newSet();
+        Deque<Node> stack = new ArrayDeque<>();
+        for (Node entry : boundaryNodes) {
+            reached.add(entry);
+            stack.push(entry);
+        }
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            Method method = icfg.getContainingMethodOf(node);
+            methodNodes.computeIfAbsent(method, m -> new ArrayList<>()).add(node);
+            if (icfg.isCallSite(node)) {
+                icfg.getCalleesOf(node).forEach(callee -> callers
+                        .computeIfAbsent(callee, m -> newHybridSet())
+                        .add(method));
+            }
+            for (Node succ : icfg.getSuccsOf(node)) {
+                if (reached.add(succ)) {
+                    stack.push(succ);
+                }
+            }
+        }
+        schedule = new SCCSchedule<>(methodNodes.keySet(),
+                m -> callers.getOrDefault(m, Set.of()));
+        for (List<Method> component : schedule.getComponents()) {
+            Unit unit = new Unit();
+            for (Method method : component) {
+                methodUnits.put(method, unit);
+                methodNodes.get(method).forEach(node -> units.put(node, unit));
+            }
+        }
+        for (Node node : boundaryNodes) {
+            units.get(node).outFacts.put(node, analysis.newBoundaryFact(node));
+            for (Node succ : icfg.getSuccsOf(node)) {
+                units.get(succ).post(succ);
+            }
+        }
+    }
+
+    private void doSolve(ExecutorService executor) {
+        do {
+            schedule.process(component ->
+                    methodUnits.get(component.get(0)).solve(), executor);
+        } while (methodUnits.values().stream().anyMatch(Unit::hasMail));
+    }
+
+    private DataflowResult<Node, Fact> collectResult() {
+        InterDataflowResult<Node, Fact> result = new InterDataflowResult<>(analysis);
+        methodUnits.values().stream().distinct().forEach(unit -> {
+            unit.inFacts.forEach(result::setInFact);
+            unit.outFacts.forEach(result::setOutFact);
+        });
+        return result;
+    }
+
+    @Override
+    protected Fact getInFact(Node node) {
+        return units.get(node).inFacts.computeIfAbsent(
+                node, n -> analysis.newInitialFact());
+    }
+
+    @Override
+    protected Fact getOutFact(Node node) {
+        return units.get(node).outFacts.computeIfAbsent(
+                node, n -> analysis.newInitialFact());
+    }
+
+    @Override
+    @Nullable
+    protected Fact getReachedOutFact(Node node) {
+        Unit unit = units.get(node);
+        return unit == null ? null : unit.outFacts.get(node);
+    }
+
+    /**
+     * The nodes of an SCC of methods, which are solved together.
+     */
+    private class Unit {
+
+        private final Map<Node, Fact> inFacts = newMap();
+
+        /**
+         * Out facts of the nodes of this unit that have been reached.
+         * They are read by the units of the successors.
+         */
+        private final Map<Node, Fact> outFacts = newMap();
+
+        private final Queue<Node> workList = new SetQueue<>();
+
+        /**
+         * Nodes of this unit whose predecessors in other units have changed.
+         * It may be written by the units solved in parallel.
+         */
+        private final Queue<Node> mailbox = new ConcurrentLinkedQueue<>();
+
+        private void post(Node node) {
+            mailbox.add(node);
+        }
+
+        private boolean hasMail() {
+            return !mailbox.isEmpty();
+        }
+
+        private void solve() {
+            Node node;
+            while ((node = mailbox.poll()) != null) {
+                workList.add(node);
+            }
+            while ((node = workList.poll()) != null) {
+                if (processNode(node)) {
+                    for (Node succ : icfg.getSuccsOf(node)) {
+                        Unit unit = units.get(succ);
+                        if (unit == this) {
+                            workList.add(succ);
+                        } else {
+                            unit.post(succ);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
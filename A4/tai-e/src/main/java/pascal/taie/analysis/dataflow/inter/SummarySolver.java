@@ -0,0 +1,405 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.CallEdge;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.ReturnEdge;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.SetQueue;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Maps.newTwoKeyMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
+
+/**
+ * Summary-based solver for inter-procedural data-flow analysis.
+ * <p>
+ * Instead of propagating facts through the whole ICFG, this solver
+ * analyzes each method separately for each distinct fact flowing into its
+ * entry, and memoizes the result as a summary of the method, i.e., the map
+ * from the entry fact to the fact at the exit. At a call site, the entry
+ * fact of each callee is computed by the call edge, and the summary of
+ * the callee for that fact (if any) is reused, no matter which call site
+ * it was computed for. A summary that is not yet complete (e.g., under
+ * recursion) is used as is, and its callers are processed again once it
+ * changes.
+ * <p>
+ * The entry fact passed by a call site grows as its caller is processed,
+ * so the summary used for the previous entry fact becomes stale. If no
+ * other call site uses it, the stale summary is grown into the summary
+ * for the new entry fact, which continues from its current facts;
+ * otherwise, it is released by the call site, and retired (i.e., dropped
+ * together with the summaries that only it uses) once no call site uses
+ * it. Thus, the intermediate entry facts do not use up the limit below.
+ * <p>
+ * To guarantee termination for lattices of unbounded width, each method
+ * has at most {@link #maxSummaries} summaries; further entry facts are
+ * merged into one summary of the method.
+ * <p>
+ * The result of a node is the meet of its facts over all summaries of
+ * its method, which is at least as precise as the result of
+ * {@link InterSolver}. Only forward analyses are supported.
+ * <p>
+ * Like {@link InterSolver}, each summary only touches the nodes reached
+ * from the entry of its method, and creates their facts when they are
+ * first reached.
+ */
+class SummarySolver<Method, Node, Fact> {
+
+    private final InterDataflowAnalysis<Node, Fact> analysis;
+
+    private final ICFG<Method, Node> icfg;
+
+    private final int maxSummaries;
+
+    /**
+     * Entry nodes of the entry methods, whose facts are the boundary facts.
+     */
+    private Set<Node> boundaryNodes;
+
+    /**
+     * Summaries of each method, indexed by their entry facts.
+     */
+    private final Map<Method, Map<Fact, Summary>> summaries = newMap();
+
+    /**
+     * Summary of each method into which the entry facts beyond
+     * the limit are merged.
+     */
+    private final Map<Method, Summary> mergedSummaries = newMap();
+
+    /**
+     * Summaries that have nodes to process.
+     */
+    private final Queue<Summary> workList = new SetQueue<>();
+
+    /**
+     * Analysis of a method for an entry fact, whose fact at the exit node
+     * is the summary of the method for that entry fact.
+     */
+    private class Summary {
+
+        private final Method method;
+
+        /**
+         * The entry fact by which this summary is indexed in
+         * {@link #summaries}, or null if this is a merged summary.
+         */
+        @Nullable
+        private Fact key;
+
+        private final Node entry;
+
+        private final Node exit;
+
+        private final Map<Node, Fact> inFacts = newMap();
+
+        /**
+         * Out facts of the nodes reached in this summary.
+         */
+        private final Map<Node, Fact> outFacts = newMap();
+
+        private final Queue<Node> nodes = new SetQueue<>();
+
+        /**
+         * Return sites that use this summary, grouped by their summaries.
+         */
+        private final Map<Summary, Set<Node>> returnSites = newMap();
+
+        /**
+         * Summaries used by this summary, by the call sites and callees.
+         */
+        private final TwoKeyMap<Node, Method, Summary> callees = newTwoKeyMap();
+
+        private boolean retired = false;
+
+        private Summary(Method method, Fact entryFact) {
+            this.method = method;
+            entry = icfg.getEntryOf(method);
+            exit = icfg.getExitOf(method);
+            if (boundaryNodes.contains(entry)) {
+                outFacts.put(entry, analysis.newBoundaryFact(entry));
+                addLocalSuccsOf(entry);
+            } else {
+                analysis.meetInto(entryFact, getInFact(entry));
+                addNode(entry);
+            }
+        }
+
+        private Fact getInFact(Node node) {
+            return inFacts.computeIfAbsent(node, n -> analysis.newInitialFact());
+        }
+
+        private void addNode(Node node) {
+            if (nodes.add(node)) {
+                workList.add(this);
+            }
+        }
+
+        /**
+         * Meets given fact into the entry fact of this summary.
+         */
+        private void meetEntry(Fact entryFact) {
+            Fact entryIn = getInFact(entry);
+            Fact merged = copy(entryIn);
+            analysis.meetInto(entryFact, merged);
+            if (!merged.equals(entryIn)) {
+                analysis.meetInto(entryFact, entryIn);
+                addNode(entry);
+            }
+        }
+
+        /**
+         * @return true if given return site in given caller summary is
+         * the only one that uses this summary.
+         */
+        private boolean isOnlyUsedBy(Summary caller, Node returnSite) {
+            Set<Node> sites = returnSites.get(caller);
+            return returnSites.size() == 1 && sites != null
+                    && sites.size() == 1 && sites.contains(returnSite);
+        }
+
+        /**
+         * Adds the successors of given node via intra-procedural edges.
+         */
+        private void addLocalSuccsOf(Node node) {
+            for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(node)) {
+                if (!(edge instanceof CallEdge) && !(edge instanceof ReturnEdge)) {
+                    addNode(edge.getTarget());
+                }
+            }
+        }
+    }
+
+    SummarySolver(InterDataflowAnalysis<Node, Fact> analysis,
+                  ICFG<Method, Node> icfg, int maxSummaries) {
+        if (!analysis.isForward()) {
+            throw new AnalysisException(
+                    "SummarySolver does not support backward analyses");
+        }
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.maxSummaries = maxSummaries;
+    }
+
+    DataflowResult<Node, Fact> solve() {
+        boundaryNodes = icfg.entryMethods()
+                .map(icfg::getEntryOf)
+                .collect(Collectors.toSet());
+        icfg.entryMethods().forEach(m ->
+                getSummary(m, analysis.newBoundaryFact(icfg.getEntryOf(m))));
+        while (!workList.isEmpty()) {
+            Summary summary = workList.poll();
+            if (!summary.retired) {
+                process(summary);
+            }
+        }
+        return collectResult();
+    }
+
+    /**
+     * @return the summary of given method for given entry fact.
+     * The summary is created if it does not exist.
+     */
+    private Summary getSummary(Method method, Fact entryFact) {
+        Map<Fact, Summary> methodSummaries = summaries.computeIfAbsent(
+                method, m -> newMap());
+        Summary summary = methodSummaries.get(entryFact);
+        if (summary != null) {
+            return summary;
+        }
+        if (methodSummaries.size() < maxSummaries) {
+            summary = new Summary(method, entryFact);
+            // the entry fact may be the out fact of the call site,
+            // which changes later, thus we index the summary by a copy
+            summary.key = copy(entryFact);
+            methodSummaries.put(summary.key, summary);
+            return summary;
+        }
+        summary = mergedSummaries.get(method);
+        if (summary == null) {
+            summary = new Summary(method, entryFact);
+            mergedSummaries.put(method, summary);
+        } else if (!boundaryNodes.contains(summary.entry)) {
+            summary.meetEntry(entryFact);
+        }
+        return summary;
+    }
+
+    /**
+     * @return the summary of given callee for given entry fact, which is
+     * used by given call site (with given return site) in given caller.
+     * The summary previously used by the call site is grown into the new
+     * summary if possible, and released otherwise.
+     */
+    private Summary getCalleeSummary(Summary caller, Node callSite,
+                                     Node returnSite, Method callee, Fact entryFact) {
+        Summary used = caller.callees.get(callSite, callee);
+        if (used != null && entryFact.equals(used.key)) {
+            return used;
+        }
+        Map<Fact, Summary> methodSummaries = summaries.get(callee);
+        if (used != null && used.key != null
+                && !boundaryNodes.contains(used.entry)
+                && !methodSummaries.containsKey(entryFact)
+                && used.isOnlyUsedBy(caller, returnSite)) {
+            methodSummaries.remove(used.key);
+            used.key = copy(entryFact);
+            methodSummaries.put(used.key, used);
+            used.meetEntry(entryFact);
+            return used;
+        }
+        Summary summary = getSummary(callee, entryFact);
+        caller.callees.put(callSite, callee, summary);
+        summary.returnSites.computeIfAbsent(caller, s -> newHybridSet())
+                .add(returnSite);
+        if (used != null && used != summary) {
+            Set<Node> sites = used.returnSites.get(caller);
+            sites.remove(returnSite);
+            if (sites.isEmpty()) {
+                used.returnSites.remove(caller);
+            }
+            retireIfUnused(used);
+        }
+        return summary;
+    }
+
+    /**
+     * Retires given summary if no call site uses it, and then the
+     * summaries that were only used by it. The summaries of the entry
+     * methods and the merged summaries are never retired.
+     */
+    private void retireIfUnused(Summary summary) {
+        if (summary.retired || summary.key == null
+                || boundaryNodes.contains(summary.entry)
+                || !summary.returnSites.isEmpty()) {
+            return;
+        }
+        summary.retired = true;
+        summaries.get(summary.method).remove(summary.key);
+        summary.callees.values().forEach(callee -> {
+            callee.returnSites.remove(summary);
+            retireIfUnused(callee);
+        });
+    }
+
+    private Fact copy(Fact fact) {
+        Fact copy = analysis.newInitialFact();
+        analysis.meetInto(fact, copy);
+        return copy;
+    }
+
+    private void process(Summary summary) {
+        // the summary may be retired by the call sites it processes
+        while (!summary.retired && !summary.nodes.isEmpty()) {
+            Node node = summary.nodes.poll();
+            if (boundaryNodes.contains(node)) {
+                continue;
+            }
+            boolean reached = summary.outFacts.containsKey(node);
+            Fact in = summary.getInFact(node);
+            if (!node.equals(summary.entry)) {
+                for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+                    if (edge instanceof ReturnEdge<Node> returnEdge) {
+                        meetReturn(summary, returnEdge, in);
+                    } else {
+                        // predecessors that have not been reached yet still
+                        // have the initial facts, which are skipped
+                        Fact predOut = summary.outFacts.get(edge.getSource());
+                        if (predOut != null) {
+                            analysis.meetInto(analysis.transferEdge(edge, predOut), in);
+                        }
+                    }
+                }
+            }
+            Fact out = summary.outFacts.computeIfAbsent(
+                    node, n -> analysis.newInitialFact());
+            if (analysis.transferNode(node, in, out) || !reached) {
+                summary.addLocalSuccsOf(node);
+                if (node.equals(summary.exit)) {
+                    summary.returnSites.forEach((caller, returnSites) ->
+                            returnSites.forEach(caller::addNode));
+                }
+            }
+        }
+    }
+
+    /**
+     * Meets the fact returned via given return edge into given fact
+     * of the return site, by applying the summary of the callee for
+     * the fact passed by the corresponding call edge.
+     */
+    private void meetReturn(Summary caller, ReturnEdge<Node> returnEdge, Fact in) {
+        if (caller.retired) {
+            // retired when meeting the facts of another callee
+            return;
+        }
+        Node callSite = returnEdge.getCallSite();
+        Fact callSiteOut = caller.outFacts.get(callSite);
+        if (callSiteOut == null) {
+            // the call site has not been reached in this summary
+            return;
+        }
+        Node calleeEntry = icfg.getEntryOf(icfg.getContainingMethodOf(
+                returnEdge.getSource()));
+        for (ICFGEdge<Node> edge : icfg.getOutEdgesOf(callSite)) {
+            if (edge instanceof CallEdge<Node> callEdge
+                    && callEdge.getTarget().equals(calleeEntry)) {
+                Fact entryFact = analysis.transferEdge(callEdge, callSiteOut);
+                Summary callee = getCalleeSummary(caller, callSite,
+                        returnEdge.getTarget(),
+                        icfg.getContainingMethodOf(calleeEntry), entryFact);
+                Fact calleeExitOut = callee.outFacts.get(callee.exit);
+                if (calleeExitOut != null) {
+                    analysis.meetInto(analysis.transferEdge(
+                            returnEdge, calleeExitOut), in);
+                }
+            }
+        }
+    }
+
+    private DataflowResult<Node, Fact> collectResult() {
+        InterDataflowResult<Node, Fact> result = new InterDataflowResult<>(analysis);
+        summaries.values().forEach(methodSummaries ->
+                methodSummaries.values().forEach(s -> collect(s, result)));
+        mergedSummaries.values().forEach(s -> collect(s, result));
+        return result;
+    }
+
+    private void collect(Summary summary, DataflowResult<Node, Fact> result) {
+        summary.inFacts.forEach((node, fact) ->
+                analysis.meetInto(fact, result.getInFact(node)));
+        summary.outFacts.forEach((node, fact) ->
+                analysis.meetInto(fact, result.getOutFact(node)));
+    }
+}
@@ -27,9 +27,12 @@ import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Sets;
 import pascal.taie.util.collection.Views;
 
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,12 +48,66 @@ import java.util.stream.Stream;
 public abstract class AbstractCallGraph<CallSite, Method>
         implements CallGraph<CallSite, Method> {
 
-    protected final MultiMap<CallSite, Edge<CallSite, Method>> callSiteToEdges = Maps.newMultiMap();
-    protected final MultiMap<Method, Edge<CallSite, Method>> calleeToEdges = Maps.newMultiMap();
-    protected final Map<CallSite, Method> callSiteToContainer = Maps.newMap();
-    protected final MultiMap<Method, CallSite> callSitesIn = Maps.newMultiMap(Sets::newHybridOrderedSet);
-    protected final Set<Method> entryMethods = Sets.newSet();
-    protected final Set<Method> reachableMethods = Sets.newSet();
+    protected final MultiMap<CallSite, Edge<CallSite, Method>> callSiteToEdges;
+    protected final MultiMap<Method, Edge<CallSite, Method>> calleeToEdges;
+    protected final Map<CallSite, Method> callSiteToContainer;
+    protected final MultiMap<Method, CallSite> callSitesIn;
+    protected final Set<Method> entryMethods;
+    protected final Set<Method> reachableMethods;
+
+    /**
+     * Caches of the adjacency sets derived from the edges, which are
+     * computed on first query, so that graph algorithms querying them
+     * repeatedly do not allocate. The edge sets are views backed by
+     * the edges of this call graph, so only the view objects are cached,
+     * while the successors and predecessors are copied into sets,
+     * as a method may call another one at multiple call sites.
+     * Subclasses must call {@link #clearCaches()} whenever they change
+     * the edges.
+     * <p>
+     * The caches are only used once {@link #setCachesEnabled(boolean)
+     * enabled}, which is done after the construction has finished.
+     * Before that, the sets are computed on each query, so that queries
+     * racing with a (parallel) construction never store stale sets.
+     * The call graph must not be changed concurrently with queries
+     * while caching is enabled.
+     */
+    private final Map<Method, Set<Method>> succsCache = Maps.newConcurrentMap();
+    private final Map<Method, Set<Method>> predsCache = Maps.newConcurrentMap();
+    private final Map<Method, Set<MethodEdge<CallSite, Method>>> outEdgesCache
+            = Maps.newConcurrentMap();
+    private final Map<Method, Set<MethodEdge<CallSite, Method>>> inEdgesCache
+            = Maps.newConcurrentMap();
+
+    /**
+     * Whether the adjacency sets are cached.
+     */
+    private volatile boolean cachesEnabled;
+
+    protected AbstractCallGraph() {
+        this(Maps.newMultiMap(), Maps.newMultiMap(), Maps.newMap(),
+                Maps.newMultiMap(Sets::newHybridOrderedSet),
+                Sets.newSet(), Sets.newSet());
+    }
+
+    /**
+     * Creates a call graph backed by given data structures, which allows
+     * subclasses to provide specialized (e.g., thread-safe) ones.
+     */
+    protected AbstractCallGraph(
+            MultiMap<CallSite, Edge<CallSite, Method>> callSiteToEdges,
+            MultiMap<Method, Edge<CallSite, Method>> calleeToEdges,
+            Map<CallSite, Method> callSiteToContainer,
+            MultiMap<Method, CallSite> callSitesIn,
+            Set<Method> entryMethods,
+            Set<Method> reachableMethods) {
+        this.callSiteToEdges = callSiteToEdges;
+        this.calleeToEdges = calleeToEdges;
+        this.callSiteToContainer = callSiteToContainer;
+        this.callSitesIn = callSitesIn;
+        this.entryMethods = entryMethods;
+        this.reachableMethods = reachableMethods;
+    }
 
     @Override
     public Set<CallSite> getCallersOf(Method callee) {
@@ -64,9 +121,7 @@ public abstract class AbstractCallGraph<CallSite, Method>
 
     @Override
     public Set<Method> getCalleesOfM(Method caller) {
-        return callSitesIn(caller)
-                .flatMap(cs -> getCalleesOf(cs).stream())
-                .collect(Collectors.toUnmodifiableSet());
+        return getSuccsOf(caller);
     }
 
     @Override
@@ -133,34 +188,115 @@ public abstract class AbstractCallGraph<CallSite, Method>
 
     @Override
     public Set<MethodEdge<CallSite, Method>> getInEdgesOf(Method method) {
-        return getCallersOf(method)
-                .stream()
-                .map(cs -> new MethodEdge<>(getContainerOf(cs), method, cs))
-                .collect(Collectors.toUnmodifiableSet());
+        // each call site calls the method at most once,
+        // so the mapped edges are distinct
+        return getCached(inEdgesCache, method, m -> Views.toMappedSet(
+                getCallersOf(m),
+                cs -> new MethodEdge<>(getContainerOf(cs), m, cs)));
     }
 
     @Override
     public Set<MethodEdge<CallSite, Method>> getOutEdgesOf(Method method) {
-        return callSitesIn(method)
-                .flatMap(cs -> getCalleesOf(cs)
-                        .stream()
-                        .map(callee -> new MethodEdge<>(method, callee, cs)))
-                .collect(Collectors.toUnmodifiableSet());
+        return getCached(outEdgesCache, method, OutEdgeView::new);
     }
 
     @Override
     public Set<Method> getPredsOf(Method node) {
-        return getCallersOf(node)
+        return getCached(predsCache, node, m -> getCallersOf(m)
                 .stream()
                 .map(this::getContainerOf)
-                .collect(Collectors.toUnmodifiableSet());
+                .collect(Collectors.toUnmodifiableSet()));
     }
 
     @Override
     public Set<Method> getSuccsOf(Method node) {
-        return callSitesIn(node)
+        return getCached(succsCache, node, m -> callSitesIn(m)
                 .flatMap(cs -> getCalleesOf(cs).stream())
-                .collect(Collectors.toUnmodifiableSet());
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+
+    /**
+     * View of the edges out of the call sites in a method.
+     */
+    private class OutEdgeView extends AbstractSet<MethodEdge<CallSite, Method>> {
+
+        private final Method caller;
+
+        private OutEdgeView(Method caller) {
+            this.caller = caller;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof MethodEdge<?, ?> edge
+                    && caller.equals(edge.caller())) {
+                for (CallSite callSite : getCallSitesIn(caller)) {
+                    if (callSite.equals(edge.callSite())) {
+                        return getCalleesOf(callSite).contains(edge.callee());
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<MethodEdge<CallSite, Method>> iterator() {
+            return callSitesIn(caller)
+                    .flatMap(cs -> getCalleesOf(cs)
+                            .stream()
+                            .map(callee -> new MethodEdge<>(caller, callee, cs)))
+                    .iterator();
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (CallSite callSite : getCallSitesIn(caller)) {
+                size += getCalleesOf(callSite).size();
+            }
+            return size;
+        }
+    }
+
+    private <V> Set<V> getCached(Map<Method, Set<V>> cache, Method method,
+                                 Function<Method, Set<V>> compute) {
+        if (!cachesEnabled) {
+            return compute.apply(method);
+        }
+        Set<V> result = cache.get(method);
+        if (result == null) {
+            result = cache.computeIfAbsent(method, compute);
+        }
+        return result;
+    }
+
+    /**
+     * Enables or disables caching of the adjacency sets. Builders enable it
+     * once the construction has finished, and may disable it while making
+     * many changes to the edges, so that the changes need not clear the caches.
+     */
+    void setCachesEnabled(boolean enabled) {
+        cachesEnabled = enabled;
+        if (!enabled) {
+            doClearCaches();
+        }
+    }
+
+    /**
+     * Clears the cached adjacency sets. This should be called whenever
+     * the edges of this call graph change.
+     */
+    protected void clearCaches() {
+        if (cachesEnabled) {
+            doClearCaches();
+        }
+    }
+
+    private void doClearCaches() {
+        succsCache.clear();
+        predsCache.clear();
+        outEdgesCache.clear();
+        inEdgesCache.clear();
     }
 
     @Override
@@ -29,37 +29,367 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.MultiMap;
 
+import javax.annotation.Nullable;
 import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.stream.Collectors;
+
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
+import static pascal.taie.util.collection.Sets.newSet;
 
 /**
  * Implementation of the CHA algorithm.
  */
 class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
+    /**
+     * Whether to resolve the call sites of reachable methods in parallel.
+     */
+    private final boolean parallel;
+
+    /**
+     * Profiler of call graph construction, or null if it is not profiled.
+     * It is detached when the call graph is updated, as the construction
+     * has finished by then.
+     */
+    @Nullable
+    private CallGraphProfiler profiler;
+
     private ClassHierarchy hierarchy;
 
+    /**
+     * Caches the (immutable) targets of virtual and interface calls.
+     * As {@link MethodRef}s are interned, call sites that invoke the same
+     * method share the result, so the resolution cost is paid once per
+     * distinct method reference instead of once per call site.
+     */
+    private final Map<MethodRef, Set<JMethod>> virtualTargets = newConcurrentMap();
+
+    /**
+     * Resolved call sites grouped by their method references, which allows
+     * {@link #update} to find the call sites affected by changed classes.
+     */
+    private final MultiMap<MethodRef, Invoke> callSitesByRef = new ConcurrentMultiMap<>();
+
+    /**
+     * The method references in {@link #callSitesByRef}, grouped by
+     * (the current versions of) their declaring classes, which allows
+     * {@link #update} to find the method references affected by
+     * changed classes without scanning all of them.
+     */
+    private final MultiMap<JClass, MethodRef> refsByDeclaringClass = new ConcurrentMultiMap<>();
+
+    /**
+     * Classes removed by {@link #update}. The IR of unchanged methods may
+     * still refer to them, so they are mapped to their replacements
+     * (if any) on resolution.
+     */
+    private final Set<JClass> removedClasses = newSet();
+
+    /**
+     * Map from removed classes to the added classes of the same names.
+     */
+    private final Map<JClass, JClass> replacements = newMap();
+
+    CHABuilder() {
+        this(false);
+    }
+
+    CHABuilder(boolean parallel) {
+        this(parallel, null);
+    }
+
+    CHABuilder(boolean parallel, @Nullable CallGraphProfiler profiler) {
+        this.parallel = parallel;
+        this.profiler = profiler;
+    }
+
     @Override
     public CallGraph<Invoke, JMethod> build() {
         hierarchy = World.get().getClassHierarchy();
-        return buildCallGraph(World.get().getMainMethod());
+        JMethod entry = World.get().getMainMethod();
+        return parallel ? buildCallGraphInParallel(entry) : buildCallGraph(entry);
     }
 
     private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
         DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.setProfiler(profiler);
+        callGraph.addEntryMethod(entry);
+        Queue<JMethod> workList = new ArrayDeque<>();
+        workList.add(entry);
+        processWorkList(callGraph, workList);
+        return callGraph;
+    }
+
+    private void processWorkList(DefaultCallGraph callGraph, Queue<JMethod> workList) {
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            if (callGraph.addReachableMethod(method)) {
+                callGraph.callSitesIn(method).forEach(callSite -> {
+                    CallKind kind = CallGraphs.getCallKind(callSite);
+                    for (JMethod callee : resolveProfiled(callSite)) {
+                        callGraph.addEdge(new Edge<>(kind, callSite, callee));
+                        workList.add(callee);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Builds the same call graph as {@link #buildCallGraph(JMethod)}, but
+     * processes the reachable methods in waves: the methods made reachable
+     * by the previous wave are processed in parallel, i.e., their call sites
+     * are resolved and the resulting edges are added concurrently, and
+     * the callees not yet reachable form the next wave.
+     */
+    private CallGraph<Invoke, JMethod> buildCallGraphInParallel(JMethod entry) {
+        ConcurrentCallGraph callGraph = new ConcurrentCallGraph();
+        callGraph.setProfiler(profiler);
         callGraph.addEntryMethod(entry);
-        // TODO - finish me
+        Set<JMethod> wave = Set.of(entry);
+        while (!wave.isEmpty()) {
+            wave = wave.parallelStream()
+                    .filter(callGraph::addReachableMethod)
+                    .flatMap(callGraph::callSitesIn)
+                    .flatMap(callSite -> {
+                        CallKind kind = CallGraphs.getCallKind(callSite);
+                        Set<JMethod> callees = resolveProfiled(callSite);
+                        callees.forEach(callee ->
+                                callGraph.addEdge(new Edge<>(kind, callSite, callee)));
+                        return callees.stream();
+                    })
+                    .filter(callee -> !callGraph.contains(callee))
+                    .collect(Collectors.toSet());
+        }
         return callGraph;
     }
 
+    /**
+     * Updates a call graph built by this builder (without parallelism)
+     * after some classes have been added to and removed from the program.
+     * A changed class is given as both removed (the old {@link JClass})
+     * and added (the new one of the same name), and it is replaced in
+     * the class hierarchy, so its unchanged subclasses need not be given.
+     * Like for {@link ClassHierarchy#removeClass(JClass)}, the subclasses
+     * of a removed (but not changed) class must be removed too.
+     * The entry methods are assumed to be unchanged.
+     * <p>
+     * This method updates the class hierarchy, removes the methods of
+     * the removed classes, resolves again only the call sites whose method
+     * references are declared in the supertypes of the changed classes
+     * and of their subclasses (as only their targets can change),
+     * patches their edges, and then processes the newly reachable methods
+     * and prunes the methods that are no longer reachable. Hence, the cost
+     * of an update depends on the changed classes and the part of the call
+     * graph they affect, instead of the size of the whole call graph.
+     */
+    void update(DefaultCallGraph callGraph,
+                Collection<JClass> addedClasses, Collection<JClass> removedClasses) {
+        profiler = null;
+        callGraph.setProfiler(null);
+        // the edges change many times below, so stop caching until done
+        callGraph.setCachesEnabled(false);
+        Map<String, JClass> addedByName = newMap();
+        addedClasses.forEach(c -> addedByName.put(c.getName(), c));
+        Set<JClass> affectedTypes = newSet();
+        Set<JClass> replaced = newSet();
+        for (JClass jclass : removedClasses) {
+            this.removedClasses.add(jclass);
+            CallGraphs.collectSupertypes(jclass, affectedTypes);
+            JClass replacement = addedByName.get(jclass.getName());
+            if (replacement != null) {
+                replacements.put(jclass, replacement);
+                replaced.add(replacement);
+                hierarchy.replaceClass(jclass, replacement);
+                refsByDeclaringClass.putAll(replacement,
+                        List.copyOf(refsByDeclaringClass.get(jclass)));
+                refsByDeclaringClass.removeAll(jclass);
+                // dispatch on the subclasses may reach the replacement
+                hierarchy.getAllSubclassesOf(replacement).forEach(c ->
+                        CallGraphs.collectSupertypes(c, affectedTypes));
+            } else {
+                hierarchy.removeClass(jclass);
+            }
+        }
+        for (JClass jclass : addedClasses) {
+            if (!replaced.contains(jclass)) {
+                hierarchy.addClass(jclass);
+                CallGraphs.collectSupertypes(jclass, affectedTypes);
+            }
+        }
+        // callees that lose callers, and thus may become unreachable
+        Set<JMethod> candidates = newSet();
+        // remove the methods of removed classes
+        for (JClass jclass : removedClasses) {
+            for (JMethod method : jclass.getDeclaredMethods()) {
+                if (callGraph.contains(method)) {
+                    removeReachableMethod(callGraph, method, candidates);
+                }
+            }
+        }
+        // resolve the affected call sites again and patch their edges
+        Queue<JMethod> workList = new ArrayDeque<>();
+        for (JClass type : affectedTypes) {
+            for (MethodRef methodRef : List.copyOf(refsByDeclaringClass.get(type))) {
+                virtualTargets.remove(methodRef);
+                Set<Invoke> callSites = callSitesByRef.get(methodRef);
+                if (callSites.isEmpty()) {
+                    // all call sites of the reference are gone
+                    refsByDeclaringClass.remove(type, methodRef);
+                    continue;
+                }
+                for (Invoke callSite : List.copyOf(callSites)) {
+                    CallKind kind = CallGraphs.getCallKind(callSite);
+                    Set<JMethod> callees = resolveProfiled(callSite);
+                    for (JMethod callee : List.copyOf(callGraph.getCalleesOf(callSite))) {
+                        if (!callees.contains(callee) && callGraph.removeEdge(
+                                new Edge<>(kind, callSite, callee))) {
+                            candidates.add(callee);
+                        }
+                    }
+                    for (JMethod callee : callees) {
+                        if (callGraph.addEdge(new Edge<>(kind, callSite, callee))) {
+                            workList.add(callee);
+                        }
+                    }
+                }
+            }
+        }
+        processWorkList(callGraph, workList);
+        removeUnreachableMethods(callGraph, candidates);
+        callGraph.setCachesEnabled(true);
+    }
+
+    private void removeReachableMethod(DefaultCallGraph callGraph,
+                                       JMethod method, Set<JMethod> candidates) {
+        candidates.addAll(callGraph.getCalleesOfM(method));
+        callGraph.getCallSitesIn(method).forEach(callSite ->
+                callSitesByRef.remove(callSite.getMethodRef(), callSite));
+        callGraph.removeReachableMethod(method);
+    }
+
+    /**
+     * Removes the methods that are no longer reachable after the edges
+     * into {@code candidates} have been removed. Only the methods reachable
+     * from the candidates can become unreachable; among them, the ones
+     * still called from the rest of the call graph and their callees
+     * are kept, and the others are removed.
+     */
+    private void removeUnreachableMethods(
+            DefaultCallGraph callGraph, Set<JMethod> candidates) {
+        Set<JMethod> entries = callGraph.entryMethods()
+                .collect(Collectors.toSet());
+        Set<JMethod> suspects = newSet();
+        Queue<JMethod> queue = new ArrayDeque<>(candidates);
+        while (!queue.isEmpty()) {
+            JMethod method = queue.poll();
+            if (callGraph.contains(method) && !entries.contains(method)
+                    && suspects.add(method)) {
+                queue.addAll(callGraph.getCalleesOfM(method));
+            }
+        }
+        for (JMethod method : suspects) {
+            if (callGraph.getCallersOf(method)
+                    .stream()
+                    .anyMatch(callSite -> !suspects.contains(
+                            callGraph.getContainerOf(callSite)))) {
+                queue.add(method);
+            }
+        }
+        Set<JMethod> reached = newSet();
+        while (!queue.isEmpty()) {
+            JMethod method = queue.poll();
+            if (reached.add(method)) {
+                callGraph.getCalleesOfM(method)
+                        .stream()
+                        .filter(suspects::contains)
+                        .forEach(queue::add);
+            }
+        }
+        suspects.stream()
+                .filter(m -> !reached.contains(m))
+                .toList()
+                .forEach(m -> removeReachableMethod(callGraph, m, candidates));
+    }
+
+    /**
+     * @return the class that currently stands for given class, i.e.,
+     * the class itself, its replacement if it has been changed,
+     * or null if it has been removed.
+     */
+    @Nullable
+    private JClass current(JClass jclass) {
+        while (jclass != null && removedClasses.contains(jclass)) {
+            jclass = replacements.get(jclass);
+        }
+        return jclass;
+    }
+
+    /**
+     * Resolves call targets of a call site, and records the time spent
+     * on the resolution if the construction is profiled.
+     */
+    private Set<JMethod> resolveProfiled(Invoke callSite) {
+        if (profiler == null) {
+            return resolve(callSite);
+        }
+        long start = System.nanoTime();
+        Set<JMethod> callees = resolve(callSite);
+        profiler.onResolve(callSite, System.nanoTime() - start);
+        return callees;
+    }
+
     /**
      * Resolves call targets (callees) of a call site via CHA.
      */
     private Set<JMethod> resolve(Invoke callSite) {
-        // TODO - finish me
-        return null;
+        MethodRef methodRef = callSite.getMethodRef();
+        callSitesByRef.put(methodRef, callSite);
+        JClass declaringClass = current(methodRef.getDeclaringClass());
+        if (declaringClass == null) {
+            return Set.of();
+        }
+        refsByDeclaringClass.put(declaringClass, methodRef);
+        Subsignature subsignature = methodRef.getSubsignature();
+        return switch (CallGraphs.getCallKind(callSite)) {
+            case STATIC -> toSet(declaringClass.getDeclaredMethod(subsignature));
+            case SPECIAL -> toSet(dispatch(declaringClass, subsignature));
+            case VIRTUAL, INTERFACE -> virtualTargets.computeIfAbsent(
+                    methodRef, this::resolveVirtual);
+            default -> Set.of();
+        };
+    }
+
+    private static Set<JMethod> toSet(JMethod method) {
+        return method != null ? Set.of(method) : Set.of();
+    }
+
+    /**
+     * Resolves the targets of a virtual or interface call via CHA,
+     * i.e., dispatches the call on the declaring class of given method
+     * reference and all its subtypes.
+     */
+    private Set<JMethod> resolveVirtual(MethodRef methodRef) {
+        Subsignature subsignature = methodRef.getSubsignature();
+        Set<JMethod> targets = newHybridSet();
+        for (JClass jclass : hierarchy.getAllSubclassesOf(
+                current(methodRef.getDeclaringClass()))) {
+            JMethod target = dispatch(jclass, subsignature);
+            if (target != null) {
+                targets.add(target);
+            }
+        }
+        return Collections.unmodifiableSet(targets);
     }
 
     /**
@@ -69,7 +399,6 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
      * can be found.
      */
     private JMethod dispatch(JClass jclass, Subsignature subsignature) {
-        // TODO - finish me
-        return null;
+        return hierarchy.dispatch(jclass, subsignature);
     }
 }
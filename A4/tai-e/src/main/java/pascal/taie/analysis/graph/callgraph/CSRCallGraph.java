@@ -0,0 +1,764 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable snapshot of a call graph in compressed sparse row (CSR) form.
+ * <p>
+ * Methods and call sites are numbered by consecutive int ids, and all
+ * relations are kept in int arrays: the call sites of a method have
+ * consecutive ids, the (out) edges of a call site have consecutive ids,
+ * and each method additionally has ranges of its in-edges, its distinct
+ * successors and its distinct predecessors. The {@link Set} results of the
+ * {@link CallGraph} API are read-only views over these ranges, and clients
+ * that need allocation-free traversal can walk the ranges directly via the
+ * id-based methods, e.g.,
+ * <pre>
+ * for (int e = cg.getEdgesBegin(cs); e &lt; cg.getEdgesEnd(cs); ++e) {
+ *     JMethod callee = cg.getMethod(cg.getCallee(e));
+ *     ...
+ * }
+ * </pre>
+ * The ids in each range are sorted, so that the set views answer
+ * {@code contains} by binary search. Methods and call sites are mapped
+ * to their ids by {@link IdIndex}, which keeps the ids unboxed.
+ * Like the call graphs it is built from, this snapshot assumes that
+ * there is at most one edge between a call site and a callee.
+ */
+public class CSRCallGraph implements CallGraph<Invoke, JMethod> {
+
+    private static final CallKind[] KINDS = CallKind.values();
+
+    private final JMethod[] methods;
+
+    private final IdIndex methodIds;
+
+    private final Invoke[] callSites;
+
+    private final IdIndex callSiteIds;
+
+    private final int[] entries;
+
+    /**
+     * Call sites of method m are [callSiteStart[m], callSiteStart[m + 1]).
+     */
+    private final int[] callSiteStart;
+
+    /**
+     * Container method of each call site.
+     */
+    private final int[] containers;
+
+    /**
+     * Edges of call site c are [edgeStart[c], edgeStart[c + 1]),
+     * sorted by the ids of their callees.
+     */
+    private final int[] edgeStart;
+
+    private final int[] edgeCallees;
+
+    private final byte[] edgeKinds;
+
+    /**
+     * In-edges of method m are inEdges[inEdgeStart[m] .. inEdgeStart[m + 1]),
+     * sorted by edge ids (thus also by the ids of their call sites).
+     */
+    private final int[] inEdgeStart;
+
+    private final int[] inEdges;
+
+    private final int[] succStart;
+
+    private final int[] succs;
+
+    private final int[] predStart;
+
+    private final int[] preds;
+
+    /**
+     * Creates a snapshot of given call graph.
+     */
+    public CSRCallGraph(CallGraph<Invoke, JMethod> callGraph) {
+        // number methods and call sites
+        List<JMethod> methodList = new ArrayList<>(callGraph.getNumberOfMethods());
+        methodIds = new IdIndex(callGraph.getNumberOfMethods());
+        callGraph.reachableMethods().forEach(m -> addMethod(methodList, m));
+        List<Invoke> callSiteList = new ArrayList<>();
+        callSiteIds = new IdIndex(callGraph.getNumberOfEdges());
+        int nReachable = methodList.size();
+        int[] callSiteStart = new int[nReachable + 1];
+        for (int m = 0; m < nReachable; ++m) {
+            callSiteStart[m] = callSiteList.size();
+            callGraph.callSitesIn(methodList.get(m)).forEach(cs -> {
+                callSiteIds.put(cs, callSiteList.size());
+                callSiteList.add(cs);
+            });
+        }
+        callSiteStart[nReachable] = callSiteList.size();
+        // collect out edges
+        int nCallSites = callSiteList.size();
+        edgeStart = new int[nCallSites + 1];
+        int nEdges = callGraph.getNumberOfEdges();
+        int[] callees = new int[nEdges];
+        byte[] kinds = new byte[nEdges];
+        int e = 0;
+        for (int c = 0; c < nCallSites; ++c) {
+            edgeStart[c] = e;
+            for (Edge<Invoke, JMethod> edge : (Iterable<Edge<Invoke, JMethod>>)
+                    callGraph.edgesOutOf(callSiteList.get(c))::iterator) {
+                if (e == callees.length) { // be robust to inexact edge counts
+                    callees = Arrays.copyOf(callees, e * 2 + 1);
+                    kinds = Arrays.copyOf(kinds, e * 2 + 1);
+                }
+                callees[e] = addMethod(methodList, edge.getCallee());
+                kinds[e] = (byte) edge.getKind().ordinal();
+                ++e;
+            }
+            sortByCallees(callees, kinds, edgeStart[c], e);
+        }
+        edgeStart[nCallSites] = e;
+        edgeCallees = Arrays.copyOf(callees, e);
+        edgeKinds = Arrays.copyOf(kinds, e);
+        // entry methods are numbered before the method array is built,
+        // in case some of them are not reachable (thus not numbered yet)
+        entries = callGraph.entryMethods()
+                .mapToInt(m -> addMethod(methodList, m))
+                .toArray();
+        methods = methodList.toArray(new JMethod[0]);
+        callSites = callSiteList.toArray(new Invoke[0]);
+        int nMethods = methods.length;
+        // callees outside reachable methods (if any) have no call sites
+        this.callSiteStart = Arrays.copyOf(callSiteStart, nMethods + 1);
+        Arrays.fill(this.callSiteStart, nReachable + 1, nMethods + 1, nCallSites);
+        containers = new int[nCallSites];
+        for (int m = 0; m < nMethods; ++m) {
+            Arrays.fill(containers, this.callSiteStart[m], this.callSiteStart[m + 1], m);
+        }
+        // in edges, by counting sort on callees
+        inEdgeStart = new int[nMethods + 1];
+        for (int callee : edgeCallees) {
+            ++inEdgeStart[callee + 1];
+        }
+        for (int m = 0; m < nMethods; ++m) {
+            inEdgeStart[m + 1] += inEdgeStart[m];
+        }
+        inEdges = new int[edgeCallees.length];
+        int[] next = Arrays.copyOf(inEdgeStart, nMethods);
+        for (int i = 0; i < edgeCallees.length; ++i) {
+            inEdges[next[edgeCallees[i]]++] = i;
+        }
+        // distinct successors and predecessors
+        succStart = new int[nMethods + 1];
+        predStart = new int[nMethods + 1];
+        succs = collectNeighbors(nMethods, succStart, m -> {
+            int from = edgeStart[this.callSiteStart[m]];
+            int to = edgeStart[this.callSiteStart[m + 1]];
+            return Arrays.copyOfRange(edgeCallees, from, to);
+        });
+        preds = collectNeighbors(nMethods, predStart, m -> {
+            int[] callers = new int[inEdgeStart[m + 1] - inEdgeStart[m]];
+            for (int i = 0; i < callers.length; ++i) {
+                callers[i] = containers[getCallSiteOf(inEdges[inEdgeStart[m] + i])];
+            }
+            return callers;
+        });
+    }
+
+    private int addMethod(List<JMethod> methodList, JMethod method) {
+        int id = methodIds.get(method);
+        if (id < 0) {
+            id = methodList.size();
+            methodIds.put(method, id);
+            methodList.add(method);
+        }
+        return id;
+    }
+
+    /**
+     * Sorts the edges in [from, to) by their callees. The edges of
+     * a call site are few, so insertion sort is used.
+     */
+    private static void sortByCallees(int[] callees, byte[] kinds, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            int callee = callees[i];
+            byte kind = kinds[i];
+            int j = i - 1;
+            for (; j >= from && callees[j] > callee; --j) {
+                callees[j + 1] = callees[j];
+                kinds[j + 1] = kinds[j];
+            }
+            callees[j + 1] = callee;
+            kinds[j + 1] = kind;
+        }
+    }
+
+    /**
+     * Builds the CSR arrays of the distinct neighbors given by
+     * {@code neighbors} for each method.
+     */
+    private static int[] collectNeighbors(
+            int nMethods, int[] start, IntFunction<int[]> neighbors) {
+        int[] result = new int[16];
+        int size = 0;
+        BitSet seen = new BitSet(nMethods);
+        for (int m = 0; m < nMethods; ++m) {
+            start[m] = size;
+            for (int n : neighbors.apply(m)) {
+                if (!seen.get(n)) {
+                    seen.set(n);
+                    if (size == result.length) {
+                        result = Arrays.copyOf(result, size * 2);
+                    }
+                    result[size++] = n;
+                }
+            }
+            for (int i = start[m]; i < size; ++i) {
+                seen.clear(result[i]);
+            }
+            Arrays.sort(result, start[m], size);
+        }
+        start[nMethods] = size;
+        return Arrays.copyOf(result, size);
+    }
+
+    // Id-based API.
+
+    /**
+     * @return id of given method, or -1 if the method is not in this call graph.
+     */
+    public int getMethodId(JMethod method) {
+        return methodIds.get(method);
+    }
+
+    public JMethod getMethod(int id) {
+        return methods[id];
+    }
+
+    /**
+     * @return id of given call site, or -1 if the call site is not in this call graph.
+     */
+    public int getCallSiteId(Invoke callSite) {
+        return callSiteIds.get(callSite);
+    }
+
+    public Invoke getCallSite(int id) {
+        return callSites[id];
+    }
+
+    public int getNumberOfCallSites() {
+        return callSites.length;
+    }
+
+    /**
+     * @return the first id of the call sites in given method.
+     */
+    public int getCallSitesBegin(int method) {
+        return callSiteStart[method];
+    }
+
+    /**
+     * @return one past the last id of the call sites in given method.
+     */
+    public int getCallSitesEnd(int method) {
+        return callSiteStart[method + 1];
+    }
+
+    /**
+     * @return id of the method containing given call site.
+     */
+    public int getContainer(int callSite) {
+        return containers[callSite];
+    }
+
+    /**
+     * @return the first id of the edges out of given call site.
+     */
+    public int getEdgesBegin(int callSite) {
+        return edgeStart[callSite];
+    }
+
+    /**
+     * @return one past the last id of the edges out of given call site.
+     */
+    public int getEdgesEnd(int callSite) {
+        return edgeStart[callSite + 1];
+    }
+
+    /**
+     * @return id of the callee of given edge.
+     */
+    public int getCallee(int edge) {
+        return edgeCallees[edge];
+    }
+
+    public CallKind getKind(int edge) {
+        return KINDS[edgeKinds[edge]];
+    }
+
+    /**
+     * @return id of the call site of given edge.
+     */
+    public int getCallSiteOf(int edge) {
+        // edges are sorted by call sites, so binary search the start array
+        int i = Arrays.binarySearch(edgeStart, edge);
+        if (i < 0) {
+            return -i - 2;
+        }
+        // skip call sites without edges
+        while (edgeStart[i + 1] == edge) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @return id of the edge from given call site to given callee,
+     * or -1 if there is no such edge.
+     */
+    public int getEdge(int callSite, int callee) {
+        if (callSite < 0 || callee < 0) {
+            return -1;
+        }
+        int e = Arrays.binarySearch(edgeCallees,
+                edgeStart[callSite], edgeStart[callSite + 1], callee);
+        return e >= 0 ? e : -1;
+    }
+
+    /**
+     * @return the number of edges into given method.
+     */
+    public int getInDegree(int method) {
+        return inEdgeStart[method + 1] - inEdgeStart[method];
+    }
+
+    /**
+     * @return id of the i-th edge into given method.
+     */
+    public int getInEdge(int method, int i) {
+        return inEdges[inEdgeStart[method] + i];
+    }
+
+    // CallGraph API.
+
+    @Override
+    public Set<Invoke> getCallersOf(JMethod callee) {
+        int m = getMethodId(callee);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new IdSetView<>(inEdges, inEdgeStart[m], inEdgeStart[m + 1],
+                e -> callSites[getCallSiteOf(e)],
+                o -> o instanceof Invoke cs ? getEdge(getCallSiteId(cs), m) : -1);
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOf(Invoke callSite) {
+        int c = getCallSiteId(callSite);
+        if (c < 0) {
+            return Set.of();
+        }
+        return new IdSetView<>(edgeCallees, edgeStart[c], edgeStart[c + 1],
+                m -> methods[m], this::toMethodId);
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOfM(JMethod caller) {
+        return getSuccsOf(caller);
+    }
+
+    @Override
+    public JMethod getContainerOf(Invoke callSite) {
+        int c = getCallSiteId(callSite);
+        return c >= 0 ? methods[containers[c]] : callSite.getContainer();
+    }
+
+    @Override
+    public Set<Invoke> getCallSitesIn(JMethod method) {
+        int m = getMethodId(method);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new RangeSetView<>(callSiteStart[m], callSiteStart[m + 1],
+                c -> callSites[c],
+                o -> o instanceof Invoke cs ? getCallSiteId(cs) : -1);
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesOutOf(Invoke callSite) {
+        int c = getCallSiteId(callSite);
+        if (c < 0) {
+            return Stream.of();
+        }
+        return IntStream.range(edgeStart[c], edgeStart[c + 1])
+                .mapToObj(this::toEdge);
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesInTo(JMethod method) {
+        int m = getMethodId(method);
+        if (m < 0) {
+            return Stream.of();
+        }
+        return IntStream.range(inEdgeStart[m], inEdgeStart[m + 1])
+                .mapToObj(i -> toEdge(inEdges[i]));
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edges() {
+        return IntStream.range(0, edgeCallees.length)
+                .mapToObj(this::toEdge);
+    }
+
+    private Edge<Invoke, JMethod> toEdge(int e) {
+        return new Edge<>(getKind(e), callSites[getCallSiteOf(e)],
+                methods[edgeCallees[e]]);
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return edgeCallees.length;
+    }
+
+    @Override
+    public Stream<JMethod> entryMethods() {
+        return Arrays.stream(entries).mapToObj(m -> methods[m]);
+    }
+
+    @Override
+    public Stream<JMethod> reachableMethods() {
+        return Arrays.stream(methods);
+    }
+
+    @Override
+    public int getNumberOfMethods() {
+        return methods.length;
+    }
+
+    @Override
+    public boolean contains(JMethod method) {
+        return methodIds.get(method) >= 0;
+    }
+
+    private int toMethodId(Object o) {
+        return o instanceof JMethod method ? getMethodId(method) : -1;
+    }
+
+    // StmtResult API.
+
+    @Override
+    public boolean isRelevant(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public Set<JMethod> getResult(Stmt stmt) {
+        return getCalleesOf((Invoke) stmt);
+    }
+
+    // Graph API.
+
+    @Override
+    public boolean hasNode(JMethod node) {
+        return contains(node);
+    }
+
+    @Override
+    public boolean hasEdge(JMethod source, JMethod target) {
+        return getSuccsOf(source).contains(target);
+    }
+
+    @Override
+    public Set<MethodEdge<Invoke, JMethod>> getInEdgesOf(JMethod method) {
+        int m = getMethodId(method);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new IdSetView<>(inEdges, inEdgeStart[m], inEdgeStart[m + 1],
+                this::toMethodEdge, this::toEdgeId);
+    }
+
+    @Override
+    public Set<MethodEdge<Invoke, JMethod>> getOutEdgesOf(JMethod method) {
+        int m = getMethodId(method);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new RangeSetView<>(edgeStart[callSiteStart[m]],
+                edgeStart[callSiteStart[m + 1]],
+                this::toMethodEdge, this::toEdgeId);
+    }
+
+    private MethodEdge<Invoke, JMethod> toMethodEdge(int e) {
+        int c = getCallSiteOf(e);
+        return new MethodEdge<>(methods[containers[c]],
+                methods[edgeCallees[e]], callSites[c]);
+    }
+
+    /**
+     * @return id of the edge represented by given object,
+     * or -1 if it is not a method edge of this call graph.
+     */
+    private int toEdgeId(Object o) {
+        if (o instanceof MethodEdge<?, ?> edge &&
+                edge.callSite() instanceof Invoke callSite) {
+            int c = getCallSiteId(callSite);
+            if (c >= 0 && methods[containers[c]].equals(edge.caller())) {
+                return getEdge(c, toMethodId(edge.callee()));
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Set<JMethod> getPredsOf(JMethod node) {
+        int m = getMethodId(node);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new IdSetView<>(preds, predStart[m], predStart[m + 1],
+                id -> methods[id], this::toMethodId);
+    }
+
+    @Override
+    public Set<JMethod> getSuccsOf(JMethod node) {
+        int m = getMethodId(node);
+        if (m < 0) {
+            return Set.of();
+        }
+        return new IdSetView<>(succs, succStart[m], succStart[m + 1],
+                id -> methods[id], this::toMethodId);
+    }
+
+    @Override
+    public Set<JMethod> getNodes() {
+        return new RangeSetView<>(0, methods.length, id -> methods[id],
+                this::toMethodId);
+    }
+
+    /**
+     * Read-only set view of the objects given by {@code ids[from..to)},
+     * which must be distinct and sorted. {@code encoder} maps an object
+     * to its id, or to -1 if it has no id.
+     */
+    private static class IdSetView<E> extends AbstractSet<E> {
+
+        private final int[] ids;
+
+        private final int from;
+
+        private final int to;
+
+        private final IntFunction<E> decoder;
+
+        private final ToIntFunction<Object> encoder;
+
+        private IdSetView(int[] ids, int from, int to,
+                          IntFunction<E> decoder, ToIntFunction<Object> encoder) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.decoder = decoder;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = encoder.applyAsInt(o);
+            return id >= 0 && Arrays.binarySearch(ids, from, to, id) >= 0;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<>() {
+
+                private int i = from;
+
+                @Override
+                public boolean hasNext() {
+                    return i < to;
+                }
+
+                @Override
+                public E next() {
+                    if (i >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return decoder.apply(ids[i++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Read-only set view of the objects with ids in [from, to).
+     * {@code encoder} maps an object to its id, or to -1 if it has no id.
+     */
+    private static class RangeSetView<E> extends AbstractSet<E> {
+
+        private final int from;
+
+        private final int to;
+
+        private final IntFunction<E> decoder;
+
+        private final ToIntFunction<Object> encoder;
+
+        private RangeSetView(int from, int to,
+                             IntFunction<E> decoder, ToIntFunction<Object> encoder) {
+            this.from = from;
+            this.to = to;
+            this.decoder = decoder;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = encoder.applyAsInt(o);
+            return from <= id && id < to;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<>() {
+
+                private int i = from;
+
+                @Override
+                public boolean hasNext() {
+                    return i < to;
+                }
+
+                @Override
+                public E next() {
+                    if (i >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    return decoder.apply(i++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * Open-addressing hash index from objects to their ids, which keeps
+     * the ids in an int array instead of boxing them in a map.
+     */
+    private static class IdIndex {
+
+        private Object[] keys;
+
+        private int[] ids;
+
+        private int size;
+
+        private IdIndex(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) * 2;
+            keys = new Object[capacity];
+            ids = new int[capacity];
+        }
+
+        /**
+         * @return id of given key, or -1 if the key is absent.
+         */
+        private int get(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            int mask = keys.length - 1;
+            for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+                Object k = keys[i];
+                if (k == null) {
+                    return -1;
+                }
+                if (k.equals(key)) {
+                    return ids[i];
+                }
+            }
+        }
+
+        /**
+         * Associates an absent key with given id.
+         */
+        private void put(Object key, int id) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            insert(key, id);
+            ++size;
+        }
+
+        private void insert(Object key, int id) {
+            int mask = keys.length - 1;
+            int i = indexOf(key, mask);
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            ids[i] = id;
+        }
+
+        private void resize() {
+            Object[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new Object[oldKeys.length * 2];
+            ids = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; ++i) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldIds[i]);
+                }
+            }
+        }
+
+        private static int indexOf(Object key, int mask) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Call graph loaded by {@link CallGraphCache}, whose edges refer to
+ * their call sites by indexes in the IRs of the callers.
+ * <p>
+ * The IR of a method is only built when its call sites are first needed,
+ * i.e., when the call sites in the method, the edges out of them or the
+ * edges into one of its callees are queried, so loading a call graph
+ * does not build the IRs of all reachable methods. The reachable methods,
+ * the entry methods and the caller-callee relations ({@link #getSuccsOf}
+ * and {@link #getPredsOf}) are available without building any IR.
+ * Methods are resolved under a lock, and the resolved edges are stored
+ * in thread-safe data structures, so this call graph can be queried by
+ * multiple threads.
+ */
+class CachedCallGraph extends AbstractCallGraph<Invoke, JMethod> {
+
+    private static final CallKind[] KINDS = CallKind.values();
+
+    private final JMethod[] methods;
+
+    private final Map<JMethod, Integer> methodIds = Maps.newMap();
+
+    /**
+     * Caller, call-site index, callee and kind of each edge.
+     */
+    private final int[] edgeCallers;
+
+    private final int[] edgeIndexes;
+
+    private final int[] edgeCallees;
+
+    private final byte[] edgeKinds;
+
+    /**
+     * Edges out of method m are outEdges[outStart[m] .. outStart[m + 1]).
+     */
+    private final int[] outStart;
+
+    private final int[] outEdges;
+
+    /**
+     * Edges into method m are inEdges[inStart[m] .. inStart[m + 1]).
+     */
+    private final int[] inStart;
+
+    private final int[] inEdges;
+
+    /**
+     * Methods whose call sites and out edges have been resolved.
+     */
+    private final Set<JMethod> resolved = Sets.newConcurrentSet();
+
+    CachedCallGraph(JMethod[] methods, int[] entries, int[] reachable,
+                    int[] edgeCallers, int[] edgeIndexes,
+                    int[] edgeCallees, byte[] edgeKinds) {
+        super(new ConcurrentMultiMap<>(), new ConcurrentMultiMap<>(),
+                Maps.newConcurrentMap(),
+                new ConcurrentMultiMap<>(Sets::newHybridOrderedSet),
+                Sets.newConcurrentSet(), Sets.newConcurrentSet());
+        this.methods = methods;
+        for (int m = 0; m < methods.length; ++m) {
+            methodIds.put(methods[m], m);
+        }
+        for (int m : entries) {
+            entryMethods.add(methods[m]);
+        }
+        for (int m : reachable) {
+            reachableMethods.add(methods[m]);
+        }
+        this.edgeCallers = edgeCallers;
+        this.edgeIndexes = edgeIndexes;
+        this.edgeCallees = edgeCallees;
+        this.edgeKinds = edgeKinds;
+        outStart = new int[methods.length + 1];
+        outEdges = groupEdges(edgeCallers, outStart);
+        inStart = new int[methods.length + 1];
+        inEdges = groupEdges(edgeCallees, inStart);
+    }
+
+    /**
+     * Groups the edges by given methods (callers or callees)
+     * by counting sort.
+     *
+     * @return the edges grouped by the methods, where the edges of
+     * method m are in [start[m], start[m + 1]).
+     */
+    private static int[] groupEdges(int[] edgeMethods, int[] start) {
+        for (int m : edgeMethods) {
+            ++start[m + 1];
+        }
+        for (int m = 1; m < start.length; ++m) {
+            start[m] += start[m - 1];
+        }
+        int[] edges = new int[edgeMethods.length];
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int e = 0; e < edgeMethods.length; ++e) {
+            edges[next[edgeMethods[e]]++] = e;
+        }
+        return edges;
+    }
+
+    /**
+     * Builds the IR of given method (if it has not been resolved) to find
+     * its call sites and the edges out of them.
+     *
+     * @throws AnalysisException if the cached edges do not match the IR
+     */
+    private void resolve(JMethod method) {
+        if (resolved.contains(method)) {
+            return;
+        }
+        synchronized (this) {
+            if (resolved.contains(method)) {
+                return;
+            }
+            Integer m = methodIds.get(method);
+            if (m != null && reachableMethods.contains(method)
+                    && !method.isAbstract()) {
+                IR ir = method.getIR();
+                ir.forEach(stmt -> {
+                    if (stmt instanceof Invoke invoke) {
+                        callSiteToContainer.put(invoke, method);
+                        callSitesIn.put(method, invoke);
+                    }
+                });
+                for (int i = outStart[m]; i < outStart[m + 1]; ++i) {
+                    int e = outEdges[i];
+                    int index = edgeIndexes[e];
+                    if (index >= ir.getStmts().size()
+                            || !(ir.getStmt(index) instanceof Invoke callSite)) {
+                        throw new AnalysisException("Call graph cache does not" +
+                                " match the IR of " + method + ", please remove it");
+                    }
+                    Edge<Invoke, JMethod> edge = new Edge<>(
+                            KINDS[edgeKinds[e]], callSite,
+                            methods[edgeCallees[e]]);
+                    callSiteToEdges.put(callSite, edge);
+                    calleeToEdges.put(edge.getCallee(), edge);
+                }
+            }
+            resolved.add(method);
+        }
+    }
+
+    /**
+     * Resolves the callers of given method.
+     */
+    private void resolveCallersOf(JMethod method) {
+        Integer m = methodIds.get(method);
+        if (m != null) {
+            for (int i = inStart[m]; i < inStart[m + 1]; ++i) {
+                resolve(methods[edgeCallers[inEdges[i]]]);
+            }
+        }
+    }
+
+    private void resolveAll() {
+        reachableMethods.forEach(this::resolve);
+    }
+
+    @Override
+    public Set<Invoke> getCallersOf(JMethod callee) {
+        resolveCallersOf(callee);
+        return super.getCallersOf(callee);
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOf(Invoke callSite) {
+        resolve(callSite.getContainer());
+        return super.getCalleesOf(callSite);
+    }
+
+    @Override
+    public JMethod getContainerOf(Invoke callSite) {
+        return callSite.getContainer();
+    }
+
+    @Override
+    public Set<Invoke> getCallSitesIn(JMethod method) {
+        resolve(method);
+        return super.getCallSitesIn(method);
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesOutOf(Invoke callSite) {
+        resolve(callSite.getContainer());
+        return super.edgesOutOf(callSite);
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesInTo(JMethod method) {
+        resolveCallersOf(method);
+        return super.edgesInTo(method);
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edges() {
+        resolveAll();
+        return super.edges();
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return edgeCallees.length;
+    }
+
+    @Override
+    public Set<JMethod> getSuccsOf(JMethod node) {
+        Integer m = methodIds.get(node);
+        if (m == null) {
+            return Set.of();
+        }
+        return Arrays.stream(outEdges, outStart[m], outStart[m + 1])
+                .mapToObj(e -> methods[edgeCallees[e]])
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public Set<JMethod> getPredsOf(JMethod node) {
+        Integer m = methodIds.get(node);
+        if (m == null) {
+            return Set.of();
+        }
+        return Arrays.stream(inEdges, inStart[m], inStart[m + 1])
+                .mapToObj(e -> methods[edgeCallers[e]])
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public boolean isRelevant(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public Set<JMethod> getResult(Stmt stmt) {
+        return getCalleesOf((Invoke) stmt);
+    }
+}
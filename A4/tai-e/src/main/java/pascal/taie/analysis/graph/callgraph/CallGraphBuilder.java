@@ -30,7 +30,9 @@ import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IRPrinter;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.ClassHierarchyImpl;
+import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
 
 import java.util.Collection;
 import java.util.Comparator;
@@ -48,26 +50,117 @@ public class CallGraphBuilder extends ProgramAnalysis {
 
     private final String algorithm;
 
+    /**
+     * Whether to build the call graph in parallel.
+     */
+    private final boolean parallel;
+
+    /**
+     * Whether to freeze the built call graph into a {@link CSRCallGraph}.
+     */
+    private final boolean freeze;
+
+    /**
+     * Directory of the on-disk call graph cache, or null if the cache
+     * is disabled.
+     */
+    private final String cacheDir;
+
+    /**
+     * File of the call graph construction metrics, or null if
+     * the construction is not profiled.
+     */
+    private final String metricsFile;
+
+    /**
+     * The CHA builder and the call graph it built in the last
+     * {@link #analyze()}, kept for {@link #update}; null if the
+     * call graph cannot be updated incrementally.
+     */
+    private CHABuilder chaBuilder;
+
+    private DefaultCallGraph chaCallGraph;
+
     public CallGraphBuilder(AnalysisConfig config) {
         super(config);
         algorithm = config.getOptions().getString("algorithm");
+        parallel = config.getOptions().getBooleanOrDefault("parallel", false);
+        freeze = config.getOptions().getBooleanOrDefault("freeze", false);
+        cacheDir = config.getOptions().getString("cache-dir");
+        metricsFile = config.getOptions().getString("metrics");
     }
 
     @Override
     public CallGraph<Invoke, JMethod> analyze() {
+        CallGraphProfiler profiler = metricsFile != null
+                ? new CallGraphProfiler() : null;
         CGBuilder<Invoke, JMethod> builder;
         if (algorithm.equals("cha")) {
-            builder = new CHABuilder();
+            builder = new CHABuilder(parallel, profiler);
+        } else if (algorithm.equals("rta")) {
+            builder = new RTABuilder(profiler);
         } else {
             throw new ConfigException("Unknown call graph building algorithm: " + algorithm);
         }
-        ClassHierarchyImpl.setCheckCHA(true);
-        CallGraph<Invoke, JMethod> callGraph = builder.build();
-        ClassHierarchyImpl.setCheckCHA(false);
+        CallGraphCache cache = cacheDir != null
+                ? new CallGraphCache(cacheDir, algorithm) : null;
+        CallGraph<Invoke, JMethod> callGraph = cache != null ? cache.load() : null;
+        if (callGraph == null) {
+            ClassHierarchyImpl.setCheckCHA(true);
+            callGraph = builder.build();
+            ClassHierarchyImpl.setCheckCHA(false);
+            if (profiler != null) {
+                profiler.finish();
+                profiler.reportMegamorphicCallSites();
+                profiler.dump(metricsFile);
+            }
+            if (builder instanceof CHABuilder cha
+                    && callGraph instanceof DefaultCallGraph cg && !freeze) {
+                chaBuilder = cha;
+                chaCallGraph = cg;
+            }
+            if (cache != null) {
+                cache.store(callGraph);
+            }
+        }
+        if (callGraph instanceof AbstractCallGraph<Invoke, JMethod> cg) {
+            // the construction has finished, so the adjacency sets can be cached
+            cg.setCachesEnabled(true);
+        }
+        if (freeze) {
+            callGraph = new CSRCallGraph(callGraph);
+        }
         takeAction(callGraph);
         return callGraph;
     }
 
+    /**
+     * Incrementally updates the call graph built by the last
+     * {@link #analyze()} after classes have been added to or removed from
+     * the program, instead of building it from scratch.
+     * This is supported for the sequential CHA algorithm, when the call
+     * graph is neither frozen nor loaded from the cache.
+     *
+     * @param addedClasses   the added classes, including the new versions
+     *                       of changed classes
+     * @param removedClasses the removed classes, including the old versions
+     *                       of changed classes
+     * @return the updated call graph.
+     * @see CHABuilder#update(DefaultCallGraph, Collection, Collection)
+     */
+    public CallGraph<Invoke, JMethod> update(
+            Collection<JClass> addedClasses, Collection<JClass> removedClasses) {
+        if (chaBuilder == null) {
+            throw new AnalysisException("Cannot incrementally update call graph" +
+                    " built with options " + getOptions());
+        }
+        ClassHierarchyImpl.setCheckCHA(true);
+        chaBuilder.update(chaCallGraph, addedClasses, removedClasses);
+        ClassHierarchyImpl.setCheckCHA(false);
+        takeAction(chaCallGraph);
+        return chaCallGraph;
+    }
+
     private void takeAction(CallGraph<Invoke, JMethod> callGraph) {
         String action = getOptions().getString("action");
         if (action == null) {
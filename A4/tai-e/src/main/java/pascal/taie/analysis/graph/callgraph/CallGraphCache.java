@@ -0,0 +1,361 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.Options;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static pascal.taie.util.collection.Maps.newMap;
+
+/**
+ * On-disk cache of call graphs.
+ * <p>
+ * A call graph is stored in a binary file whose name is a content hash
+ * of the analyzed program (its class path, the library classes, the main
+ * class and the options of building the world) and of the call graph
+ * algorithm, so a later analysis of the same program can load the call
+ * graph instead of building it again. The file records
+ * the methods by their declaring classes and subsignatures, and the call
+ * sites by their indexes in the IR of their container methods:
+ * <pre>
+ * magic version key[32]
+ * #methods   (class-name subsignature)*
+ * #entries   method-id*
+ * #reachable method-id*
+ * #edges     (caller-id call-site-index callee-id kind)*
+ * </pre>
+ * where strings are stored as their lengths followed by their UTF-8 bytes.
+ * The file is memory-mapped when loading, and the loaded
+ * {@link CachedCallGraph} resolves the call sites of a method only when
+ * they are first queried, so loading does not build any IR.
+ */
+class CallGraphCache {
+
+    private static final Logger logger = LogManager.getLogger(CallGraphCache.class);
+
+    private static final int MAGIC = 0x54414347; // "TACG"
+
+    private static final int VERSION = 1;
+
+    private static final CallKind[] KINDS = CallKind.values();
+
+    /**
+     * Directory of the JREs whose classes are the library classes
+     * when the JVM's own classes are not used,
+     * as in {@link pascal.taie.AbstractWorldBuilder}.
+     */
+    private static final String JRES = "java-benchmarks/JREs";
+
+    private final byte[] key;
+
+    private final Path file;
+
+    /**
+     * Creates a cache for the call graph of the current program
+     * built by given algorithm.
+     *
+     * @param dir       directory of the cache files
+     * @param algorithm the call graph building algorithm
+     */
+    CallGraphCache(String dir, String algorithm) {
+        this(Path.of(dir), computeKey(World.get().getOptions(), algorithm));
+    }
+
+    /**
+     * Creates a cache whose file in {@code dir} is named by given key.
+     */
+    CallGraphCache(Path dir, byte[] key) {
+        this.key = key;
+        file = dir.resolve("cg-" + HexFormat.of().formatHex(key) + ".bin");
+    }
+
+    /**
+     * @return the cached call graph, or null if it is absent or stale.
+     */
+    @Nullable
+    CallGraph<Invoke, JMethod> load() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CallGraph<Invoke, JMethod> callGraph = read(buffer);
+            if (callGraph != null) {
+                logger.info("Loaded call graph from {}", file);
+            } else {
+                logger.warn("Ignored stale call graph cache {}", file);
+            }
+            return callGraph;
+        } catch (IOException | BufferUnderflowException
+                 | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            logger.warn("Failed to load call graph cache {}: {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores given call graph to the cache. As the cache is only an
+     * optimization, I/O errors are logged instead of thrown.
+     */
+    void store(CallGraph<Invoke, JMethod> callGraph) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "cg-", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                write(callGraph, out);
+            }
+            // move atomically so that concurrent runs never see partial files
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Stored call graph to {}", file);
+        } catch (IOException e) {
+            logger.warn("Failed to store call graph cache {}: {}", file, e);
+        }
+    }
+
+    private void write(CallGraph<Invoke, JMethod> callGraph, DataOutputStream out)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(key);
+        List<JMethod> methods = new ArrayList<>();
+        Map<JMethod, Integer> ids = newMap();
+        callGraph.reachableMethods().forEach(m -> {
+            ids.put(m, methods.size());
+            methods.add(m);
+        });
+        callGraph.edges().forEach(e -> ids.computeIfAbsent(e.getCallee(), m -> {
+            methods.add(m);
+            return methods.size() - 1;
+        }));
+        callGraph.entryMethods().forEach(m -> ids.computeIfAbsent(m, __ -> {
+            methods.add(m);
+            return methods.size() - 1;
+        }));
+        out.writeInt(methods.size());
+        for (JMethod method : methods) {
+            writeString(out, method.getDeclaringClass().getName());
+            writeString(out, method.getSubsignature().toString());
+        }
+        writeIds(out, callGraph.entryMethods(), ids);
+        writeIds(out, callGraph.reachableMethods(), ids);
+        out.writeInt(callGraph.getNumberOfEdges());
+        for (Edge<Invoke, JMethod> edge :
+                (Iterable<Edge<Invoke, JMethod>>) callGraph.edges()::iterator) {
+            Invoke callSite = edge.getCallSite();
+            out.writeInt(ids.get(callGraph.getContainerOf(callSite)));
+            out.writeInt(callSite.getIndex());
+            out.writeInt(ids.get(edge.getCallee()));
+            out.writeByte(edge.getKind().ordinal());
+        }
+    }
+
+    private static void writeIds(DataOutputStream out,
+                                 Stream<JMethod> methods, Map<JMethod, Integer> ids)
+            throws IOException {
+        int[] array = methods.mapToInt(ids::get).toArray();
+        out.writeInt(array.length);
+        for (int id : array) {
+            out.writeInt(id);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a call graph from given buffer.
+     *
+     * @return the call graph, or null if the buffer does not match the key
+     * of this cache or refers to methods that do not exist in the current
+     * program. As the call sites are resolved lazily, they are checked when
+     * the IRs of their containers are built.
+     */
+    @Nullable
+    private CallGraph<Invoke, JMethod> read(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        byte[] fileKey = new byte[key.length];
+        buffer.get(fileKey);
+        if (!Arrays.equals(key, fileKey)) {
+            return null;
+        }
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        JMethod[] methods = new JMethod[buffer.getInt()];
+        for (int i = 0; i < methods.length; ++i) {
+            JClass jclass = hierarchy.getClass(readString(buffer));
+            Subsignature subsignature = Subsignature.get(readString(buffer));
+            methods[i] = jclass != null ? jclass.getDeclaredMethod(subsignature) : null;
+            if (methods[i] == null) {
+                return null;
+            }
+        }
+        int[] entries = readIds(buffer, methods.length);
+        int[] reachable = readIds(buffer, methods.length);
+        int nEdges = buffer.getInt();
+        int[] callers = new int[nEdges];
+        int[] indexes = new int[nEdges];
+        int[] callees = new int[nEdges];
+        byte[] kinds = new byte[nEdges];
+        for (int e = 0; e < nEdges; ++e) {
+            callers[e] = checkId(buffer.getInt(), methods.length);
+            indexes[e] = buffer.getInt();
+            callees[e] = checkId(buffer.getInt(), methods.length);
+            kinds[e] = buffer.get();
+            if (kinds[e] < 0 || kinds[e] >= KINDS.length) {
+                throw new IndexOutOfBoundsException(kinds[e]);
+            }
+        }
+        // call sites are resolved lazily, when the IRs of their
+        // containers are needed anyway
+        return new CachedCallGraph(methods, entries, reachable,
+                callers, indexes, callees, kinds);
+    }
+
+    private static int[] readIds(ByteBuffer buffer, int nMethods) {
+        int[] ids = new int[buffer.getInt()];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = checkId(buffer.getInt(), nMethods);
+        }
+        return ids;
+    }
+
+    private static int checkId(int id, int nMethods) {
+        return Objects.checkIndex(id, nMethods);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Computes the key of the call graph of the program given by
+     * {@code options}, i.e., SHA-256 over the algorithm, the main class,
+     * the options of building the world, the contents of all class path
+     * entries, and the library (JRE) classes.
+     */
+    private static byte[] computeKey(Options options, String algorithm) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+        update(digest, algorithm);
+        update(digest, String.valueOf(options.getMainClass()));
+        update(digest, options.getJavaVersion() + ":" + options.isPrependJVM());
+        update(digest, String.valueOf(options.getWorldBuilderClass()));
+        update(digest, options.getScope() + ":" + options.enableNativeModel());
+        String classPath = options.getClassPath();
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                update(digest, entry);
+                hashPath(digest, Path.of(entry));
+            }
+        }
+        if (options.isPrependJVM()) {
+            // library classes come from the running JVM
+            update(digest, System.getProperty("java.home") + ":" +
+                    System.getProperty("java.runtime.version"));
+        } else {
+            Path jreDir = Path.of(JRES, "jre1." + options.getJavaVersion());
+            update(digest, jreDir.toString());
+            hashPath(digest, jreDir);
+        }
+        return digest.digest();
+    }
+
+    private static void hashPath(MessageDigest digest, Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files = walk.filter(Files::isRegularFile).sorted().toList();
+                }
+                for (Path file : files) {
+                    update(digest, path.relativize(file).toString());
+                    hashFile(digest, file);
+                }
+            } else if (Files.isRegularFile(path)) {
+                hashFile(digest, path);
+            }
+        } catch (IOException e) {
+            // an unreadable entry only makes the key less precise
+            update(digest, e.toString());
+        }
+    }
+
+    private static void hashFile(MessageDigest digest, Path file) throws IOException {
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        digest.update(s.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
+
+/**
+ * Collects metrics of call graph construction, i.e., the fan-out and
+ * resolution time of each call site, and the growth of reachable methods
+ * and edges over time. The metrics can be dumped to a JSON file, and
+ * the call sites with the largest fan-out are reported in the log.
+ * <p>
+ * This class is thread-safe, so it also works with the parallel builder.
+ */
+class CallGraphProfiler {
+
+    private static final Logger logger = LogManager.getLogger(CallGraphProfiler.class);
+
+    /**
+     * Number of call sites in the megamorphic call site report.
+     */
+    static final int TOP_N = 20;
+
+    /**
+     * After this number of reachable methods, growth is sampled
+     * at its multiples instead of at the powers of two.
+     */
+    private static final int SAMPLE_INTERVAL = 1024;
+
+    private final long startTime = System.nanoTime();
+
+    private final AtomicInteger methods = new AtomicInteger();
+
+    private final AtomicInteger edges = new AtomicInteger();
+
+    private final Map<Invoke, CallSiteStats> callSites = newConcurrentMap();
+
+    private final Queue<Sample> growth = new ConcurrentLinkedQueue<>();
+
+    private volatile long endTime = -1;
+
+    private static class CallSiteStats {
+
+        private final AtomicInteger fanOut = new AtomicInteger();
+
+        private final AtomicLong resolveTime = new AtomicLong();
+    }
+
+    /**
+     * Growth of the call graph at given time (in nanoseconds since
+     * the start of profiling).
+     */
+    private record Sample(long time, int methods, int edges) {
+    }
+
+    void onNewMethod(JMethod method) {
+        int n = methods.incrementAndGet();
+        if (n < SAMPLE_INTERVAL ? Integer.bitCount(n) == 1 : n % SAMPLE_INTERVAL == 0) {
+            growth.add(new Sample(System.nanoTime() - startTime, n, edges.get()));
+        }
+    }
+
+    void onNewEdge(Edge<Invoke, JMethod> edge) {
+        edges.incrementAndGet();
+        getStats(edge.getCallSite()).fanOut.incrementAndGet();
+    }
+
+    /**
+     * Records the time (in nanoseconds) spent on resolving given call site.
+     */
+    void onResolve(Invoke callSite, long time) {
+        getStats(callSite).resolveTime.addAndGet(time);
+    }
+
+    private CallSiteStats getStats(Invoke callSite) {
+        return callSites.computeIfAbsent(callSite, __ -> new CallSiteStats());
+    }
+
+    /**
+     * Marks the end of call graph construction. The builders detach
+     * the profiler afterwards, so later changes of the call graph
+     * are not recorded.
+     */
+    void finish() {
+        endTime = System.nanoTime();
+        growth.add(new Sample(endTime - startTime, methods.get(), edges.get()));
+    }
+
+    /**
+     * Logs the call sites with the largest fan-out.
+     */
+    void reportMegamorphicCallSites() {
+        logger.info("---------- Top {} call sites by fan-out: ----------", TOP_N);
+        getTopCallSites().forEach(callSite -> {
+            CallSiteStats stats = callSites.get(callSite);
+            logger.info("{} callees ({} ms): {}", stats.fanOut.get(),
+                    String.format("%.3f", stats.resolveTime.get() / 1e6),
+                    CallGraphs.toString(callSite));
+        });
+        logger.info("----------------------------------------");
+    }
+
+    /**
+     * @return the (at most {@link #TOP_N}) call sites with
+     * the largest fan-out, in descending order of fan-out.
+     */
+    List<Invoke> getTopCallSites() {
+        return sortedCallSites()
+                .stream()
+                .limit(TOP_N)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private List<Map.Entry<Invoke, CallSiteStats>> sortedCallSites() {
+        return callSites.entrySet()
+                .stream()
+                .sorted(Comparator.comparingInt(
+                        (Map.Entry<Invoke, CallSiteStats> e) -> e.getValue().fanOut.get())
+                        .reversed()
+                        .thenComparing(e -> CallGraphs.toString(e.getKey())))
+                .toList();
+    }
+
+    /**
+     * Dumps the metrics to given file in JSON format.
+     */
+    void dump(String file) {
+        logger.info("Dumping call graph metrics to {} ...", file);
+        try (PrintStream out = new PrintStream(file)) {
+            out.println("{");
+            out.printf("  \"timeMs\": %d,%n", (endTime - startTime) / 1_000_000);
+            out.printf("  \"reachableMethods\": %d,%n", methods.get());
+            out.printf("  \"edges\": %d,%n", edges.get());
+            out.println("  \"growth\": [");
+            String sep = "";
+            for (Sample s : growth) {
+                out.printf("%s    {\"timeMs\": %d, \"methods\": %d, \"edges\": %d}",
+                        sep, s.time() / 1_000_000, s.methods(), s.edges());
+                sep = ",\n";
+            }
+            out.println("\n  ],");
+            out.println("  \"callSites\": [");
+            sep = "";
+            for (var e : sortedCallSites()) {
+                out.printf("%s    {\"callSite\": \"%s\", \"fanOut\": %d, \"resolveTimeNs\": %d}",
+                        sep, escape(CallGraphs.toString(e.getKey())),
+                        e.getValue().fanOut.get(), e.getValue().resolveTime.get());
+                sep = ",\n";
+            }
+            out.println("\n  ]");
+            out.println("}");
+        } catch (FileNotFoundException e) {
+            logger.warn("Failed to dump call graph metrics to {}", file, e);
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -24,8 +24,10 @@ package pascal.taie.analysis.graph.callgraph;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
 import pascal.taie.config.Configs;
 import pascal.taie.ir.IRPrinter;
+import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.ir.exp.InvokeDynamic;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.InvokeInterface;
@@ -33,14 +35,22 @@ import pascal.taie.ir.exp.InvokeSpecial;
 import pascal.taie.ir.exp.InvokeStatic;
 import pascal.taie.ir.exp.InvokeVirtual;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassNames;
+import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ArrayType;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
 import pascal.taie.util.AnalysisException;
 import pascal.taie.util.IDProvider;
 import pascal.taie.util.MapIDProvider;
 import pascal.taie.util.graph.DotDumper;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -73,6 +83,41 @@ public final class CallGraphs {
         return getCallKind(invoke.getInvokeExp());
     }
 
+    /**
+     * Resolves the callee of a call site. Virtual dispatch goes through
+     * {@link ClassHierarchy#dispatch(JClass, pascal.taie.language.classes.Subsignature)},
+     * thus shares its cached results with the CHA call graph builder.
+     *
+     * @param type     type of the receiver object, which is ignored
+     *                 for static and special calls
+     * @param callSite the call site to be resolved
+     * @return the resolved callee, or null if it cannot be resolved.
+     */
+    public static @Nullable
+    JMethod resolveCallee(@Nullable Type type, Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        if (callSite.isInterface() || callSite.isVirtual()) {
+            JClass jclass;
+            if (type instanceof ClassType classType) {
+                jclass = classType.getJClass();
+            } else if (type instanceof ArrayType) {
+                jclass = hierarchy.getJREClass(ClassNames.OBJECT);
+            } else {
+                throw new AnalysisException("Cannot dispatch " +
+                        methodRef + " on " + type);
+            }
+            return hierarchy.dispatch(jclass, methodRef.getSubsignature());
+        } else if (callSite.isSpecial()) {
+            return hierarchy.dispatch(methodRef.getDeclaringClass(),
+                    methodRef.getSubsignature());
+        } else if (callSite.isStatic()) {
+            return methodRef.resolveNullable();
+        } else {
+            throw new AnalysisException("Cannot resolve Invoke: " + callSite);
+        }
+    }
+
     /**
      * Dumps call graph to dot file.
      */
@@ -96,6 +141,19 @@ public final class CallGraphs {
                 .dump(callGraph, output);
     }
 
+    /**
+     * Adds given class and all its superclasses and (transitive)
+     * superinterfaces to {@code supertypes}.
+     */
+    static void collectSupertypes(JClass jclass, Set<JClass> supertypes) {
+        if (supertypes.add(jclass)) {
+            if (jclass.getSuperClass() != null) {
+                collectSupertypes(jclass.getSuperClass(), supertypes);
+            }
+            jclass.getInterfaces().forEach(i -> collectSupertypes(i, supertypes));
+        }
+    }
+
     public static String toString(Invoke invoke) {
         return invoke.getContainer() + IRPrinter.toString(invoke);
     }
@@ -0,0 +1,110 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.util.Set;
+
+/**
+ * Thread-safe counterpart of {@link DefaultCallGraph}, which can be
+ * grown by multiple threads at the same time.
+ */
+class ConcurrentCallGraph extends AbstractCallGraph<Invoke, JMethod> {
+
+    @Nullable
+    private CallGraphProfiler profiler;
+
+    ConcurrentCallGraph() {
+        // the call sites of a method are only added by the thread
+        // which makes the method reachable, so an ordered set suffices
+        super(new ConcurrentMultiMap<>(), new ConcurrentMultiMap<>(),
+                Maps.newConcurrentMap(),
+                new ConcurrentMultiMap<>(Sets::newHybridOrderedSet),
+                Sets.newConcurrentSet(), Sets.newConcurrentSet());
+    }
+
+    void setProfiler(@Nullable CallGraphProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    void addEntryMethod(JMethod entryMethod) {
+        entryMethods.add(entryMethod);
+    }
+
+    /**
+     * Adds given method to the reachable methods. If multiple threads
+     * add the same method, exactly one of them gets true and
+     * collects the call sites in the method.
+     */
+    boolean addReachableMethod(JMethod method) {
+        if (reachableMethods.add(method)) {
+            if (!method.isAbstract()) {
+                method.getIR().forEach(stmt -> {
+                    if (stmt instanceof Invoke invoke) {
+                        callSiteToContainer.put(invoke, method);
+                        callSitesIn.put(method, invoke);
+                    }
+                });
+            }
+            if (profiler != null) {
+                profiler.onNewMethod(method);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    boolean addEdge(Edge<Invoke, JMethod> edge) {
+        if (callSiteToEdges.put(edge.getCallSite(), edge)) {
+            calleeToEdges.put(edge.getCallee(), edge);
+            clearCaches();
+            if (profiler != null) {
+                profiler.onNewEdge(edge);
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public JMethod getContainerOf(Invoke invoke) {
+        return invoke.getContainer();
+    }
+
+    @Override
+    public boolean isRelevant(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public Set<JMethod> getResult(Stmt stmt) {
+        return getCalleesOf((Invoke) stmt);
+    }
+}
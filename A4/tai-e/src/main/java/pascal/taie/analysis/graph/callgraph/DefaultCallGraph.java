@@ -26,6 +26,8 @@ import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
 
+import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -33,6 +35,17 @@ import java.util.Set;
  */
 public class DefaultCallGraph extends AbstractCallGraph<Invoke, JMethod> {
 
+    /**
+     * Profiler to be notified of new methods and edges, or null
+     * if the construction of this call graph is not profiled.
+     */
+    @Nullable
+    private CallGraphProfiler profiler;
+
+    void setProfiler(@Nullable CallGraphProfiler profiler) {
+        this.profiler = profiler;
+    }
+
     /**
      * Adds an entry method to this call graph.
      */
@@ -56,6 +69,9 @@ public class DefaultCallGraph extends AbstractCallGraph<Invoke, JMethod> {
                     }
                 });
             }
+            if (profiler != null) {
+                profiler.onNewMethod(method);
+            }
             return true;
         }
         return false;
@@ -71,12 +87,53 @@ public class DefaultCallGraph extends AbstractCallGraph<Invoke, JMethod> {
     public boolean addEdge(Edge<Invoke, JMethod> edge) {
         if (callSiteToEdges.put(edge.getCallSite(), edge)) {
             calleeToEdges.put(edge.getCallee(), edge);
+            clearCaches();
+            if (profiler != null) {
+                profiler.onNewEdge(edge);
+            }
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Removes a call graph edge from this call graph.
+     *
+     * @param edge the call edge to be removed
+     * @return true if the call graph changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean removeEdge(Edge<Invoke, JMethod> edge) {
+        if (callSiteToEdges.remove(edge.getCallSite(), edge)) {
+            calleeToEdges.remove(edge.getCallee(), edge);
+            clearCaches();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Removes a reachable method from this call graph, together with
+     * its call sites and the edges into and out of it.
+     *
+     * @return true if this call graph changed as a result of the call,
+     * otherwise false.
+     */
+    public boolean removeReachableMethod(JMethod method) {
+        if (reachableMethods.remove(method)) {
+            for (Invoke callSite : List.copyOf(callSitesIn.get(method))) {
+                List.copyOf(callSiteToEdges.get(callSite)).forEach(this::removeEdge);
+                callSiteToContainer.remove(callSite);
+            }
+            callSitesIn.removeAll(method);
+            List.copyOf(calleeToEdges.get(method)).forEach(this::removeEdge);
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public JMethod getContainerOf(Invoke invoke) {
         return invoke.getContainer();
@@ -0,0 +1,225 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassNames;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.Type;
+import pascal.taie.util.collection.MultiMap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Maps.newMultiMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
+import static pascal.taie.util.collection.Sets.newSet;
+
+/**
+ * Implementation of the RTA (Rapid Type Analysis) algorithm.
+ * <p>
+ * Compared to CHA, RTA additionally tracks the classes instantiated
+ * (by {@link New} statements) in reachable methods, and dispatches virtual
+ * and interface calls only on these classes. When a class is instantiated
+ * after some call sites have been resolved, the targets of these call sites
+ * are updated accordingly, so the result does not depend on the order in
+ * which methods are processed.
+ */
+class RTABuilder implements CGBuilder<Invoke, JMethod> {
+
+    /**
+     * Profiler of call graph construction, or null if it is not profiled.
+     */
+    @Nullable
+    private final CallGraphProfiler profiler;
+
+    private ClassHierarchy hierarchy;
+
+    private DefaultCallGraph callGraph;
+
+    private Queue<JMethod> workList;
+
+    /**
+     * Classes instantiated in reachable methods.
+     */
+    private final Set<JClass> instantiatedClasses = newSet();
+
+    /**
+     * Virtual and interface call sites in reachable methods, grouped by
+     * their method references.
+     */
+    private final MultiMap<MethodRef, Invoke> virtualCallSites = newMultiMap();
+
+    /**
+     * Current targets of the method references in {@link #virtualCallSites}.
+     */
+    private final Map<MethodRef, Set<JMethod>> virtualTargets = newMap();
+
+    /**
+     * The method references in {@link #virtualTargets}, grouped by
+     * their declaring classes. A newly instantiated class only affects
+     * the method references declared in its supertypes.
+     */
+    private final MultiMap<JClass, MethodRef> refsByDeclaringClass = newMultiMap();
+
+    RTABuilder(@Nullable CallGraphProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public CallGraph<Invoke, JMethod> build() {
+        hierarchy = World.get().getClassHierarchy();
+        callGraph = new DefaultCallGraph();
+        callGraph.setProfiler(profiler);
+        workList = new ArrayDeque<>();
+        JMethod entry = World.get().getMainMethod();
+        callGraph.addEntryMethod(entry);
+        workList.add(entry);
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            if (callGraph.addReachableMethod(method)) {
+                processNewMethod(method);
+            }
+        }
+        return callGraph;
+    }
+
+    private void processNewMethod(JMethod method) {
+        if (method.isAbstract()) {
+            return;
+        }
+        // process instantiations first, so that the call sites of
+        // the same method see the classes instantiated in it
+        method.getIR().forEach(stmt -> {
+            if (stmt instanceof New newStmt) {
+                processNewClass(getInstantiatedClass(newStmt.getRValue().getType()));
+            }
+        });
+        callGraph.callSitesIn(method).forEach(this::processCallSite);
+    }
+
+    private JClass getInstantiatedClass(Type type) {
+        // virtual calls on arrays are dispatched to java.lang.Object
+        return type instanceof ClassType classType
+                ? classType.getJClass()
+                : hierarchy.getJREClass(ClassNames.OBJECT);
+    }
+
+    /**
+     * Adds the targets of the pending virtual calls that the newly
+     * instantiated class contributes.
+     */
+    private void processNewClass(JClass jclass) {
+        if (jclass == null || !instantiatedClasses.add(jclass)) {
+            return;
+        }
+        Set<JClass> supertypes = newSet();
+        CallGraphs.collectSupertypes(jclass, supertypes);
+        for (JClass supertype : supertypes) {
+            for (MethodRef methodRef : refsByDeclaringClass.get(supertype)) {
+                JMethod target = dispatch(jclass, methodRef);
+                if (target != null && virtualTargets.get(methodRef).add(target)) {
+                    virtualCallSites.get(methodRef).forEach(callSite ->
+                            addEdge(callSite, target));
+                }
+            }
+        }
+    }
+
+    private void processCallSite(Invoke callSite) {
+        Set<JMethod> callees;
+        if (profiler == null) {
+            callees = resolve(callSite);
+        } else {
+            // only the resolution is timed, not the edges and work-list
+            long start = System.nanoTime();
+            callees = resolve(callSite);
+            profiler.onResolve(callSite, System.nanoTime() - start);
+        }
+        callees.forEach(callee -> addEdge(callSite, callee));
+    }
+
+    /**
+     * Resolves the current targets of a call site. A virtual or interface
+     * call site is also registered, so that later instantiated classes
+     * can add their targets.
+     */
+    private Set<JMethod> resolve(Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        JMethod callee;
+        switch (CallGraphs.getCallKind(callSite)) {
+            case STATIC -> callee = methodRef.getDeclaringClass()
+                    .getDeclaredMethod(methodRef.getSubsignature());
+            case SPECIAL -> callee = dispatch(
+                    methodRef.getDeclaringClass(), methodRef);
+            case VIRTUAL, INTERFACE -> {
+                virtualCallSites.put(methodRef, callSite);
+                return virtualTargets.computeIfAbsent(
+                        methodRef, this::resolveVirtual);
+            }
+            default -> callee = null;
+        }
+        return callee != null ? Set.of(callee) : Set.of();
+    }
+
+    /**
+     * Resolves the targets of a virtual or interface call on
+     * the classes instantiated so far, and registers the method reference
+     * so that later instantiated classes can add their targets.
+     */
+    private Set<JMethod> resolveVirtual(MethodRef methodRef) {
+        JClass declaringClass = methodRef.getDeclaringClass();
+        refsByDeclaringClass.put(declaringClass, methodRef);
+        Set<JMethod> targets = newHybridSet();
+        for (JClass jclass : instantiatedClasses) {
+            if (hierarchy.isSubclass(declaringClass, jclass)) {
+                JMethod target = dispatch(jclass, methodRef);
+                if (target != null) {
+                    targets.add(target);
+                }
+            }
+        }
+        return targets;
+    }
+
+    private JMethod dispatch(JClass jclass, MethodRef methodRef) {
+        return hierarchy.dispatch(jclass, methodRef.getSubsignature());
+    }
+
+    private void addEdge(Invoke callSite, JMethod callee) {
+        if (callee != null && callGraph.addEdge(new Edge<>(
+                CallGraphs.getCallKind(callSite), callSite, callee))) {
+            workList.add(callee);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.util.AnalysisException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static pascal.taie.util.collection.Maps.newMap;
+
+/**
+ * Bottom-up (callee-first) schedule of the methods in a call graph.
+ * <p>
+ * The methods are partitioned into strongly connected components (SCCs),
+ * i.e., sets of mutually recursive methods, by an iterative version of
+ * Tarjan's algorithm, so deep call chains cannot overflow the stack.
+ * The components are given in reverse topological order, i.e., each
+ * component comes after the components it calls. They are further grouped
+ * into batches: a component is put in the batch right after the last batch
+ * containing its callees, thus the components in the same batch do not
+ * call each other and can be processed in parallel.
+ *
+ * @param <Method> type of methods
+ */
+public class SCCSchedule<Method> {
+
+    private final Map<Method, Integer> componentIndexes = newMap();
+
+    /**
+     * Components in reverse topological order.
+     */
+    private final List<List<Method>> components = new ArrayList<>();
+
+    /**
+     * Whether each component is recursive, i.e., contains a cycle.
+     */
+    private final List<Boolean> recursive = new ArrayList<>();
+
+    private final List<List<List<Method>>> batches = new ArrayList<>();
+
+    public SCCSchedule(CallGraph<?, Method> callGraph) {
+        this(callGraph.reachableMethods().toList(), callGraph::getSuccsOf);
+    }
+
+    /**
+     * Creates the schedule of given methods and call relation.
+     *
+     * @param methods the methods to schedule
+     * @param callees returns the callees of each method; callees that are
+     *                not in {@code methods} are ignored
+     */
+    public SCCSchedule(Collection<Method> methods,
+                       Function<Method, ? extends Collection<Method>> callees) {
+        List<Method> nodes = List.copyOf(methods);
+        Map<Method, Integer> ids = newMap();
+        nodes.forEach(m -> ids.put(m, ids.size()));
+        computeComponents(callees, nodes, ids);
+        computeBatches(callees);
+    }
+
+    private void computeComponents(
+            Function<Method, ? extends Collection<Method>> callees,
+            List<Method> nodes, Map<Method, Integer> ids) {
+        int n = nodes.size();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        int[] stack = new int[n];
+        int stackSize = 0;
+        // DFS frames, i.e., the visiting nodes and their successor iterators
+        int[] frameNodes = new int[n];
+        List<Iterator<Method>> frameSuccs = new ArrayList<>();
+        int nextIndex = 0;
+        for (int root = 0; root < n; ++root) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int top = 0;
+            frameNodes[0] = root;
+            frameSuccs.add(callees.apply(nodes.get(root)).iterator());
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while (top >= 0) {
+                int v = frameNodes[top];
+                Iterator<Method> succs = frameSuccs.get(top);
+                if (succs.hasNext()) {
+                    Integer w = ids.get(succs.next());
+                    if (w == null) {
+                        continue;
+                    }
+                    if (index[w] == -1) {
+                        index[w] = lowLink[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        ++top;
+                        frameNodes[top] = w;
+                        frameSuccs.add(callees.apply(nodes.get(w)).iterator());
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                } else {
+                    frameSuccs.remove(top--);
+                    if (top >= 0) {
+                        int u = frameNodes[top];
+                        lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+                    }
+                    if (lowLink[v] == index[v]) {
+                        // v is the root of a component
+                        List<Method> component = new ArrayList<>();
+                        int w;
+                        do {
+                            w = stack[--stackSize];
+                            onStack[w] = false;
+                            component.add(nodes.get(w));
+                            componentIndexes.put(nodes.get(w), components.size());
+                        } while (w != v);
+                        Method method = nodes.get(v);
+                        recursive.add(component.size() > 1
+                                || callees.apply(method).contains(method));
+                        components.add(Collections.unmodifiableList(component));
+                    }
+                }
+            }
+        }
+    }
+
+    private void computeBatches(Function<Method, ? extends Collection<Method>> callees) {
+        int[] levels = new int[components.size()];
+        for (int c = 0; c < components.size(); ++c) {
+            int level = 0;
+            for (Method method : components.get(c)) {
+                for (Method callee : callees.apply(method)) {
+                    Integer d = componentIndexes.get(callee);
+                    // callees are in the preceding components
+                    if (d != null && d != c) {
+                        level = Math.max(level, levels[d] + 1);
+                    }
+                }
+            }
+            levels[c] = level;
+            if (level == batches.size()) {
+                batches.add(new ArrayList<>());
+            }
+            batches.get(level).add(components.get(c));
+        }
+    }
+
+    /**
+     * @return the components in reverse topological order, i.e.,
+     * every component comes after the components it calls.
+     */
+    public List<List<Method>> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * @return the index of the component containing given method
+     * in {@link #getComponents()}, or -1 if the method is not
+     * in the call graph.
+     */
+    public int getComponentIndex(Method method) {
+        Integer index = componentIndexes.get(method);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return true if given method is in a recursive component, i.e.,
+     * it (transitively) calls itself.
+     */
+    public boolean isRecursive(Method method) {
+        int index = getComponentIndex(method);
+        return index >= 0 && recursive.get(index);
+    }
+
+    /**
+     * @return the batches of components. The components in a batch do not
+     * call each other, and they only call the components in the same
+     * or the preceding batches.
+     */
+    public List<List<List<Method>>> getBatches() {
+        return Collections.unmodifiableList(batches);
+    }
+
+    /**
+     * Applies given action to every component in bottom-up order.
+     * If {@code executor} is given, the components in the same batch are
+     * processed in parallel by it, and each batch is started after
+     * the previous batch has been finished.
+     */
+    public void process(Consumer<? super List<Method>> action,
+                        @Nullable ExecutorService executor) {
+        for (List<List<Method>> batch : batches) {
+            if (executor == null || batch.size() == 1) {
+                batch.forEach(action);
+            } else {
+                List<Future<?>> futures = batch.stream()
+                        .<Future<?>>map(c -> executor.submit(() -> action.accept(c)))
+                        .toList();
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AnalysisException(e);
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException re) {
+                            throw re;
+                        } else if (e.getCause() instanceof Error err) {
+                            throw err;
+                        }
+                        throw new AnalysisException(e.getCause());
+                    }
+                }
+            }
+        }
+    }
+}
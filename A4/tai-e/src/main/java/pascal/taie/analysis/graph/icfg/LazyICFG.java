@@ -0,0 +1,327 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Views;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
+import static pascal.taie.util.collection.Maps.newMultiMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
+
+/**
+ * ICFG that is built on demand.
+ * <p>
+ * Unlike {@link DefaultICFG}, which connects the CFGs of all reachable
+ * methods up front, this ICFG builds the edges of a method when the edges
+ * of any of its nodes are first queried, and the CFG of a method when it
+ * is first needed. Thus, the solvers, which start from the entry methods,
+ * only build the methods that they reach. The edges are kept for
+ * at most {@code capacity} methods; when more are built, the edges of
+ * the methods built the earliest are dropped and rebuilt when needed
+ * again. As the edges are compared by their endpoints, rebuilt edges are
+ * equal to the dropped ones. The edges of different methods are built
+ * concurrently; if two threads build the edges of the same method at
+ * once, the edges of the first are kept.
+ * <p>
+ * If the CFG of a method has not been built by {@link CFGBuilder}, its
+ * exceptions are analyzed by {@link ThrowAnalysis} on demand, so this ICFG
+ * does not require the CFGs or exceptions of all methods to be analyzed
+ * in advance.
+ * <p>
+ * Only the edges are bounded. The CFGs of the methods built so far are
+ * kept (in the IRs, as if built by {@link CFGBuilder}), as their entry
+ * and exit nodes must stay the same, and so are the containing methods
+ * of their nodes. Thus, this ICFG keeps as much as the CFGs and nodes
+ * that {@link DefaultICFG} needs, but only for the methods reached.
+ * The same holds for the facts and work-list of a solver on this ICFG,
+ * which grow with the nodes that it reaches.
+ * <p>
+ * {@link #getNodes()} and {@link #hasNode(Stmt)} still need the nodes of
+ * all reachable methods, which builds their CFGs.
+ * <p>
+ * This class is thread-safe, so that it can be queried by parallel solvers.
+ */
+public class LazyICFG extends AbstractICFG<JMethod, Stmt> {
+
+    /**
+     * Edges of at most {@link #capacity} methods.
+     */
+    private final Map<JMethod, Edges> edges = newConcurrentMap();
+
+    /**
+     * Methods in {@link #edges}, in the order in which their edges
+     * were built, which is the order in which they are dropped.
+     */
+    private final Queue<JMethod> builtMethods = new ConcurrentLinkedQueue<>();
+
+    private final int capacity;
+
+    /**
+     * Containing methods of the nodes of the CFGs built so far.
+     */
+    private final Map<Stmt, JMethod> stmtToMethod = newConcurrentMap();
+
+    /**
+     * All nodes of this ICFG, which are collected on the first query.
+     */
+    private volatile Set<Stmt> nodes;
+
+    private final ThrowAnalysis throwAnalysis = new ThrowAnalysis(new AnalysisConfig(
+            ThrowAnalysis.ID, "exception", "explicit", "algorithm", "intra"));
+
+    private final CFGBuilder cfgBuilder = new CFGBuilder(new AnalysisConfig(
+            CFGBuilder.ID, "exception", "explicit", "dump", false));
+
+    public LazyICFG(CallGraph<Stmt, JMethod> callGraph, int capacity) {
+        super(callGraph);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Incoming and outgoing edges of the nodes of a method.
+     */
+    private record Edges(MultiMap<Stmt, ICFGEdge<Stmt>> inEdges,
+                         MultiMap<Stmt, ICFGEdge<Stmt>> outEdges) {
+    }
+
+    private CFG<Stmt> getCFGOf(JMethod method) {
+        IR ir = method.getIR();
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        if (cfg == null) {
+            synchronized (ir) {
+                cfg = ir.getResult(CFGBuilder.ID);
+                if (cfg == null) {
+                    cfg = buildCFG(ir);
+                    ir.storeResult(CFGBuilder.ID, cfg);
+                }
+            }
+        }
+        if (!stmtToMethod.containsKey(cfg.getEntry())) {
+            cfg.forEach(stmt -> stmtToMethod.put(stmt, method));
+        }
+        return cfg;
+    }
+
+    /**
+     * Builds the CFG of given IR. The result of {@link ThrowAnalysis}
+     * is only kept if it was present.
+     */
+    private CFG<Stmt> buildCFG(IR ir) {
+        if (ir.getResult(ThrowAnalysis.ID) != null) {
+            return cfgBuilder.analyze(ir);
+        }
+        ir.storeResult(ThrowAnalysis.ID, throwAnalysis.analyze(ir));
+        CFG<Stmt> cfg = cfgBuilder.analyze(ir);
+        ir.clearResult(ThrowAnalysis.ID);
+        return cfg;
+    }
+
+    private Edges getEdgesOf(JMethod method) {
+        Edges result = edges.get(method);
+        if (result == null) {
+            result = buildEdges(method);
+            Edges existing = edges.putIfAbsent(method, result);
+            if (existing != null) {
+                return existing;
+            }
+            builtMethods.add(method);
+            while (edges.size() > capacity) {
+                JMethod eldest = builtMethods.poll();
+                if (eldest == null) {
+                    break;
+                }
+                edges.remove(eldest);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the edges from and to the nodes of given method, in the same
+     * way as {@link DefaultICFG}.
+     */
+    private Edges buildEdges(JMethod method) {
+        Edges result = new Edges(newMultiMap(), newMultiMap());
+        CFG<Stmt> cfg = getCFGOf(method);
+        cfg.forEach(stmt -> {
+            cfg.getOutEdgesOf(stmt).forEach(edge -> {
+                ICFGEdge<Stmt> local = isCallSite(stmt) ?
+                        new CallToReturnEdge<>(edge) :
+                        new NormalEdge<>(edge);
+                result.outEdges().put(stmt, local);
+                result.inEdges().put(edge.getTarget(), local);
+            });
+            if (isCallSite(stmt)) {
+                for (JMethod callee : getCalleesOf(stmt)) {
+                    CFG<Stmt> calleeCFG = getCFGOf(callee);
+                    result.outEdges().put(stmt,
+                            new CallEdge<>(stmt, calleeCFG.getEntry(), callee));
+                    for (Stmt retSite : cfg.getSuccsOf(stmt)) {
+                        result.inEdges().put(retSite,
+                                newReturnEdge(calleeCFG, retSite, stmt));
+                    }
+                }
+            }
+        });
+        for (Stmt callSite : getCallersOf(method)) {
+            result.inEdges().put(cfg.getEntry(),
+                    new CallEdge<>(callSite, cfg.getEntry(), method));
+            CFG<Stmt> callerCFG = getCFGOf(callGraph.getContainerOf(callSite));
+            for (Stmt retSite : callerCFG.getSuccsOf(callSite)) {
+                result.outEdges().put(cfg.getExit(),
+                        newReturnEdge(cfg, retSite, callSite));
+            }
+        }
+        return result;
+    }
+
+    private static ReturnEdge<Stmt> newReturnEdge(
+            CFG<Stmt> calleeCFG, Stmt retSite, Stmt callSite) {
+        Set<Var> retVars = newHybridSet();
+        Set<ClassType> exceptions = newHybridSet();
+        for (Edge<Stmt> edge : calleeCFG.getInEdgesOf(calleeCFG.getExit())) {
+            if (edge.getKind() == Edge.Kind.RETURN) {
+                Var retVar = ((Return) edge.getSource()).getValue();
+                if (retVar != null) {
+                    retVars.add(retVar);
+                }
+            }
+            if (edge.isExceptional()) {
+                exceptions.addAll(edge.getExceptions());
+            }
+        }
+        return new ReturnEdge<>(calleeCFG.getExit(), retSite, callSite,
+                retVars, exceptions);
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getInEdgesOf(Stmt stmt) {
+        return getEdgesOf(getContainingMethodOf(stmt)).inEdges().get(stmt);
+    }
+
+    @Override
+    public Set<ICFGEdge<Stmt>> getOutEdgesOf(Stmt stmt) {
+        return getEdgesOf(getContainingMethodOf(stmt)).outEdges().get(stmt);
+    }
+
+    @Override
+    public Stmt getEntryOf(JMethod method) {
+        return getCFGOf(method).getEntry();
+    }
+
+    @Override
+    public Stmt getExitOf(JMethod method) {
+        return getCFGOf(method).getExit();
+    }
+
+    @Override
+    public Set<Stmt> getReturnSitesOf(Stmt callSite) {
+        assert isCallSite(callSite);
+        return getCFGOf(getContainingMethodOf(callSite)).getSuccsOf(callSite);
+    }
+
+    @Override
+    public JMethod getContainingMethodOf(Stmt stmt) {
+        JMethod method = stmtToMethod.get(stmt);
+        if (method == null) {
+            if (isCallSite(stmt)) {
+                method = callGraph.getContainerOf(stmt);
+            }
+            if (method == null) {
+                // the CFG containing the node has not been built yet,
+                // which never happens to the nodes given by this ICFG
+                getNodes();
+                method = stmtToMethod.get(stmt);
+            }
+        }
+        return method;
+    }
+
+    @Override
+    public boolean isCallSite(Stmt stmt) {
+        return stmt instanceof Invoke;
+    }
+
+    @Override
+    public boolean hasNode(Stmt stmt) {
+        return stmtToMethod.containsKey(stmt) || getNodes().contains(stmt);
+    }
+
+    @Override
+    public boolean hasEdge(Stmt source, Stmt target) {
+        return getOutEdgesOf(source)
+                .stream()
+                .anyMatch(edge -> edge.getTarget().equals(target));
+    }
+
+    @Override
+    public Set<Stmt> getPredsOf(Stmt stmt) {
+        return Views.toMappedSet(getInEdgesOf(stmt), ICFGEdge::getSource);
+    }
+
+    @Override
+    public Set<Stmt> getSuccsOf(Stmt stmt) {
+        return Views.toMappedSet(getOutEdgesOf(stmt), ICFGEdge::getTarget);
+    }
+
+    /**
+     * Collects the nodes of all reachable methods, which builds their CFGs
+     * (if absent) but no ICFG edges.
+     */
+    @Override
+    public Set<Stmt> getNodes() {
+        Set<Stmt> result = nodes;
+        if (result == null) {
+            synchronized (this) {
+                result = nodes;
+                if (result == null) {
+                    Set<Stmt> all = new LinkedHashSet<>();
+                    callGraph.forEach(method -> getCFGOf(method).forEach(all::add));
+                    nodes = result = Collections.unmodifiableSet(all);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -26,6 +26,7 @@ import pascal.taie.ir.proginfo.MethodRef;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -46,10 +47,35 @@ public interface ClassHierarchy {
     /**
      * Adds a JClass into class hierarchy.
      * This API should be invoked everytime {@link JClassLoader}
-     * loads a new JClass.
+     * loads a new JClass. A class that its loader does not know
+     * (e.g., a class added after the program was loaded) can also
+     * be added, and the hierarchy then returns it for its name.
      */
     void addClass(JClass jclass);
 
+    /**
+     * Removes a JClass from class hierarchy. As the subclasses of
+     * the removed class still refer to it, they should be removed as well.
+     * After that, the hierarchy no longer returns the class for its name,
+     * even though its class loader still knows it.
+     */
+    void removeClass(JClass jclass);
+
+    /**
+     * Replaces a JClass in class hierarchy with a new version of it,
+     * i.e., a class of the same name. The direct subclasses, implementors
+     * and subinterfaces of the old class are rewired to the new one,
+     * so unlike {@link #removeClass(JClass)}, they stay in the hierarchy.
+     * <p>
+     * Note that this rewiring changes the supertypes of these
+     * {@link JClass} objects in place, instead of creating new versions
+     * of them, so that their methods (and what refers to them, e.g.,
+     * IR and call graphs) stay valid. Hence, the old class is no longer
+     * a supertype of any class. This method must not run concurrently
+     * with other queries on the hierarchy or the classes.
+     */
+    void replaceClass(JClass oldClass, JClass newClass);
+
     Stream<JClass> allClasses();
 
     Stream<JClass> applicationClasses();
@@ -75,6 +101,18 @@ public interface ClassHierarchy {
      */
     Collection<JClass> getDirectSubclassesOf(JClass jclass);
 
+    /**
+     * @return true if {@code subclass} is {@code superclass}, or a (transitive)
+     * subclass, implementor or subinterface of {@code superclass}.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass);
+
+    /**
+     * @return an immutable set of given class/interface and all its
+     * (transitive) subclasses, implementors and subinterfaces.
+     */
+    Set<JClass> getAllSubclassesOf(JClass jclass);
+
     /**
      * Obtains a JRE class by it name.
      *
@@ -87,6 +125,18 @@ public interface ClassHierarchy {
 
     @Nullable JMethod resolveMethod(MethodRef methodRef);
 
+    /**
+     * Looks up the target method of a virtual dispatch, i.e., the first
+     * non-abstract method with given subsignature along the superclass
+     * chain of given class. The results (including failed lookups)
+     * are cached, so this method is cheap to call repeatedly.
+     *
+     * @return the dispatched target method, or null if no satisfying
+     * method can be found.
+     */
+    @Nullable
+    JMethod dispatch(JClass jclass, Subsignature subsignature);
+
     /**
      * Obtains a method declared in a JRE class by its signature.
      *
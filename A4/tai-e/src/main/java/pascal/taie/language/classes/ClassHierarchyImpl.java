@@ -28,12 +28,16 @@ import pascal.taie.ir.proginfo.MethodRef;
 import pascal.taie.util.AnalysisException;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
 import static pascal.taie.util.collection.Maps.newMap;
 import static pascal.taie.util.collection.Maps.newSmallMap;
 import static pascal.taie.util.collection.Sets.newHybridSet;
@@ -65,6 +69,34 @@ public class ClassHierarchyImpl implements ClassHierarchy {
      */
     private final Map<JClass, Set<JClass>> directSubclasses = newMap();
 
+    /**
+     * Classes added, removed and replaced after the class loaders loaded
+     * the program, by their loaders and names. A removed class is mapped
+     * to an empty {@link Optional}. The loaders do not know about these
+     * changes, so class lookups consult this map first.
+     */
+    private final Map<JClassLoader, Map<String, Optional<JClass>>> changedClasses
+            = newSmallMap();
+
+    /**
+     * Per-class dispatch tables, which map subsignatures to dispatched
+     * methods. Failed lookups are cached as empty {@link Optional}s.
+     * The declared methods of a class never change after it is loaded,
+     * and its superclass chain changes only when one of the classes on it
+     * is replaced, which drops the tables of the subclasses. Hence,
+     * the cached results stay valid when new classes are added to the
+     * hierarchy (or removed together with their subclasses).
+     */
+    private final Map<JClass, Map<Subsignature, Optional<JMethod>>> dispatchTable
+            = newConcurrentMap();
+
+    /**
+     * Index of the subtype relation, which is built on first use
+     * (normally after all classes are loaded) and then kept up to date
+     * as classes are added, removed and replaced.
+     */
+    private volatile SubclassIndex subclassIndex;
+
     @Override
     public void setDefaultClassLoader(JClassLoader loader) {
         this.defaultLoader = loader;
@@ -97,6 +129,60 @@ public class ClassHierarchyImpl implements ClassHierarchy {
 
     @Override
     public void addClass(JClass jclass) {
+        JClassLoader loader = jclass.getClassLoader();
+        if (loader.loadClass(jclass.getName()) != jclass) {
+            // not loaded by its loader, e.g., added by an incremental update
+            setChangedClass(loader, jclass.getName(), jclass);
+        }
+        link(jclass);
+        SubclassIndex index = subclassIndex;
+        if (index != null) {
+            index.onClassAdded(jclass);
+        }
+    }
+
+    @Override
+    public void removeClass(JClass jclass) {
+        SubclassIndex index = subclassIndex;
+        if (index != null) {
+            index.onClassRemoved(jclass);
+        }
+        unlink(jclass);
+        dispatchTable.remove(jclass);
+        setChangedClass(jclass.getClassLoader(), jclass.getName(), null);
+    }
+
+    @Override
+    public void replaceClass(JClass oldClass, JClass newClass) {
+        SubclassIndex index = getSubclassIndex();
+        // the dispatch results of the subclasses may go through the old class
+        Set<JClass> subclasses = index.getAllSubclassesOf(oldClass);
+        List<JClass> children = new ArrayList<>();
+        children.addAll(getDirectSubinterfacesOf(oldClass));
+        children.addAll(getDirectImplementorsOf(oldClass));
+        children.addAll(getDirectSubclassesOf(oldClass));
+        unlink(oldClass);
+        link(newClass);
+        for (JClass child : children) {
+            child.replaceSupertype(oldClass, newClass);
+            link(child);
+        }
+        subclasses.forEach(dispatchTable::remove);
+        index.onClassReplaced(oldClass, newClass, subclasses);
+        setChangedClass(oldClass.getClassLoader(), oldClass.getName(), null);
+        setChangedClass(newClass.getClassLoader(), newClass.getName(), newClass);
+    }
+
+    private void setChangedClass(JClassLoader loader, String name,
+                                 @Nullable JClass jclass) {
+        changedClasses.computeIfAbsent(loader, l -> newMap())
+                .put(name, Optional.ofNullable(jclass));
+    }
+
+    /**
+     * Registers given class as a direct subtype of its supertypes.
+     */
+    private void link(JClass jclass) {
         // Add direct subinterface
         if (jclass.isInterface()) {
             jclass.getInterfaces().forEach(iface ->
@@ -119,13 +205,54 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         }
     }
 
+    /**
+     * Unregisters given class from its supertypes, and drops
+     * its own direct subtypes.
+     */
+    private void unlink(JClass jclass) {
+        if (jclass.isInterface()) {
+            jclass.getInterfaces().forEach(iface ->
+                    removeFrom(directSubinterfaces, iface, jclass));
+        } else {
+            jclass.getInterfaces().forEach(iface ->
+                    removeFrom(directImplementors, iface, jclass));
+            JClass superClass = jclass.getSuperClass();
+            if (superClass != null) {
+                removeFrom(directSubclasses, superClass, jclass);
+            }
+        }
+        directSubinterfaces.remove(jclass);
+        directImplementors.remove(jclass);
+        directSubclasses.remove(jclass);
+    }
+
+    private static void removeFrom(
+            Map<JClass, Set<JClass>> map, JClass key, JClass value) {
+        Set<JClass> values = map.get(key);
+        if (values != null) {
+            values.remove(value);
+        }
+    }
+
     @Override
     public Stream<JClass> allClasses() {
-        return loaders.values()
+        Stream<JClass> loaded = loaders.values()
                 .stream()
                 .distinct()
                 .map(JClassLoader::getLoadedClasses)
                 .flatMap(Collection::stream);
+        if (changedClasses.isEmpty()) {
+            return loaded;
+        }
+        Stream<JClass> unchanged = loaded.filter(c ->
+                !changedClasses.getOrDefault(c.getClassLoader(), Map.of())
+                        .containsKey(c.getName()));
+        Stream<JClass> changed = changedClasses.values()
+                .stream()
+                .map(Map::values)
+                .flatMap(Collection::stream)
+                .flatMap(Optional::stream);
+        return Stream.concat(unchanged, changed);
     }
 
     @Override
@@ -136,6 +263,13 @@ public class ClassHierarchyImpl implements ClassHierarchy {
     @Override
     public @Nullable
     JClass getClass(JClassLoader loader, String name) {
+        Map<String, Optional<JClass>> changed = changedClasses.get(loader);
+        if (changed != null) {
+            Optional<JClass> jclass = changed.get(name);
+            if (jclass != null) {
+                return jclass.orElse(null);
+            }
+        }
         return loader.loadClass(name);
     }
 
@@ -160,6 +294,29 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return directSubclasses.getOrDefault(jclass, Set.of());
     }
 
+    @Override
+    public boolean isSubclass(JClass superclass, JClass subclass) {
+        return getSubclassIndex().isSubclass(superclass, subclass);
+    }
+
+    @Override
+    public Set<JClass> getAllSubclassesOf(JClass jclass) {
+        return getSubclassIndex().getAllSubclassesOf(jclass);
+    }
+
+    private SubclassIndex getSubclassIndex() {
+        SubclassIndex index = subclassIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = subclassIndex;
+                if (index == null) {
+                    index = subclassIndex = new SubclassIndex(this);
+                }
+            }
+        }
+        return index;
+    }
+
     private static boolean checkCHA = false;
 
     public static void setCheckCHA(boolean checkCHA) {
@@ -193,6 +350,28 @@ public class ClassHierarchyImpl implements ClassHierarchy {
         return null;
     }
 
+    @Override
+    public @Nullable
+    JMethod dispatch(JClass jclass, Subsignature subsignature) {
+        Map<Subsignature, Optional<JMethod>> table = dispatchTable
+                .computeIfAbsent(jclass, c -> newConcurrentMap());
+        Optional<JMethod> target = table.get(subsignature);
+        if (target == null) {
+            // fill the tables of the superclasses on the way,
+            // so that their later lookups are cache hits too
+            JMethod method = jclass.getDeclaredMethod(subsignature);
+            if (method == null || method.isAbstract()) {
+                JClass superClass = jclass.getSuperClass();
+                method = superClass != null ?
+                        dispatch(superClass, subsignature) : null;
+            }
+            target = Optional.ofNullable(method);
+            // racing lookups compute the same target, so plain put suffices
+            table.put(subsignature, target);
+        }
+        return target.orElse(null);
+    }
+
     private JMethod lookupMethod(JClass jclass, Subsignature subsignature,
                                  boolean allowAbstract) {
         for (JClass c = jclass; c != null; c = c.getSuperClass()) {
@@ -177,6 +177,28 @@ public class JClass extends AbstractResultHolder implements Annotated {
         return interfaces;
     }
 
+    /**
+     * Rewires this class to a new version of its direct superclass or
+     * superinterface, which is used when the supertype is replaced in
+     * the class hierarchy, as the compiled class does not depend on
+     * the contents of its supertypes.
+     * <p>
+     * This is the only change to a class after it is built. It mutates
+     * this class in place (instead of creating a new version of it),
+     * so that its fields and methods keep their identities; see
+     * {@link ClassHierarchy#replaceClass(JClass, JClass)}.
+     */
+    void replaceSupertype(JClass oldClass, JClass newClass) {
+        if (superClass == oldClass) {
+            superClass = newClass;
+        }
+        if (interfaces.contains(oldClass)) {
+            interfaces = interfaces.stream()
+                    .map(i -> i == oldClass ? newClass : i)
+                    .toList();
+        }
+    }
+
     public boolean hasOuterClass() {
         return outerClass != null;
     }
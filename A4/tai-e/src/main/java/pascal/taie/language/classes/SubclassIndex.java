@@ -0,0 +1,241 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.language.classes;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import static pascal.taie.util.collection.Maps.newConcurrentMap;
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Sets.newSet;
+
+/**
+ * Index of the subtype relation of a class hierarchy, built from a snapshot
+ * of the hierarchy and then updated as classes are added, removed and
+ * replaced. The update cost is proportional to the number of supertypes
+ * of the changed class (plus its subclasses, if it moves in the hierarchy).
+ * <p>
+ * The classes (excluding interfaces) form a forest by their superclasses;
+ * each class is numbered by a depth-first traversal of the forest, so that
+ * the subclasses of a class are exactly the classes whose numbers fall into
+ * the interval of the class, and subclass checks between classes take O(1)
+ * time. As interfaces form a DAG, subtype checks against interfaces look up
+ * the (cached) sets of all subtypes instead. Classes outside the snapshot
+ * have no numbers, and subclass checks on them walk up the superclasses.
+ */
+final class SubclassIndex {
+
+    private final ClassHierarchy hierarchy;
+
+    /**
+     * Pre-order number and the largest pre-order number
+     * among the subclasses of each class.
+     */
+    private final Map<JClass, Interval> intervals = newMap();
+
+    /**
+     * Cache of immutable sets of all subtypes of each class/interface.
+     */
+    private final Map<JClass, Set<JClass>> allSubclasses = newConcurrentMap();
+
+    SubclassIndex(ClassHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        Set<JClass> roots = newSet();
+        hierarchy.allClasses()
+                .filter(c -> !c.isInterface())
+                .forEach(c -> {
+                    JClass root = c;
+                    while (root.getSuperClass() != null) {
+                        root = root.getSuperClass();
+                    }
+                    roots.add(root);
+                });
+        int counter = 0;
+        for (JClass root : roots) {
+            counter = number(root, counter);
+        }
+    }
+
+    /**
+     * Numbers the classes in the tree rooted at given class by an iterative
+     * depth-first traversal, starting from {@code counter}.
+     *
+     * @return the next unused number.
+     */
+    private int number(JClass root, int counter) {
+        Map<JClass, Integer> pre = newMap();
+        Deque<JClass> stack = new ArrayDeque<>();
+        Deque<Iterator<JClass>> children = new ArrayDeque<>();
+        pre.put(root, counter++);
+        stack.push(root);
+        children.push(hierarchy.getDirectSubclassesOf(root).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<JClass> it = children.peek();
+            if (it.hasNext()) {
+                JClass child = it.next();
+                if (!pre.containsKey(child)) {
+                    pre.put(child, counter++);
+                    stack.push(child);
+                    children.push(hierarchy.getDirectSubclassesOf(child).iterator());
+                }
+            } else {
+                JClass c = stack.pop();
+                children.pop();
+                intervals.put(c, new Interval(pre.get(c), counter - 1));
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @return true if {@code subclass} is {@code superclass},
+     * or a (transitive) subclass, implementor or subinterface of it.
+     */
+    boolean isSubclass(JClass superclass, JClass subclass) {
+        if (superclass == subclass) {
+            return true;
+        }
+        if (superclass.isInterface()) {
+            return getAllSubclassesOf(superclass).contains(subclass);
+        }
+        if (subclass.isInterface()) {
+            // only java.lang.Object is a superclass of interfaces
+            return superclass.getSuperClass() == null
+                    && superclass.getName().equals(ClassNames.OBJECT);
+        }
+        Interval sup = intervals.get(superclass);
+        Interval sub = intervals.get(subclass);
+        if (sup != null && sub != null) {
+            return sup.pre() <= sub.pre() && sub.pre() <= sup.last();
+        }
+        // not in the snapshot, fall back to walking up the superclasses
+        for (JClass c = subclass; c != null; c = c.getSuperClass()) {
+            if (c == superclass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return an immutable set of given class/interface and all its
+     * (transitive) subclasses, implementors and subinterfaces.
+     */
+    Set<JClass> getAllSubclassesOf(JClass jclass) {
+        Set<JClass> result = allSubclasses.get(jclass);
+        if (result == null) {
+            result = Collections.unmodifiableSet(collectSubclasses(jclass));
+            allSubclasses.put(jclass, result);
+        }
+        return result;
+    }
+
+    /**
+     * Collects the subtypes of given class/interface in breadth-first order,
+     * so that iterating the result (e.g., by CHA) is deterministic.
+     */
+    private Set<JClass> collectSubclasses(JClass jclass) {
+        Set<JClass> result = new LinkedHashSet<>();
+        Queue<JClass> queue = new ArrayDeque<>();
+        queue.add(jclass);
+        while (!queue.isEmpty()) {
+            JClass c = queue.poll();
+            if (result.add(c)) {
+                if (c.isInterface()) {
+                    queue.addAll(hierarchy.getDirectSubinterfacesOf(c));
+                    queue.addAll(hierarchy.getDirectImplementorsOf(c));
+                } else {
+                    queue.addAll(hierarchy.getDirectSubclassesOf(c));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Updates this index after given class has been added to the hierarchy.
+     */
+    void onClassAdded(JClass jclass) {
+        invalidate(jclass);
+    }
+
+    /**
+     * Updates this index after given class has been removed from the hierarchy.
+     */
+    void onClassRemoved(JClass jclass) {
+        invalidate(jclass);
+        intervals.remove(jclass);
+    }
+
+    /**
+     * Updates this index after a class has been replaced in the hierarchy.
+     *
+     * @param subclasses the subtypes of the old class before the replacement
+     */
+    void onClassReplaced(JClass oldClass, JClass newClass, Set<JClass> subclasses) {
+        invalidate(oldClass);
+        invalidate(newClass);
+        Interval interval = intervals.remove(oldClass);
+        if (interval != null && !newClass.isInterface()
+                && newClass.getSuperClass() == oldClass.getSuperClass()) {
+            // the new class takes the place of the old one in the forest
+            intervals.put(newClass, interval);
+        } else {
+            // the subclasses have moved, so their numbers are stale
+            subclasses.forEach(intervals::remove);
+        }
+    }
+
+    /**
+     * Discards the cached subtype sets that contain given class,
+     * i.e., the ones of the class and all its supertypes.
+     */
+    private void invalidate(JClass jclass) {
+        Set<JClass> visited = newSet();
+        Queue<JClass> queue = new ArrayDeque<>();
+        queue.add(jclass);
+        while (!queue.isEmpty()) {
+            JClass c = queue.poll();
+            if (visited.add(c)) {
+                allSubclasses.remove(c);
+                if (c.getSuperClass() != null) {
+                    queue.add(c.getSuperClass());
+                }
+                queue.addAll(c.getInterfaces());
+            }
+        }
+    }
+
+    /**
+     * @param pre  pre-order number of a class
+     * @param last the largest pre-order number among the subclasses of the class
+     */
+    private record Interval(int pre, int last) {
+    }
+}
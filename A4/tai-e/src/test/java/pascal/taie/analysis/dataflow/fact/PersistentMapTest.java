@@ -0,0 +1,210 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMapTest {
+
+    /**
+     * Hash codes of keys, which share lower bits (so that the keys collide
+     * at the upper levels of the trie) or are equal (so that the keys
+     * are kept in collision nodes).
+     */
+    private static final int[] HASHES = {
+            0, 1, 32, 1 << 10, 1 << 30, (1 << 30) | 1, -1, 0x7fff_ffff, 33,
+    };
+
+    private record Key(int id) {
+
+        @Override
+        public int hashCode() {
+            return id % 3 == 0 ? id : HASHES[id % HASHES.length];
+        }
+    }
+
+    private static Key randomKey(Random random) {
+        // a few null keys are also mapped
+        return random.nextInt(50) == 0 ? null : new Key(random.nextInt(60));
+    }
+
+    private static void assertSameMap(Map<Key, Integer> expected,
+                                      PersistentMap<Key, Integer> map) {
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(map, expected);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+        // iteration visits each mapping exactly once
+        Map<Key, Integer> iterated = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<Key, Integer> e : map.entrySet()) {
+            iterated.put(e.getKey(), e.getValue());
+            ++count;
+        }
+        Assert.assertEquals(expected.size(), count);
+        Assert.assertEquals(expected, iterated);
+        // the same mappings put in another order form an equal trie
+        List<Map.Entry<Key, Integer>> entries = new ArrayList<>(expected.entrySet());
+        Collections.shuffle(entries, new Random(count));
+        PersistentMap<Key, Integer> rebuilt = new PersistentMap<>();
+        entries.forEach(e -> rebuilt.put(e.getKey(), e.getValue()));
+        Assert.assertEquals(map, rebuilt);
+        Assert.assertEquals(rebuilt, map);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(0);
+        for (int round = 0; round < 200; ++round) {
+            PersistentMap<Key, Integer> map = new PersistentMap<>();
+            Map<Key, Integer> expected = new HashMap<>();
+            List<PersistentMap<Key, Integer>> copies = new ArrayList<>();
+            List<Map<Key, Integer>> expectedCopies = new ArrayList<>();
+            for (int i = 0; i < 200; ++i) {
+                Key key = randomKey(random);
+                switch (random.nextInt(6)) {
+                    case 0, 1, 2 -> {
+                        Integer value = random.nextInt(4);
+                        Assert.assertEquals(expected.put(key, value),
+                                map.put(key, value));
+                    }
+                    case 3, 4 -> Assert.assertEquals(expected.remove(key),
+                            map.remove(key));
+                    default -> {
+                        copies.add(map.copy());
+                        expectedCopies.add(new HashMap<>(expected));
+                    }
+                }
+                Assert.assertEquals(expected.get(key), map.get(key));
+                Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+                Assert.assertEquals(expected.size(), map.size());
+            }
+            assertSameMap(expected, map);
+            // copies are not affected by later modifications
+            for (int i = 0; i < copies.size(); ++i) {
+                assertSameMap(expectedCopies.get(i), copies.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveCollapse() {
+        Random random = new Random(1);
+        for (int round = 0; round < 100; ++round) {
+            PersistentMap<Key, Integer> map = new PersistentMap<>();
+            Map<Key, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 50; ++i) {
+                Key key = randomKey(random);
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            List<Key> keys = new ArrayList<>(expected.keySet());
+            Collections.shuffle(keys, random);
+            for (Key key : keys) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+                // the trie shrinks back to the shape of the remaining keys
+                assertSameMap(expected, map);
+            }
+            Assert.assertTrue(map.isEmpty());
+            Assert.assertEquals(0, map.hashCode());
+            Assert.assertEquals(new PersistentMap<Key, Integer>(), map);
+        }
+    }
+
+    @Test
+    public void testCollisions() {
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        // ids 1, 28, 55 and 82 all have hash code 1
+        for (int id = 1; id < 100; id += HASHES.length * 3) {
+            map.put(new Key(id), id);
+            expected.put(new Key(id), id);
+        }
+        // key 8 (hash code 33) shares the lowest 5 bits with them,
+        // which pushes the collision node down
+        map.put(new Key(8), 0);
+        expected.put(new Key(8), 0);
+        assertSameMap(expected, map);
+        Assert.assertNull(map.remove(new Key(2)));
+        Assert.assertEquals(Integer.valueOf(1), map.remove(new Key(1)));
+        expected.remove(new Key(1));
+        assertSameMap(expected, map);
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Random random = new Random(2);
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            Key key = randomKey(random);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        PersistentMap<Key, Integer> copy = map.copy();
+        for (Iterator<Map.Entry<Key, Integer>> it = map.entrySet().iterator();
+             it.hasNext(); ) {
+            Map.Entry<Key, Integer> e = it.next();
+            if (e.getValue() % 2 == 0) {
+                it.remove();
+                expected.remove(e.getKey());
+            }
+        }
+        assertSameMap(expected, map);
+        Assert.assertNotEquals(copy, map);
+        Assert.assertThrows(IllegalStateException.class, () -> {
+            Iterator<Map.Entry<Key, Integer>> it = map.entrySet().iterator();
+            it.remove();
+        });
+    }
+
+    @Test
+    public void testEquals() {
+        PersistentMap<Key, Integer> map = new PersistentMap<>();
+        map.put(new Key(1), 1);
+        map.put(new Key(10), 10);
+        PersistentMap<Key, Integer> copy = map.copy();
+        Assert.assertEquals(map, copy);
+        // same keys with a different value
+        copy.put(new Key(10), 11);
+        Assert.assertNotEquals(map, copy);
+        copy.put(new Key(10), 10);
+        Assert.assertEquals(map, copy);
+        Assert.assertEquals(map.hashCode(), copy.hashCode());
+        // same size but different keys
+        copy.remove(new Key(10));
+        copy.put(new Key(19), 10);
+        Assert.assertNotEquals(map, copy);
+        Assert.assertNotEquals(map, Map.of(new Key(1), 1));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.MockICFG;
+import pascal.taie.util.AnalysisException;
+
+import java.util.Random;
+import java.util.Set;
+
+public class SummarySolverTest {
+
+    @Test
+    public void testMergedSummariesAsInterSolver() {
+        // with limit 0, each method has a single merged summary
+        InterSolverTest.assertSameResults(1, 15, InterSolverTest::solve,
+                (analysis, icfg) -> new SummarySolver<>(analysis, icfg, 0).solve());
+    }
+
+    @Test
+    public void testAtLeastAsPreciseAsInterSolver() {
+        Random random = new Random(2);
+        for (int i = 0; i < 300; ++i) {
+            MockICFG icfg = MockICFG.random(random, 1 + random.nextInt(15));
+            Set<String> marks = InterSolverTest.randomMarks(random, icfg);
+            DataflowResult<String, Set<String>> ci =
+                    InterSolverTest.solve(new MarkAnalysis(marks), icfg);
+            DataflowResult<String, Set<String>> result =
+                    new SummarySolver<>(new MarkAnalysis(marks), icfg, 8).solve();
+            for (String node : icfg) {
+                Assert.assertTrue("in fact of " + node + " in round " + i,
+                        ci.getInFact(node).containsAll(result.getInFact(node)));
+                Assert.assertTrue("out fact of " + node + " in round " + i,
+                        ci.getOutFact(node).containsAll(result.getOutFact(node)));
+            }
+            // the entry of the entry method keeps the boundary fact
+            Assert.assertEquals(ci.getOutFact(icfg.getEntryOf(0)),
+                    result.getOutFact(icfg.getEntryOf(0)));
+        }
+    }
+
+    @Test
+    public void testSummariesPerEntryFact() {
+        // method 0 calls method 1 at nodes 1 and 3 with different facts,
+        // as node 2 between the calls is marked
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 6);
+        icfg.addMethod(1, 2);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addCall("0:1", 1);
+        icfg.addNormalEdge("0:2", "0:3");
+        icfg.addCall("0:3", 1);
+        icfg.addNormalEdge("0:4", "0:5");
+        icfg.addNormalEdge("1:0", "1:1");
+        Set<String> marks = Set.of("0:2");
+        DataflowResult<String, Set<String>> result =
+                new SummarySolver<>(new MarkAnalysis(marks), icfg, 2).solve();
+        Assert.assertEquals(Set.of("entry"), result.getInFact("0:2"));
+        Assert.assertEquals(Set.of("entry", "0:2"), result.getInFact("0:4"));
+        Assert.assertEquals(Set.of("entry", "0:2"), result.getInFact("1:0"));
+        // with a single merged summary, node 2 also sees the second call
+        result = new SummarySolver<>(new MarkAnalysis(marks), icfg, 0).solve();
+        Assert.assertEquals(Set.of("entry", "0:2"), result.getInFact("0:2"));
+    }
+
+    @Test
+    public void testStaleSummaries() {
+        // method 0 calls method 1 at node 2 in a loop, whose entry fact
+        // grows when node 3 flows back, and then at nodes 5 and 7 with
+        // different facts, as nodes 4 and 6 are marked
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 10);
+        icfg.addMethod(1, 2);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addNormalEdge("0:1", "0:2");
+        icfg.addCall("0:2", 1);
+        icfg.addNormalEdge("0:3", "0:1");
+        icfg.addNormalEdge("0:3", "0:4");
+        icfg.addNormalEdge("0:4", "0:5");
+        icfg.addCall("0:5", 1);
+        icfg.addNormalEdge("0:6", "0:7");
+        icfg.addCall("0:7", 1);
+        icfg.addNormalEdge("0:8", "0:9");
+        icfg.addNormalEdge("1:0", "1:1");
+        Set<String> marks = Set.of("0:1", "0:3", "0:4", "0:6");
+        // the summary for the first fact at node 2 is stale, so it takes
+        // no place, and the calls at nodes 5 and 7 are not merged
+        DataflowResult<String, Set<String>> result =
+                new SummarySolver<>(new MarkAnalysis(marks), icfg, 2).solve();
+        Assert.assertEquals(Set.of("entry", "0:1", "0:3"), result.getInFact("0:1"));
+        Assert.assertEquals(Set.of("entry", "0:1", "0:3", "0:4"),
+                result.getInFact("0:6"));
+        Assert.assertEquals(Set.of("entry", "0:1", "0:3", "0:4", "0:6"),
+                result.getInFact("0:8"));
+        // the node of method 1 gets the facts of the three calls
+        Assert.assertEquals(Set.of("entry", "0:1", "0:3", "0:4", "0:6"),
+                result.getInFact("1:1"));
+    }
+
+    @Test
+    public void testRetiredSummaries() {
+        // method 0 calls method 1 at nodes 2 and 3 in a loop, which share
+        // a summary until node 4 flows back, and then at nodes 6 and 8
+        // with different facts, as nodes 5 and 7 are marked
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 11);
+        icfg.addMethod(1, 2);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addNormalEdge("0:1", "0:2");
+        icfg.addCall("0:2", 1);
+        icfg.addCall("0:3", 1);
+        icfg.addNormalEdge("0:4", "0:1");
+        icfg.addNormalEdge("0:4", "0:5");
+        icfg.addNormalEdge("0:5", "0:6");
+        icfg.addCall("0:6", 1);
+        icfg.addNormalEdge("0:7", "0:8");
+        icfg.addCall("0:8", 1);
+        icfg.addNormalEdge("0:9", "0:10");
+        icfg.addNormalEdge("1:0", "1:1");
+        Set<String> marks = Set.of("0:1", "0:4", "0:5", "0:7");
+        // the shared summary cannot be grown for either call site, so it
+        // is retired once both have left it, and the call at node 6 takes
+        // its place instead of being merged with the call at node 8
+        DataflowResult<String, Set<String>> result =
+                new SummarySolver<>(new MarkAnalysis(marks), icfg, 2).solve();
+        Assert.assertEquals(Set.of("entry", "0:1", "0:4", "0:5"),
+                result.getInFact("0:7"));
+        Assert.assertEquals(Set.of("entry", "0:1", "0:4", "0:5", "0:7"),
+                result.getInFact("0:9"));
+    }
+
+    @Test
+    public void testBackwardAnalysis() {
+        MarkAnalysis backward = new MarkAnalysis(Set.of()) {
+            @Override
+            public boolean isForward() {
+                return false;
+            }
+        };
+        Assert.assertThrows(AnalysisException.class,
+                () -> new SummarySolver<>(backward, new MockICFG(), 8));
+    }
+
+    @Test
+    public void testUnreachableMethods() {
+        MockICFG icfg = InterSolverTest.newICFGWithUnreachableMethods();
+        InterSolverTest.checkUnreachableMethods(icfg,
+                new SummarySolver<>(new MarkAnalysis(Set.of("2:2")), icfg, 8).solve());
+    }
+}
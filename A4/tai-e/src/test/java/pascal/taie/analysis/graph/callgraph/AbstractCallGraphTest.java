@@ -0,0 +1,142 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.graph.callgraph.MockProgram.ClassSpec;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static pascal.taie.analysis.graph.callgraph.MockProgram.add;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.randomSpecs;
+
+/**
+ * Tests that the cached adjacency sets of {@link AbstractCallGraph}
+ * match the edges of the call graph after it changes.
+ */
+public class AbstractCallGraphTest {
+
+    @Test
+    public void testAddAndRemoveEdges() {
+        for (int seed = 0; seed < 50; ++seed) {
+            Random random = new Random(seed);
+            new MockProgram(randomSpecs(random, 8).values());
+            DefaultCallGraph callGraph = (DefaultCallGraph) new CHABuilder().build();
+            callGraph.setCachesEnabled(true);
+            assertAdjacency(callGraph);
+            List<JMethod> methods = callGraph.reachableMethods().toList();
+            List<Invoke> callSites = methods.stream()
+                    .flatMap(callGraph::callSitesIn)
+                    .toList();
+            if (callSites.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i < 20; ++i) {
+                Invoke callSite = callSites.get(random.nextInt(callSites.size()));
+                JMethod callee = methods.get(random.nextInt(methods.size()));
+                Edge<Invoke, JMethod> edge = new Edge<>(
+                        CallGraphs.getCallKind(callSite), callSite, callee);
+                if (random.nextBoolean()) {
+                    callGraph.addEdge(edge);
+                } else {
+                    callGraph.removeEdge(edge);
+                }
+                assertAdjacency(callGraph);
+            }
+        }
+    }
+
+    @Test
+    public void testUpdate() {
+        for (int seed = 0; seed < 50; ++seed) {
+            Random random = new Random(seed);
+            Map<String, ClassSpec> specs = randomSpecs(random, 8);
+            MockProgram program = new MockProgram(specs.values());
+            CHABuilder builder = new CHABuilder();
+            DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+            callGraph.setCachesEnabled(true);
+            assertAdjacency(callGraph);
+            for (int step = 0; step < 4; ++step) {
+                ClassSpec spec = CHAUpdateTest.randomChange(random, specs, "N" + step);
+                add(specs, spec);
+                JClass oldClass = program.classes.get(spec.name());
+                JClass newClass = program.load(spec);
+                builder.update(callGraph, List.of(newClass),
+                        oldClass != null ? List.of(oldClass) : List.of());
+                assertAdjacency(callGraph);
+            }
+        }
+    }
+
+    /**
+     * Checks the adjacency sets of each method against the ones
+     * computed from the edges of given call graph. Each set is queried
+     * twice, so that the second query is answered from the cache.
+     */
+    private static void assertAdjacency(CallGraph<Invoke, JMethod> callGraph) {
+        Set<MethodEdge<Invoke, JMethod>> edges = callGraph.edges()
+                .map(e -> new MethodEdge<>(
+                        callGraph.getContainerOf(e.getCallSite()),
+                        e.getCallee(), e.getCallSite()))
+                .collect(Collectors.toSet());
+        for (JMethod method : callGraph.reachableMethods().toList()) {
+            Set<MethodEdge<Invoke, JMethod>> outEdges = edges.stream()
+                    .filter(e -> e.caller().equals(method))
+                    .collect(Collectors.toSet());
+            Set<MethodEdge<Invoke, JMethod>> inEdges = edges.stream()
+                    .filter(e -> e.callee().equals(method))
+                    .collect(Collectors.toSet());
+            Set<JMethod> succs = outEdges.stream()
+                    .map(MethodEdge::callee)
+                    .collect(Collectors.toSet());
+            Set<JMethod> preds = inEdges.stream()
+                    .map(MethodEdge::caller)
+                    .collect(Collectors.toSet());
+            for (int i = 0; i < 2; ++i) {
+                assertSameSet(outEdges, callGraph.getOutEdgesOf(method));
+                assertSameSet(inEdges, callGraph.getInEdgesOf(method));
+                assertSameSet(succs, callGraph.getSuccsOf(method));
+                assertSameSet(preds, callGraph.getPredsOf(method));
+                assertSameSet(succs, callGraph.getCalleesOfM(method));
+            }
+            for (JMethod other : callGraph.reachableMethods().toList()) {
+                Assert.assertEquals(succs.contains(other),
+                        callGraph.hasEdge(method, other));
+            }
+        }
+    }
+
+    private static void assertSameSet(Set<?> expected, Set<?> actual) {
+        Assert.assertEquals(expected, Set.copyOf(actual));
+        Assert.assertEquals(expected.size(), actual.size());
+        expected.forEach(e -> Assert.assertTrue(actual.contains(e)));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.MockProgram.Call;
+import pascal.taie.analysis.graph.callgraph.MockProgram.ClassSpec;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static pascal.taie.analysis.graph.callgraph.MockProgram.MAIN;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.OBJECT;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.add;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.randomSpec;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.randomSpecs;
+
+/**
+ * Tests {@link CHABuilder#update} by comparing the updated call graphs
+ * with the ones built from scratch for the changed programs.
+ * The programs are built in memory by {@link MockProgram}.
+ */
+public class CHAUpdateTest {
+
+    @Test
+    public void testChangeBaseClass() {
+        Map<String, ClassSpec> specs = new LinkedHashMap<>();
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false, Map.of()));
+        add(specs, new ClassSpec("A", OBJECT, List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec("B", "A", List.of(), false, Map.of()));
+        add(specs, new ClassSpec("C", "B", List.of(), false,
+                Map.of("bar", List.of())));
+        add(specs, new ClassSpec(MAIN, OBJECT, List.of(), false,
+                Map.of("smain", List.of(
+                        new Call(CallKind.VIRTUAL, "A", "foo"),
+                        new Call(CallKind.VIRTUAL, "C", "foo"),
+                        new Call(CallKind.VIRTUAL, "C", "bar")))));
+        MockProgram program = new MockProgram(specs.values());
+        CHABuilder builder = new CHABuilder();
+        DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+        Assert.assertEquals(Set.of(
+                        "<Main: void smain()>/0 -> <A: void foo()>",
+                        "<Main: void smain()>/1 -> <A: void foo()>",
+                        "<Main: void smain()>/2 -> <C: void bar()>"),
+                edgesOf(callGraph));
+        // B now overrides foo(), and its subclass C is not given
+        change(program, builder, callGraph, specs,
+                new ClassSpec("B", "A", List.of(), false,
+                        Map.of("foo", List.of())));
+        Assert.assertEquals(Set.of(
+                        "<Main: void smain()>/0 -> <A: void foo()>",
+                        "<Main: void smain()>/0 -> <B: void foo()>",
+                        "<Main: void smain()>/1 -> <B: void foo()>",
+                        "<Main: void smain()>/2 -> <C: void bar()>"),
+                edgesOf(callGraph));
+        // B no longer overrides foo()
+        change(program, builder, callGraph, specs,
+                new ClassSpec("B", "A", List.of(), false, Map.of()));
+        Assert.assertEquals(Set.of(
+                        "<Main: void smain()>/0 -> <A: void foo()>",
+                        "<Main: void smain()>/1 -> <A: void foo()>",
+                        "<Main: void smain()>/2 -> <C: void bar()>"),
+                edgesOf(callGraph));
+    }
+
+    @Test
+    public void testRemoveClass() {
+        Map<String, ClassSpec> specs = new LinkedHashMap<>();
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false, Map.of()));
+        add(specs, new ClassSpec("A", OBJECT, List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec("B", "A", List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec(MAIN, OBJECT, List.of(), false,
+                Map.of("smain", List.of(
+                        new Call(CallKind.VIRTUAL, "A", "foo")))));
+        MockProgram program = new MockProgram(specs.values());
+        CHABuilder builder = new CHABuilder();
+        DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+        JClass b = program.classes.get("B");
+        specs.remove("B");
+        program.classes.remove("B");
+        builder.update(callGraph, List.of(), List.of(b));
+        Assert.assertEquals(Set.of("<Main: void smain()>/0 -> <A: void foo()>"),
+                edgesOf(callGraph));
+        // the class loader still knows B, but the hierarchy does not
+        Assert.assertSame(b, program.loadClass("B"));
+        Assert.assertNull(program.hierarchy.getClass("B"));
+        assertClassesOf(program);
+        Assert.assertEquals(Set.of(), Set.copyOf(program.hierarchy
+                .getDirectSubclassesOf(program.classes.get("A"))));
+    }
+
+    @Test
+    public void testReplaceSupertype() {
+        Map<String, ClassSpec> specs = new LinkedHashMap<>();
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false, Map.of()));
+        add(specs, new ClassSpec("I", OBJECT, List.of(), true,
+                Collections.singletonMap("bar", null)));
+        add(specs, new ClassSpec("A", OBJECT, List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec("B", "A", List.of("I"), false,
+                Map.of("bar", List.of())));
+        add(specs, new ClassSpec(MAIN, OBJECT, List.of(), false,
+                Map.of("smain", List.of(
+                        new Call(CallKind.VIRTUAL, "B", "foo"),
+                        new Call(CallKind.INTERFACE, "I", "bar")))));
+        MockProgram program = new MockProgram(specs.values());
+        CHABuilder builder = new CHABuilder();
+        DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+        JClass oldA = program.classes.get("A");
+        JClass oldI = program.classes.get("I");
+        JClass b = program.classes.get("B");
+        change(program, builder, callGraph, specs,
+                new ClassSpec("A", OBJECT, List.of(), false,
+                        Map.of("foo", List.of())));
+        change(program, builder, callGraph, specs,
+                new ClassSpec("I", OBJECT, List.of(), true,
+                        Collections.singletonMap("bar", null)));
+        JClass newA = program.classes.get("A");
+        JClass newI = program.classes.get("I");
+        // B is unchanged, so it keeps its identity and is rewired
+        // to the new versions of its supertypes
+        Assert.assertSame(b, program.classes.get("B"));
+        Assert.assertSame(newA, b.getSuperClass());
+        Assert.assertEquals(List.of(newI), List.copyOf(b.getInterfaces()));
+        Assert.assertEquals(Set.of(b), Set.copyOf(
+                program.hierarchy.getDirectSubclassesOf(newA)));
+        Assert.assertEquals(Set.of(b), Set.copyOf(
+                program.hierarchy.getDirectImplementorsOf(newI)));
+        Assert.assertEquals(Set.of(), Set.copyOf(
+                program.hierarchy.getDirectSubclassesOf(oldA)));
+        Assert.assertEquals(Set.of(), Set.copyOf(
+                program.hierarchy.getDirectImplementorsOf(oldI)));
+        Assert.assertFalse(program.hierarchy.isSubclass(oldA, b));
+        Assert.assertSame(newA.getDeclaredMethod("foo"),
+                program.hierarchy.dispatch(b,
+                        newA.getDeclaredMethod("foo").getSubsignature()));
+        Assert.assertEquals(Set.of(
+                        "<Main: void smain()>/0 -> <A: void foo()>",
+                        "<Main: void smain()>/1 -> <B: void bar()>"),
+                edgesOf(callGraph));
+    }
+
+    @Test
+    public void testRandomChanges() {
+        for (int seed = 0; seed < 200; ++seed) {
+            Random random = new Random(seed);
+            Map<String, ClassSpec> specs = randomSpecs(random, 8);
+            MockProgram program = new MockProgram(specs.values());
+            CHABuilder builder = new CHABuilder();
+            DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+            for (int step = 0; step < 4; ++step) {
+                change(program, builder, callGraph, specs,
+                        randomChange(random, specs, "N" + step));
+            }
+        }
+    }
+
+    /**
+     * @return a random new class of given name, or a random new version
+     * of an existing class, possibly moved in the hierarchy.
+     */
+    static ClassSpec randomChange(Random random, Map<String, ClassSpec> specs,
+                                  String newName) {
+        List<String> names = specs.keySet()
+                .stream()
+                .filter(n -> !n.equals(OBJECT) && !n.equals(MAIN))
+                .toList();
+        ClassSpec spec = specs.get(names.get(random.nextInt(names.size())));
+        if (random.nextInt(4) == 0) {
+            return randomSpec(random, specs, newName, false);
+        }
+        Map<String, ClassSpec> earlier = new LinkedHashMap<>();
+        for (ClassSpec s : specs.values()) {
+            if (s.name().equals(spec.name())) {
+                break;
+            }
+            earlier.put(s.name(), s);
+        }
+        return randomSpec(random, earlier, spec.name(), spec.isInterface());
+    }
+
+    /**
+     * Applies a changed or new class to the program and updates
+     * the call graph, then checks it against a call graph built
+     * from scratch for the changed program.
+     */
+    private static void change(MockProgram program, CHABuilder builder,
+                               DefaultCallGraph callGraph,
+                               Map<String, ClassSpec> specs, ClassSpec spec) {
+        add(specs, spec);
+        JClass oldClass = program.classes.get(spec.name());
+        JClass newClass = program.load(spec);
+        World.set(program.world);
+        builder.update(callGraph, List.of(newClass),
+                oldClass != null ? List.of(oldClass) : List.of());
+        for (JMethod method : callGraph.reachableMethods().toList()) {
+            JClass jclass = method.getDeclaringClass();
+            Assert.assertSame("stale method " + method,
+                    program.classes.get(jclass.getName()), jclass);
+        }
+        MockProgram fresh = new MockProgram(specs.values());
+        CallGraph<Invoke, JMethod> expected = new CHABuilder().build();
+        Assert.assertEquals(methodsOf(expected), methodsOf(callGraph));
+        Assert.assertEquals(edgesOf(expected), edgesOf(callGraph));
+        assertClassesOf(program);
+        for (JClass sup : fresh.classes.values()) {
+            for (JClass sub : fresh.classes.values()) {
+                Assert.assertEquals(sup + " <: " + sub,
+                        fresh.hierarchy.isSubclass(sup, sub),
+                        program.hierarchy.isSubclass(
+                                program.classes.get(sup.getName()),
+                                program.classes.get(sub.getName())));
+            }
+        }
+        World.set(program.world);
+    }
+
+    /**
+     * Checks that the class hierarchy of given program returns
+     * the current versions of its classes.
+     */
+    private static void assertClassesOf(MockProgram program) {
+        for (JClass jclass : program.classes.values()) {
+            Assert.assertSame(jclass,
+                    program.hierarchy.getClass(jclass.getName()));
+        }
+        Assert.assertEquals(Set.copyOf(program.classes.values()),
+                program.hierarchy.allClasses().collect(Collectors.toSet()));
+    }
+
+    static Set<String> methodsOf(CallGraph<Invoke, JMethod> callGraph) {
+        return callGraph.reachableMethods()
+                .map(JMethod::toString)
+                .collect(Collectors.toSet());
+    }
+
+    static Set<String> edgesOf(CallGraph<Invoke, JMethod> callGraph) {
+        return callGraph.edges()
+                .map(e -> e.getCallSite().getContainer() + "/" +
+                        e.getCallSite().getIndex() + " -> " + e.getCallee())
+                .collect(Collectors.toSet());
+    }
+}
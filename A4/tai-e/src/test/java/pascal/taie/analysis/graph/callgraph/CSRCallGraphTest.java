@@ -0,0 +1,134 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tests {@link CSRCallGraph} by comparing the snapshots with the call
+ * graphs they are built from, on random in-memory programs.
+ */
+public class CSRCallGraphTest {
+
+    @Test
+    public void testRandomPrograms() {
+        for (int seed = 0; seed < 200; ++seed) {
+            new MockProgram(MockProgram.randomSpecs(new Random(seed), 8).values());
+            CallGraph<Invoke, JMethod> callGraph = new CHABuilder().build();
+            CSRCallGraph csr = new CSRCallGraph(callGraph);
+            assertSameCallGraph(callGraph, csr);
+            assertSortedIds(csr);
+        }
+    }
+
+    private static void assertSameCallGraph(CallGraph<Invoke, JMethod> expected,
+                                            CSRCallGraph csr) {
+        Assert.assertEquals(expected.getNumberOfMethods(), csr.getNumberOfMethods());
+        Assert.assertEquals(expected.getNumberOfEdges(), csr.getNumberOfEdges());
+        Assert.assertEquals(expected.entryMethods().toList(),
+                csr.entryMethods().toList());
+        Assert.assertEquals(Set.copyOf(expected.reachableMethods().toList()),
+                csr.getNodes());
+        Assert.assertEquals(expected.edges().collect(Collectors.toSet()),
+                csr.edges().collect(Collectors.toSet()));
+        List<JMethod> methods = expected.reachableMethods().toList();
+        // methods and call sites of the other graph are not contained
+        JMethod absentMethod = methods.get(0).getDeclaringClass()
+                .getDeclaredMethods().stream()
+                .filter(m -> !expected.contains(m))
+                .findFirst()
+                .orElse(null);
+        for (JMethod m : methods) {
+            assertSameSet(expected.getCallersOf(m), csr.getCallersOf(m));
+            assertSameSet(expected.getCalleesOfM(m), csr.getCalleesOfM(m));
+            assertSameSet(expected.getCallSitesIn(m), csr.getCallSitesIn(m));
+            assertSameSet(expected.getPredsOf(m), csr.getPredsOf(m));
+            assertSameSet(expected.getSuccsOf(m), csr.getSuccsOf(m));
+            assertSameSet(expected.getInEdgesOf(m), csr.getInEdgesOf(m));
+            assertSameSet(expected.getOutEdgesOf(m), csr.getOutEdgesOf(m));
+            Assert.assertEquals(expected.edgesInTo(m).collect(Collectors.toSet()),
+                    csr.edgesInTo(m).collect(Collectors.toSet()));
+            Assert.assertFalse(csr.getSuccsOf(m).contains(absentMethod));
+            Assert.assertFalse(csr.getSuccsOf(m).contains("m"));
+            for (Invoke callSite : expected.getCallSitesIn(m)) {
+                Assert.assertEquals(m, csr.getContainerOf(callSite));
+                assertSameSet(expected.getCalleesOf(callSite),
+                        csr.getCalleesOf(callSite));
+                Assert.assertEquals(expected.edgesOutOf(callSite).collect(Collectors.toSet()),
+                        csr.edgesOutOf(callSite).collect(Collectors.toSet()));
+                // an edge whose caller is not the container is not contained
+                for (JMethod callee : csr.getCalleesOf(callSite)) {
+                    Assert.assertTrue(csr.getOutEdgesOf(m).contains(
+                            new MethodEdge<>(m, callee, callSite)));
+                    Assert.assertEquals(callee.equals(m),
+                            csr.getInEdgesOf(callee).contains(
+                                    new MethodEdge<>(callee, callee, callSite)));
+                }
+            }
+            for (JMethod other : methods) {
+                Assert.assertEquals(expected.hasEdge(m, other), csr.hasEdge(m, other));
+            }
+        }
+        if (absentMethod != null) {
+            Assert.assertFalse(csr.contains(absentMethod));
+            Assert.assertFalse(csr.getNodes().contains(absentMethod));
+            Assert.assertEquals(-1, csr.getMethodId(absentMethod));
+            Assert.assertEquals(Set.of(), csr.getCallersOf(absentMethod));
+        }
+    }
+
+    /**
+     * Checks the set views of {@link CSRCallGraph}, whose equals()
+     * uses both their size() and contains().
+     */
+    private static void assertSameSet(Set<?> expected, Set<?> actual) {
+        Set<?> copy = Set.copyOf(expected);
+        Assert.assertEquals(copy, actual);
+        Assert.assertEquals(actual, copy);
+    }
+
+    private static void assertSortedIds(CSRCallGraph csr) {
+        for (int c = 0; c < csr.getNumberOfCallSites(); ++c) {
+            for (int e = csr.getEdgesBegin(c) + 1; e < csr.getEdgesEnd(c); ++e) {
+                Assert.assertTrue(csr.getCallee(e - 1) < csr.getCallee(e));
+            }
+            for (int e = csr.getEdgesBegin(c); e < csr.getEdgesEnd(c); ++e) {
+                Assert.assertEquals(c, csr.getCallSiteOf(e));
+                Assert.assertEquals(e, csr.getEdge(c, csr.getCallee(e)));
+            }
+        }
+        for (int m = 0; m < csr.getNumberOfMethods(); ++m) {
+            for (int i = 1; i < csr.getInDegree(m); ++i) {
+                Assert.assertTrue(csr.getInEdge(m, i - 1) < csr.getInEdge(m, i));
+            }
+        }
+    }
+}
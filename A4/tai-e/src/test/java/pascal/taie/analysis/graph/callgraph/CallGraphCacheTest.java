@@ -0,0 +1,128 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.graph.callgraph.MockProgram.ClassSpec;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static pascal.taie.analysis.graph.callgraph.CHAUpdateTest.edgesOf;
+import static pascal.taie.analysis.graph.callgraph.CHAUpdateTest.methodsOf;
+
+public class CallGraphCacheTest {
+
+    @Test
+    public void testLoadLazily() throws IOException {
+        Path dir = Files.createTempDirectory("cg-cache");
+        try {
+            for (int seed = 0; seed < 100; ++seed) {
+                Map<String, ClassSpec> specs = MockProgram.randomSpecs(new Random(seed), 8);
+                new MockProgram(specs.values());
+                CallGraph<Invoke, JMethod> expected = new CHABuilder().build();
+                byte[] key = new byte[32];
+                key[0] = (byte) seed;
+                new CallGraphCache(dir, key).store(expected);
+                // load the call graph for a fresh copy of the program
+                MockProgram program = new MockProgram(specs.values());
+                CallGraph<Invoke, JMethod> loaded = new CallGraphCache(dir, key).load();
+                Assert.assertNotNull(loaded);
+                Assert.assertEquals(methodsOf(expected), methodsOf(loaded));
+                Assert.assertEquals(expected.getNumberOfEdges(), loaded.getNumberOfEdges());
+                for (JMethod m : loaded.getNodes()) {
+                    JMethod old = expected.getNodes()
+                            .stream()
+                            .filter(e -> e.toString().equals(m.toString()))
+                            .findFirst()
+                            .orElseThrow();
+                    Assert.assertEquals(namesOf(expected.getSuccsOf(old)),
+                            namesOf(loaded.getSuccsOf(m)));
+                    Assert.assertEquals(namesOf(expected.getPredsOf(old)),
+                            namesOf(loaded.getPredsOf(m)));
+                }
+                Assert.assertEquals("loading builds no IR", 0, program.builtIRs);
+                // querying the call sites in a method builds only its IR
+                JMethod main = World.get().getMainMethod();
+                Assert.assertEquals(expected.getCallSitesIn(expected.entryMethods()
+                                .findFirst().orElseThrow()).size(),
+                        loaded.getCallSitesIn(main).size());
+                Assert.assertEquals(1, program.builtIRs);
+                Assert.assertEquals(edgesOf(expected), edgesOf(loaded));
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testKeyMismatch() throws IOException {
+        Path dir = Files.createTempDirectory("cg-cache");
+        try {
+            new MockProgram(MockProgram.randomSpecs(new Random(0), 4).values());
+            CallGraph<Invoke, JMethod> callGraph = new CHABuilder().build();
+            byte[] key = new byte[32];
+            new CallGraphCache(dir, key).store(callGraph);
+            byte[] otherKey = new byte[32];
+            otherKey[31] = 1;
+            Assert.assertNull(new CallGraphCache(dir, otherKey).load());
+            // a file whose content has another key is ignored
+            try (Stream<Path> files = Files.list(dir)) {
+                Path file = files.findFirst().orElseThrow();
+                Files.move(file, file.resolveSibling(file.getFileName().toString()
+                        .replace("00000000.bin", "00000001.bin")));
+            }
+            Assert.assertNull(new CallGraphCache(dir, otherKey).load());
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Set<String> namesOf(Set<JMethod> methods) {
+        return methods.stream()
+                .map(JMethod::toString)
+                .collect(Collectors.toSet());
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.graph.callgraph.MockProgram.Call;
+import pascal.taie.analysis.graph.callgraph.MockProgram.ClassSpec;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static pascal.taie.analysis.graph.callgraph.MockProgram.MAIN;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.OBJECT;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.add;
+import static pascal.taie.analysis.graph.callgraph.MockProgram.randomSpecs;
+
+/**
+ * Tests {@link CallGraphProfiler} by parsing the metrics it dumps
+ * and checking them against the profiled call graphs.
+ */
+public class CallGraphProfilerTest {
+
+    /**
+     * A class name which has to be escaped in JSON.
+     */
+    private static final String ODD_NAME = "Q\"\\\n\t\u0001";
+
+    @Test
+    public void testDump() throws IOException {
+        Map<String, ClassSpec> specs = new LinkedHashMap<>();
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false, Map.of()));
+        add(specs, new ClassSpec("A", OBJECT, List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec("B", "A", List.of(), false,
+                Map.of("foo", List.of())));
+        add(specs, new ClassSpec(ODD_NAME, "A", List.of(), false,
+                Map.of("foo", List.of(new Call(CallKind.STATIC, ODD_NAME, "sbar")),
+                        "sbar", List.of())));
+        add(specs, new ClassSpec(MAIN, OBJECT, List.of(), false,
+                Map.of("smain", List.of(
+                        new Call(CallKind.VIRTUAL, "A", "foo"),
+                        new Call(CallKind.VIRTUAL, "B", "foo"),
+                        new Call(CallKind.STATIC, ODD_NAME, "sbar")))));
+        MockProgram program = new MockProgram(specs.values());
+        CallGraphProfiler profiler = new CallGraphProfiler();
+        CHABuilder builder = new CHABuilder(false, profiler);
+        DefaultCallGraph callGraph = (DefaultCallGraph) builder.build();
+        profiler.finish();
+        Map<String, Object> metrics = dump(profiler);
+        Assert.assertEquals((long) callGraph.getNumberOfMethods(),
+                metrics.get("reachableMethods"));
+        Assert.assertEquals((long) callGraph.getNumberOfEdges(),
+                metrics.get("edges"));
+        // fan-out of each call site, in descending order
+        Map<String, Long> fanOuts = new LinkedHashMap<>();
+        for (Object o : (List<?>) metrics.get("callSites")) {
+            Map<?, ?> callSite = (Map<?, ?>) o;
+            fanOuts.put((String) callSite.get("callSite"),
+                    (Long) callSite.get("fanOut"));
+            Assert.assertTrue((Long) callSite.get("resolveTimeNs") >= 0);
+        }
+        Assert.assertEquals(fanOutsOf(callGraph), fanOuts);
+        Assert.assertEquals(List.of(3L, 1L, 1L, 1L), List.copyOf(fanOuts.values()));
+        Assert.assertTrue(fanOuts.keySet().stream()
+                .anyMatch(callSite -> callSite.contains(ODD_NAME)));
+        // the growth is sampled at powers of two and at the end
+        List<Long> sampled = new ArrayList<>();
+        long lastTime = 0;
+        for (Object o : (List<?>) metrics.get("growth")) {
+            Map<?, ?> sample = (Map<?, ?>) o;
+            sampled.add((Long) sample.get("methods"));
+            Assert.assertTrue((Long) sample.get("timeMs") >= lastTime);
+            lastTime = (Long) sample.get("timeMs");
+        }
+        Assert.assertEquals(List.of(1L, 2L, 4L, 5L), sampled);
+        // updates after the construction are not recorded
+        JClass oldB = program.classes.get("B");
+        ClassSpec newB = new ClassSpec("B", "A", List.of(), false, Map.of());
+        specs.put("B", newB);
+        builder.update(callGraph, List.of(program.load(newB)), List.of(oldB));
+        Assert.assertEquals(metrics, dump(profiler));
+    }
+
+    @Test
+    public void testTopCallSites() {
+        new MockProgram(randomSpecs(new Random(1), 40).values());
+        CallGraphProfiler profiler = new CallGraphProfiler();
+        CallGraph<Invoke, JMethod> callGraph =
+                new CHABuilder(false, profiler).build();
+        profiler.finish();
+        List<Invoke> top = profiler.getTopCallSites();
+        List<Invoke> callSites = callGraph.edges()
+                .map(Edge::getCallSite)
+                .distinct()
+                .toList();
+        Assert.assertTrue(callSites.size() > CallGraphProfiler.TOP_N);
+        Assert.assertEquals(CallGraphProfiler.TOP_N, top.size());
+        List<Integer> expected = callSites.stream()
+                .map(callSite -> callGraph.getCalleesOf(callSite).size())
+                .sorted(Comparator.reverseOrder())
+                .limit(CallGraphProfiler.TOP_N)
+                .toList();
+        Assert.assertEquals(expected, top.stream()
+                .map(callSite -> callGraph.getCalleesOf(callSite).size())
+                .toList());
+    }
+
+    @Test
+    public void testGrowthSampling() throws IOException {
+        MockProgram program = new MockProgram(
+                randomSpecs(new Random(0), 1).values());
+        JMethod main = program.classes.get(MAIN).getDeclaredMethod("smain");
+        CallGraphProfiler profiler = new CallGraphProfiler();
+        for (int i = 0; i < 3000; ++i) {
+            profiler.onNewMethod(main);
+        }
+        profiler.finish();
+        List<Long> sampled = ((List<?>) dump(profiler).get("growth"))
+                .stream()
+                .map(sample -> (Long) ((Map<?, ?>) sample).get("methods"))
+                .toList();
+        Assert.assertEquals(List.of(1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L,
+                256L, 512L, 1024L, 2048L, 3000L), sampled);
+    }
+
+    /**
+     * @return fan-out of each call site in given call graph, in the order
+     * of the dumped call sites.
+     */
+    private static Map<String, Long> fanOutsOf(CallGraph<Invoke, JMethod> callGraph) {
+        return callGraph.edges()
+                .map(Edge::getCallSite)
+                .distinct()
+                .sorted(Comparator.comparingInt(
+                                (Invoke callSite) -> callGraph.getCalleesOf(callSite).size())
+                        .reversed()
+                        .thenComparing(CallGraphs::toString))
+                .collect(Collectors.toMap(CallGraphs::toString,
+                        callSite -> (long) callGraph.getCalleesOf(callSite).size(),
+                        (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static Map<String, Object> dump(CallGraphProfiler profiler)
+            throws IOException {
+        Path file = Files.createTempFile("cg-metrics", ".json");
+        try {
+            profiler.dump(file.toString());
+            Object json = new JsonReader(Files.readString(file)).read();
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metrics = (Map<String, Object>) json;
+            return metrics;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Reads the JSON values dumped by {@link CallGraphProfiler}, i.e.,
+     * objects, arrays, strings and integers.
+     */
+    private static class JsonReader {
+
+        private final String text;
+
+        private int pos;
+
+        private JsonReader(String text) {
+            this.text = text;
+        }
+
+        private Object read() {
+            Object value = readValue();
+            skipSpaces();
+            Assert.assertEquals("trailing text", text.length(), pos);
+            return value;
+        }
+
+        private Object readValue() {
+            skipSpaces();
+            char c = text.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> object = new LinkedHashMap<>();
+                ++pos;
+                if (!tryRead('}')) {
+                    do {
+                        skipSpaces();
+                        String key = readString();
+                        expect(':');
+                        Assert.assertNull("duplicate key " + key,
+                                object.put(key, readValue()));
+                    } while (tryRead(','));
+                    expect('}');
+                }
+                return object;
+            } else if (c == '[') {
+                List<Object> array = new ArrayList<>();
+                ++pos;
+                if (!tryRead(']')) {
+                    do {
+                        array.add(readValue());
+                    } while (tryRead(','));
+                    expect(']');
+                }
+                return array;
+            } else if (c == '"') {
+                return readString();
+            } else {
+                int start = pos;
+                if (c == '-') {
+                    ++pos;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    ++pos;
+                }
+                return Long.parseLong(text.substring(start, pos));
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            for (char c; (c = text.charAt(pos++)) != '"'; ) {
+                Assert.assertTrue("unescaped control character", c >= 0x20);
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        sb.append((char) Integer.parseInt(
+                                text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> Assert.fail("invalid escape \\" + e);
+                }
+            }
+            return sb.toString();
+        }
+
+        private boolean tryRead(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                ++pos;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            Assert.assertTrue("expected " + c + " at " + pos, tryRead(c));
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                ++pos;
+            }
+        }
+    }
+}
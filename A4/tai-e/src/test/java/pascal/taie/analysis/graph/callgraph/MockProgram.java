@@ -0,0 +1,346 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.DefaultIR;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.IRBuilder;
+import pascal.taie.ir.exp.InvokeExp;
+import pascal.taie.ir.exp.InvokeInterface;
+import pascal.taie.ir.exp.InvokeSpecial;
+import pascal.taie.ir.exp.InvokeStatic;
+import pascal.taie.ir.exp.InvokeVirtual;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Return;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.annotation.AnnotationHolder;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassHierarchyImpl;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JClassBuilder;
+import pascal.taie.language.classes.JClassLoader;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Modifier;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.language.type.VoidType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A program loaded from {@link ClassSpec}s into its own {@link World},
+ * which becomes the current world. Used to build call graphs of
+ * in-memory programs in tests. Like a real class loader, it only
+ * returns the classes it loaded initially, while later versions of
+ * the classes are kept in {@link #classes}. The body of a method
+ * consists of its calls followed by a return.
+ */
+public class MockProgram implements JClassLoader, IRBuilder {
+
+    static final String OBJECT = "java.lang.Object";
+
+    static final String MAIN = "Main";
+
+    /**
+     * A call in a method body. Methods whose names start with "s" are static.
+     */
+    record Call(CallKind kind, String className, String methodName) {
+    }
+
+    /**
+     * Describes a class; an abstract method has a null body.
+     */
+    public record ClassSpec(String name, String superName, List<String> interfaceNames,
+                     boolean isInterface, Map<String, List<Call>> methods) {
+    }
+
+    /**
+     * The current versions of the classes.
+     */
+    final Map<String, JClass> classes = new LinkedHashMap<>();
+
+    /**
+     * The classes loaded initially, which this class loader returns.
+     */
+    private final Map<String, JClass> loaded = new LinkedHashMap<>();
+
+    private final Map<JMethod, List<Call>> bodies = new HashMap<>();
+
+    /**
+     * Number of IRs built by this program.
+     */
+    int builtIRs;
+
+    final ClassHierarchy hierarchy = new ClassHierarchyImpl();
+
+    final World world = new World();
+
+    public MockProgram(Collection<ClassSpec> specs) {
+        hierarchy.setDefaultClassLoader(this);
+        hierarchy.setBootstrapClassLoader(this);
+        world.setClassHierarchy(hierarchy);
+        world.setIRBuilder(this);
+        World.set(world);
+        specs.forEach(spec -> {
+            JClass jclass = load(spec);
+            loaded.put(jclass.getName(), jclass);
+            hierarchy.addClass(jclass);
+        });
+        world.setMainMethod(classes.get(MAIN).getDeclaredMethod("smain"));
+    }
+
+    /**
+     * Creates the class described by given spec, whose supertypes
+     * are the current classes of their names.
+     */
+    JClass load(ClassSpec spec) {
+        JClass jclass = new JClass(this, spec.name());
+        List<JMethod> methods = new ArrayList<>();
+        spec.methods().forEach((name, body) -> {
+            Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+            if (name.startsWith("s")) {
+                modifiers.add(Modifier.STATIC);
+            }
+            if (body == null) {
+                modifiers.add(Modifier.ABSTRACT);
+            }
+            JMethod method = new JMethod(jclass, name, modifiers,
+                    List.of(), VoidType.VOID, List.of(),
+                    AnnotationHolder.emptyHolder(), null, null);
+            methods.add(method);
+            if (body != null) {
+                bodies.put(method, body);
+            }
+        });
+        jclass.build(new JClassBuilder() {
+
+            @Override
+            public void build(JClass jclass) {
+            }
+
+            @Override
+            public Set<Modifier> getModifiers() {
+                if (spec.isInterface()) {
+                    return EnumSet.of(Modifier.INTERFACE, Modifier.ABSTRACT);
+                }
+                return spec.methods().values().stream().anyMatch(Objects::isNull)
+                        ? EnumSet.of(Modifier.ABSTRACT)
+                        : EnumSet.noneOf(Modifier.class);
+            }
+
+            @Override
+            public String getSimpleName() {
+                return spec.name();
+            }
+
+            @Override
+            public ClassType getClassType() {
+                return null;
+            }
+
+            @Override
+            public JClass getSuperClass() {
+                return spec.superName() != null
+                        ? classes.get(spec.superName()) : null;
+            }
+
+            @Override
+            public Collection<JClass> getInterfaces() {
+                return spec.interfaceNames()
+                        .stream()
+                        .map(classes::get)
+                        .toList();
+            }
+
+            @Override
+            public JClass getOuterClass() {
+                return null;
+            }
+
+            @Override
+            public Collection<JField> getDeclaredFields() {
+                return List.of();
+            }
+
+            @Override
+            public Collection<JMethod> getDeclaredMethods() {
+                return methods;
+            }
+
+            @Override
+            public AnnotationHolder getAnnotationHolder() {
+                return AnnotationHolder.emptyHolder();
+            }
+
+            @Override
+            public boolean isApplication() {
+                return true;
+            }
+        });
+        classes.put(spec.name(), jclass);
+        return jclass;
+    }
+
+    @Override
+    public JClass loadClass(String name) {
+        return loaded.get(name);
+    }
+
+    @Override
+    public Collection<JClass> getLoadedClasses() {
+        return loaded.values();
+    }
+
+    @Override
+    public IR buildIR(JMethod method) {
+        ++builtIRs;
+        Var var = new Var(method, "v", null, 0);
+        List<Stmt> stmts = new ArrayList<>();
+        for (Call call : bodies.get(method)) {
+            MethodRef methodRef = MethodRef.get(classes.get(call.className()),
+                    call.methodName(), List.of(), VoidType.VOID,
+                    call.kind() == CallKind.STATIC);
+            InvokeExp invokeExp = switch (call.kind()) {
+                case STATIC -> new InvokeStatic(methodRef, List.of());
+                case SPECIAL -> new InvokeSpecial(methodRef, var, List.of());
+                case INTERFACE -> new InvokeInterface(methodRef, var, List.of());
+                default -> new InvokeVirtual(methodRef, var, List.of());
+            };
+            Invoke invoke = new Invoke(method, invokeExp);
+            invoke.setIndex(stmts.size());
+            stmts.add(invoke);
+        }
+        Return ret = new Return();
+        ret.setIndex(stmts.size());
+        stmts.add(ret);
+        return new DefaultIR(method, null, List.of(), Set.of(var),
+                List.of(), stmts, List.of());
+    }
+
+    @Override
+    public void buildAll(ClassHierarchy hierarchy) {
+    }
+
+    static void add(Map<String, ClassSpec> specs, ClassSpec spec) {
+        specs.put(spec.name(), spec);
+    }
+
+    /**
+     * @return specs of a random program, which consists of
+     * {@code java.lang.Object}, {@code nClasses} random classes and
+     * interfaces, and the main class.
+     */
+    public static Map<String, ClassSpec> randomSpecs(Random random, int nClasses) {
+        Map<String, ClassSpec> specs = new LinkedHashMap<>();
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false,
+                Map.of("m0", List.of())));
+        for (int i = 0; i < nClasses; ++i) {
+            add(specs, randomSpec(random, specs, "C" + i,
+                    random.nextInt(3) == 0));
+        }
+        add(specs, new ClassSpec(MAIN, OBJECT, List.of(), false,
+                Map.of("smain", randomBody(random, specs))));
+        return specs;
+    }
+
+    /**
+     * @return specs of a random program like {@link #randomSpecs}, except
+     * that {@code java.lang.Object} declares all methods, so that every
+     * call resolves, as the analyses of exceptions require.
+     */
+    public static Map<String, ClassSpec> resolvableSpecs(Random random, int nClasses) {
+        Map<String, ClassSpec> specs = randomSpecs(random, nClasses);
+        Map<String, List<Call>> methods = new LinkedHashMap<>();
+        for (String name : List.of("m0", "m1", "m2", "m3", "s0")) {
+            methods.put(name, List.of());
+        }
+        add(specs, new ClassSpec(OBJECT, null, List.of(), false, methods));
+        return specs;
+    }
+
+    /**
+     * Generates a class whose supertypes are chosen from {@code specs}.
+     */
+    static ClassSpec randomSpec(Random random, Map<String, ClassSpec> specs,
+                                        String name, boolean isInterface) {
+        List<String> classes = new ArrayList<>();
+        List<String> interfaces = new ArrayList<>();
+        specs.values().forEach(s ->
+                (s.isInterface() ? interfaces : classes).add(s.name()));
+        String superName = isInterface ? OBJECT
+                : classes.get(random.nextInt(classes.size()));
+        List<String> interfaceNames = interfaces.stream()
+                .filter(i -> random.nextInt(3) == 0)
+                .toList();
+        boolean isAbstract = !isInterface && random.nextBoolean();
+        Map<String, List<Call>> methods = new LinkedHashMap<>();
+        for (int i = 0; i < 4; ++i) {
+            if (random.nextBoolean()) {
+                boolean abstractMethod = isInterface
+                        || (isAbstract && random.nextBoolean());
+                methods.put("m" + i,
+                        abstractMethod ? null : randomBody(random, specs));
+            }
+        }
+        if (!isInterface && random.nextBoolean()) {
+            methods.put("s0", randomBody(random, specs));
+        }
+        return new ClassSpec(name, superName, interfaceNames, isInterface, methods);
+    }
+
+    static List<Call> randomBody(Random random, Map<String, ClassSpec> specs) {
+        List<ClassSpec> targets = specs.values()
+                .stream()
+                .filter(s -> !s.name().equals(MAIN))
+                .toList();
+        List<Call> calls = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; --i) {
+            ClassSpec target = targets.get(random.nextInt(targets.size()));
+            if (target.isInterface()) {
+                calls.add(new Call(CallKind.INTERFACE, target.name(),
+                        "m" + random.nextInt(4)));
+            } else {
+                switch (random.nextInt(5)) {
+                    case 0 -> calls.add(new Call(CallKind.STATIC, target.name(), "s0"));
+                    case 1 -> calls.add(new Call(CallKind.SPECIAL, target.name(),
+                            "m" + random.nextInt(4)));
+                    default -> calls.add(new Call(CallKind.VIRTUAL, target.name(),
+                            "m" + random.nextInt(4)));
+                }
+            }
+        }
+        return calls;
+    }
+}
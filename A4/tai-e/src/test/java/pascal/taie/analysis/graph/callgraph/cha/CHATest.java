@@ -22,15 +22,36 @@
 
 package pascal.taie.analysis.graph.callgraph.cha;
 
+import org.junit.Assert;
 import org.junit.Test;
 import pascal.taie.analysis.Tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
 public class CHATest {
     
     protected static void test(String main) {
         Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha");
     }
 
+    protected static void testParallel(String main) {
+        Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha;parallel:true");
+    }
+
+    protected static void testFrozen(String main) {
+        Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha;freeze:true");
+    }
+
+    protected static void testCached(String main, Path cacheDir) {
+        Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha;cache-dir:" + cacheDir);
+    }
+
     @Test
     public void testStaticCall() {
         test("StaticCall");
@@ -50,4 +71,51 @@ public class CHATest {
     public void testAbstractMethod() {
         test("AbstractMethod");
     }
+
+    @Test
+    public void testParallelVirtualCall() {
+        testParallel("VirtualCall");
+    }
+
+    @Test
+    public void testParallelInterface() {
+        testParallel("Interface");
+    }
+
+    @Test
+    public void testFrozenVirtualCall() {
+        testFrozen("VirtualCall");
+    }
+
+    @Test
+    public void testFrozenInterface() {
+        testFrozen("Interface");
+    }
+
+    @Test
+    public void testCachedVirtualCall() throws IOException {
+        Path cacheDir = Files.createTempDirectory("cg-cache");
+        try {
+            // the first run builds the call graph and stores it
+            testCached("VirtualCall", cacheDir);
+            List<Path> files;
+            try (Stream<Path> list = Files.list(cacheDir)) {
+                files = list.toList();
+            }
+            Assert.assertEquals(1, files.size());
+            Path file = files.get(0);
+            // backdate the cache file; the second run must load it as is,
+            // as storing a call graph would replace the file
+            FileTime old = FileTime.fromMillis(0);
+            Files.setLastModifiedTime(file, old);
+            testCached("VirtualCall", cacheDir);
+            Assert.assertEquals(old, Files.getLastModifiedTime(file));
+        } finally {
+            try (Stream<Path> walk = Files.walk(cacheDir)) {
+                for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
 }
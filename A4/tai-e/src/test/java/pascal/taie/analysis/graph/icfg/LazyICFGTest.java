@@ -0,0 +1,198 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.exception.ThrowAnalysis;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.MockProgram;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static pascal.taie.util.collection.Maps.newMap;
+
+public class LazyICFGTest {
+
+    @Test
+    public void testSameAsDefaultICFG() {
+        for (int seed = 0; seed < 50; ++seed) {
+            for (int capacity : List.of(1, 3, Integer.MAX_VALUE)) {
+                CallGraph<Stmt, JMethod> callGraph = buildProgram(seed);
+                LazyICFG lazy = new LazyICFG(callGraph, capacity);
+                // traverse the lazy ICFG from the entries, which builds
+                // the CFGs that DefaultICFG is built from
+                Map<Stmt, Set<ICFGEdge<Stmt>>> inEdges = newMap();
+                Map<Stmt, Set<ICFGEdge<Stmt>>> outEdges = newMap();
+                Set<Stmt> reached = new LinkedHashSet<>();
+                Deque<Stmt> queue = new ArrayDeque<>();
+                callGraph.entryMethods()
+                        .map(lazy::getEntryOf)
+                        .forEach(queue::add);
+                while (!queue.isEmpty()) {
+                    Stmt node = queue.poll();
+                    if (reached.add(node)) {
+                        inEdges.put(node, new HashSet<>(lazy.getInEdgesOf(node)));
+                        outEdges.put(node, new HashSet<>(lazy.getOutEdgesOf(node)));
+                        outEdges.get(node).forEach(e -> queue.add(e.getTarget()));
+                    }
+                }
+                ICFG<JMethod, Stmt> expected = new ICFGBuilder(new AnalysisConfig(
+                        ICFGBuilder.ID, "dump", false)).analyze();
+                Assert.assertEquals(expected.getNodes(), reached);
+                for (Stmt node : reached) {
+                    Assert.assertEquals(new HashSet<>(expected.getInEdgesOf(node)),
+                            inEdges.get(node));
+                    Assert.assertEquals(new HashSet<>(expected.getOutEdgesOf(node)),
+                            outEdges.get(node));
+                    // the edges may have been dropped and rebuilt since
+                    Assert.assertEquals(inEdges.get(node),
+                            new HashSet<>(lazy.getInEdgesOf(node)));
+                    Assert.assertEquals(expected.getContainingMethodOf(node),
+                            lazy.getContainingMethodOf(node));
+                    Assert.assertEquals(expected.isCallSite(node), lazy.isCallSite(node));
+                    if (expected.isCallSite(node)) {
+                        Assert.assertEquals(new HashSet<>(expected.getCalleesOf(node)),
+                                new HashSet<>(lazy.getCalleesOf(node)));
+                        Assert.assertEquals(new HashSet<>(expected.getReturnSitesOf(node)),
+                                new HashSet<>(lazy.getReturnSitesOf(node)));
+                    }
+                }
+                callGraph.forEach(method -> {
+                    Assert.assertEquals(expected.getEntryOf(method), lazy.getEntryOf(method));
+                    Assert.assertEquals(expected.getExitOf(method), lazy.getExitOf(method));
+                    Assert.assertEquals(new HashSet<>(expected.getCallersOf(method)),
+                            new HashSet<>(lazy.getCallersOf(method)));
+                });
+                Assert.assertEquals(expected.getNodes(), lazy.getNodes());
+            }
+        }
+    }
+
+    @Test
+    public void testRebuildEdges() {
+        int checked = 0;
+        for (int seed = 0; seed < 20; ++seed) {
+            CallGraph<Stmt, JMethod> callGraph = buildProgram(seed);
+            List<JMethod> methods = callGraph.reachableMethods().toList();
+            if (methods.size() < 2) {
+                continue;
+            }
+            ++checked;
+            for (int capacity = 1; capacity <= 2; ++capacity) {
+                LazyICFG icfg = new LazyICFG(callGraph, capacity);
+                Stmt entry0 = icfg.getEntryOf(methods.get(0));
+                Stmt entry1 = icfg.getEntryOf(methods.get(1));
+                Set<ICFGEdge<Stmt>> first = icfg.getOutEdgesOf(entry0);
+                icfg.getOutEdgesOf(entry1);
+                Set<ICFGEdge<Stmt>> again = icfg.getOutEdgesOf(entry0);
+                Assert.assertEquals(first, again);
+                // with capacity 1, the edges of methods.get(0) are dropped
+                // when those of methods.get(1) are built
+                Assert.assertEquals(capacity == 2, containsSame(again, first));
+            }
+        }
+        Assert.assertTrue(checked > 0);
+    }
+
+    @Test
+    public void testThrowAnalysisOnDemand() {
+        CallGraph<Stmt, JMethod> callGraph = buildProgram(0);
+        List<JMethod> methods = callGraph.reachableMethods().toList();
+        Assert.assertTrue(methods.size() >= 2);
+        // the CFG and exceptions of methods.get(1) are analyzed in advance
+        IR ir1 = methods.get(1).getIR();
+        ir1.storeResult(ThrowAnalysis.ID, new ThrowAnalysis(new AnalysisConfig(
+                ThrowAnalysis.ID, "exception", "explicit", "algorithm", "intra"))
+                .analyze(ir1));
+        CFG<Stmt> cfg1 = new CFGBuilder(new AnalysisConfig(
+                CFGBuilder.ID, "exception", "explicit", "dump", false)).analyze(ir1);
+        ir1.storeResult(CFGBuilder.ID, cfg1);
+        LazyICFG icfg = new LazyICFG(callGraph, 1);
+        IR ir0 = methods.get(0).getIR();
+        Stmt entry0 = icfg.getEntryOf(methods.get(0));
+        CFG<Stmt> cfg0 = ir0.getResult(CFGBuilder.ID);
+        Assert.assertNotNull(cfg0);
+        Assert.assertSame(cfg0.getEntry(), entry0);
+        Assert.assertNull("the exceptions analyzed on demand are not kept",
+                ir0.getResult(ThrowAnalysis.ID));
+        Assert.assertSame(cfg1.getEntry(), icfg.getEntryOf(methods.get(1)));
+        Assert.assertNotNull(ir1.getResult(ThrowAnalysis.ID));
+    }
+
+    @Test
+    public void testContainingMethodOf() {
+        for (int seed = 0; seed < 20; ++seed) {
+            CallGraph<Stmt, JMethod> callGraph = buildProgram(seed);
+            LazyICFG icfg = new LazyICFG(callGraph, 1);
+            // the call sites are found by the call graph without CFGs
+            callGraph.forEach(method -> method.getIR()
+                    .stmts()
+                    .filter(stmt -> stmt instanceof Invoke)
+                    .forEach(stmt ->
+                            Assert.assertEquals(method, icfg.getContainingMethodOf(stmt))));
+            callGraph.forEach(method ->
+                    Assert.assertNull(method.getIR().getResult(CFGBuilder.ID)));
+            // other nodes of unbuilt CFGs are found by building all CFGs
+            callGraph.forEach(method -> method.getIR()
+                    .stmts()
+                    .forEach(stmt ->
+                            Assert.assertEquals(method, icfg.getContainingMethodOf(stmt))));
+        }
+    }
+
+    /**
+     * Loads a random program, whose calls all resolve, and builds its call graph by CHA.
+     */
+    private static CallGraph<Stmt, JMethod> buildProgram(int seed) {
+        new MockProgram(MockProgram.resolvableSpecs(new Random(seed), 8).values());
+        World.get().storeResult(CallGraphBuilder.ID, new CallGraphBuilder(
+                new AnalysisConfig(CallGraphBuilder.ID, "algorithm", "cha")).analyze());
+        return World.get().getResult(CallGraphBuilder.ID);
+    }
+
+    /**
+     * @return true if every edge in {@code edges} is the very object
+     * in {@code others}, i.e., the edges have not been rebuilt.
+     */
+    private static boolean containsSame(Set<ICFGEdge<Stmt>> edges,
+                                        Set<ICFGEdge<Stmt>> others) {
+        return edges.stream().allMatch(edge -> others.stream().anyMatch(o -> o == edge));
+    }
+}
@@ -0,0 +1,31 @@
+public class LateNew {
+
+    public static void main(String[] args) {
+        Animal a = new Dog();
+        a.speak();
+        adopt();
+    }
+
+    static void adopt() {
+        Animal a = new Cat();
+    }
+}
+
+abstract class Animal {
+    abstract void speak();
+}
+
+class Dog extends Animal {
+    void speak() {
+    }
+}
+
+class Cat extends Animal {
+    void speak() {
+    }
+}
+
+class Cow extends Animal {
+    void speak() {
+    }
+}
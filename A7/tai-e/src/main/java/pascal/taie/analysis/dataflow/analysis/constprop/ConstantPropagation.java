@@ -56,33 +56,64 @@ public class ConstantPropagation extends
 
     @Override
     public CPFact newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
-        return null;
+        CPFact fact = newInitialFact();
+        for (Var param : cfg.getIR().getParams()) {
+            if (canHoldInt(param)) {
+                fact.update(param, Value.getNAC());
+            }
+        }
+        return fact;
     }
 
     @Override
     public CPFact newInitialFact() {
-        // TODO - finish me
-        return null;
+        return new CPFact();
     }
 
     @Override
     public void meetInto(CPFact fact, CPFact target) {
-        // TODO - finish me
+        fact.forEach((var, value) ->
+                target.update(var, meetValue(value, target.get(var))));
     }
 
     /**
      * Meets two Values.
      */
     public Value meetValue(Value v1, Value v2) {
-        // TODO - finish me
-        return null;
+        if (v1.isNAC() || v2.isNAC()) {
+            return Value.getNAC();
+        }
+        if (v1.isUndef()) {
+            return v2;
+        }
+        if (v2.isUndef()) {
+            return v1;
+        }
+        return v1.equals(v2) ? v1 : Value.getNAC();
     }
 
     @Override
     public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        CPFact newOut = in.copy();
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt
+                && defStmt.getLValue() instanceof Var lhs && canHoldInt(lhs)) {
+            newOut.update(lhs, evaluate(defStmt.getRValue(), in));
+        }
+        return update(out, newOut);
+    }
+
+    /**
+     * Replaces the content of {@code out} by {@code newOut}.
+     *
+     * @return true if {@code out} changed as a result of the call.
+     */
+    public static boolean update(CPFact out, CPFact newOut) {
+        if (out.equals(newOut)) {
+            return false;
+        }
+        out.clear();
+        out.copyFrom(newOut);
+        return true;
     }
 
     /**
@@ -111,7 +142,63 @@ public class ConstantPropagation extends
      * @return the resulting {@link Value}
      */
     public static Value evaluate(Exp exp, CPFact in) {
-        // TODO - finish me
-        return null;
+        if (exp instanceof IntLiteral literal) {
+            return Value.makeConstant(literal.getValue());
+        }
+        if (exp instanceof Var var) {
+            return in.get(var);
+        }
+        if (!(exp instanceof BinaryExp binary)) {
+            return Value.getNAC();
+        }
+        Value v1 = in.get(binary.getOperand1());
+        Value v2 = in.get(binary.getOperand2());
+        // x / 0 and x % 0 are undefined, even if x is NAC
+        if (binary instanceof ArithmeticExp arith
+                && (arith.getOperator() == ArithmeticExp.Op.DIV
+                || arith.getOperator() == ArithmeticExp.Op.REM)
+                && v2.isConstant() && v2.getConstant() == 0) {
+            return Value.getUndef();
+        }
+        if (v1.isNAC() || v2.isNAC()) {
+            return Value.getNAC();
+        }
+        if (v1.isUndef() || v2.isUndef()) {
+            return Value.getUndef();
+        }
+        int c1 = v1.getConstant();
+        int c2 = v2.getConstant();
+        if (binary instanceof ArithmeticExp arith) {
+            return Value.makeConstant(switch (arith.getOperator()) {
+                case ADD -> c1 + c2;
+                case SUB -> c1 - c2;
+                case MUL -> c1 * c2;
+                case DIV -> c1 / c2;
+                case REM -> c1 % c2;
+            });
+        } else if (binary instanceof ConditionExp cond) {
+            boolean result = switch (cond.getOperator()) {
+                case EQ -> c1 == c2;
+                case NE -> c1 != c2;
+                case LT -> c1 < c2;
+                case GT -> c1 > c2;
+                case LE -> c1 <= c2;
+                case GE -> c1 >= c2;
+            };
+            return Value.makeConstant(result ? 1 : 0);
+        } else if (binary instanceof ShiftExp shift) {
+            return Value.makeConstant(switch (shift.getOperator()) {
+                case SHL -> c1 << c2;
+                case SHR -> c1 >> c2;
+                case USHR -> c1 >>> c2;
+            });
+        } else if (binary instanceof BitwiseExp bitwise) {
+            return Value.makeConstant(switch (bitwise.getOperator()) {
+                case OR -> c1 | c2;
+                case AND -> c1 & c2;
+                case XOR -> c1 ^ c2;
+            });
+        }
+        throw new AnalysisException("Unexpected expression: " + exp);
     }
 }
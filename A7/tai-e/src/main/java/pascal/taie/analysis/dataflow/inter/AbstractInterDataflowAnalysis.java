@@ -25,6 +25,9 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.CallGraph;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
@@ -121,9 +124,18 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     public Object analyze() {
         icfg = World.get().getResult(ICFGBuilder.ID);
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        solver = new InterSolver<>(this, icfg, newSchedule());
         DataflowResult<Node, Fact> result = solver.solve();
         finish();
         return result;
     }
+
+    /**
+     * @return the schedule of the methods in the call graph, which
+     * the ICFG is built from.
+     */
+    private SCCSchedule<Method> newSchedule() {
+        CallGraph<Node, Method> callGraph = World.get().getResult(CallGraphBuilder.ID);
+        return new SCCSchedule<>(callGraph);
+    }
 }
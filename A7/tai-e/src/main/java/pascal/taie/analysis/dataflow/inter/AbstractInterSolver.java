@@ -0,0 +1,107 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+
+import javax.annotation.Nullable;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Base class of the solvers that propagate facts through the whole ICFG,
+ * e.g., {@link InterSolver}.
+ * <p>
+ * The solvers start from the entry nodes of the entry methods, and only
+ * touch the nodes reached from them: the facts of a node are created
+ * when it is first reached, and its successors are always processed after
+ * its first transfer, even if its out fact is unchanged. Thus, the nodes
+ * unreachable from the entry methods keep the initial facts.
+ *
+ * @param <Method> type of ICFG methods
+ * @param <Node>   type of ICFG nodes
+ * @param <Fact>   type of data-flow facts
+ */
+abstract class AbstractInterSolver<Method, Node, Fact> {
+
+    protected final InterDataflowAnalysis<Node, Fact> analysis;
+
+    protected final ICFG<Method, Node> icfg;
+
+    /**
+     * Entry nodes of the entry methods, whose facts are the boundary facts.
+     */
+    protected final Set<Node> boundaryNodes;
+
+    protected AbstractInterSolver(InterDataflowAnalysis<Node, Fact> analysis,
+                                  ICFG<Method, Node> icfg) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.boundaryNodes = icfg.entryMethods()
+                .map(icfg::getEntryOf)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the in fact of given node, which is created if absent.
+     */
+    protected abstract Fact getInFact(Node node);
+
+    /**
+     * @return the out fact of given node, which is created if absent.
+     */
+    protected abstract Fact getOutFact(Node node);
+
+    /**
+     * @return the out fact of given node, or null if the node
+     * has not been reached.
+     */
+    @Nullable
+    protected abstract Fact getReachedOutFact(Node node);
+
+    /**
+     * Processes given node, i.e., meets the facts of its reached
+     * predecessors into its in fact, and transfers it. The boundary nodes
+     * are skipped, as they keep the boundary facts.
+     *
+     * @return true if the successors of the node need to be processed,
+     * i.e., its out fact has changed or it has been reached just now.
+     */
+    protected boolean processNode(Node node) {
+        if (boundaryNodes.contains(node)) {
+            return false;
+        }
+        boolean reached = getReachedOutFact(node) != null;
+        Fact in = getInFact(node);
+        for (ICFGEdge<Node> edge : icfg.getInEdgesOf(node)) {
+            // predecessors that have not been reached yet still have
+            // the initial facts, which are skipped
+            Fact predOut = getReachedOutFact(edge.getSource());
+            if (predOut != null) {
+                analysis.meetInto(analysis.transferEdge(edge, predOut), in);
+            }
+        }
+        return analysis.transferNode(node, in, getOutFact(node)) || !reached;
+    }
+}
@@ -25,23 +25,50 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
-import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArrayAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
 import pascal.taie.ir.exp.InvokeExp;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
 import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.classes.JField;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import java.util.List;
+import java.util.Set;
+
+import static pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation.canHoldInt;
+import static pascal.taie.util.collection.Maps.newMultiMap;
+import static pascal.taie.util.collection.Maps.newTwoKeyMap;
+import static pascal.taie.util.collection.Sets.newHybridSet;
 
 /**
  * Implementation of interprocedural constant propagation for int values.
+ * <p>
+ * If option "alias-aware" is set, the int values stored in instance fields,
+ * static fields and arrays are propagated to the loads that may read them,
+ * according to the result of the pointer analysis given by option "pta".
+ * For this purpose, the stores and loads are indexed by the abstract
+ * objects (and fields) that they may access before the solver starts,
+ * so that a load meets the values of exactly the stores that may write
+ * the same location, and a store whose in fact changes puts exactly
+ * these loads back to the work-list.
  */
 public class InterConstantPropagation extends
         AbstractInterDataflowAnalysis<JMethod, Stmt, CPFact> {
@@ -50,16 +77,81 @@ public class InterConstantPropagation extends
 
     private final ConstantPropagation cp;
 
+    private final boolean aliasAware;
+
+    private PointerAnalysisResult pta;
+
+    /**
+     * Stores of int values to instance fields, indexed by the abstract
+     * objects pointed to by their bases and the fields.
+     */
+    private final TwoKeyMap<Obj, JField, Set<StoreField>> fieldStores = newTwoKeyMap();
+
+    private final TwoKeyMap<Obj, JField, Set<LoadField>> fieldLoads = newTwoKeyMap();
+
+    private final MultiMap<JField, StoreField> staticStores = newMultiMap();
+
+    private final MultiMap<JField, LoadField> staticLoads = newMultiMap();
+
+    /**
+     * Stores of int values to arrays, indexed by the abstract objects
+     * pointed to by their bases.
+     */
+    private final MultiMap<Obj, StoreArray> arrayStores = newMultiMap();
+
+    private final MultiMap<Obj, LoadArray> arrayLoads = newMultiMap();
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
+        aliasAware = getOptions().getBoolean("alias-aware");
     }
 
     @Override
     protected void initialize() {
+        if (!aliasAware) {
+            return;
+        }
         String ptaId = getOptions().getString("pta");
-        PointerAnalysisResult pta = World.get().getResult(ptaId);
-        // You can do initialization work here
+        pta = World.get().getResult(ptaId);
+        for (Var var : pta.getVars()) {
+            Set<Obj> pts = pta.getPointsToSet(var);
+            for (StoreField store : var.getStoreFields()) {
+                if (canHoldInt(store.getRValue())) {
+                    JField field = store.getFieldRef().resolve();
+                    pts.forEach(obj -> fieldStores.computeIfAbsent(
+                            obj, field, (o, f) -> newHybridSet()).add(store));
+                }
+            }
+            for (LoadField load : var.getLoadFields()) {
+                if (canHoldInt(load.getLValue())) {
+                    JField field = load.getFieldRef().resolve();
+                    pts.forEach(obj -> fieldLoads.computeIfAbsent(
+                            obj, field, (o, f) -> newHybridSet()).add(load));
+                }
+            }
+            for (StoreArray store : var.getStoreArrays()) {
+                if (canHoldInt(store.getRValue())) {
+                    pts.forEach(obj -> arrayStores.put(obj, store));
+                }
+            }
+            for (LoadArray load : var.getLoadArrays()) {
+                if (canHoldInt(load.getLValue())) {
+                    pts.forEach(obj -> arrayLoads.put(obj, load));
+                }
+            }
+        }
+        // static field accesses have no bases, thus they are collected
+        // from the statements
+        for (Stmt stmt : icfg) {
+            if (stmt instanceof StoreField store && store.isStatic()
+                    && canHoldInt(store.getRValue())) {
+                staticStores.put(store.getFieldRef().resolve(), store);
+            } else if (stmt instanceof LoadField load && load.isStatic()
+                    && canHoldInt(load.getLValue())) {
+                staticLoads.put(load.getFieldRef().resolve(), load);
+            }
+        }
     }
 
     @Override
@@ -85,37 +177,166 @@ public class InterConstantPropagation extends
 
     @Override
     protected boolean transferCallNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        // the value of the left-hand side is given by the return edges,
+        // and killed on the call-to-return edge
+        return out.copyFrom(in);
     }
 
     @Override
     protected boolean transferNonCallNode(Stmt stmt, CPFact in, CPFact out) {
-        // TODO - finish me
-        return false;
+        if (aliasAware) {
+            if (stmt instanceof LoadField load && canHoldInt(load.getLValue())) {
+                return transferLoad(load.getLValue(), loadField(load), in, out);
+            }
+            if (stmt instanceof LoadArray load && canHoldInt(load.getLValue())) {
+                return transferLoad(load.getLValue(), loadArray(load, in), in, out);
+            }
+        }
+        boolean changed = cp.transferNode(stmt, in, out);
+        if (aliasAware && changed) {
+            // the stored value (or array index) may have changed
+            if (stmt instanceof StoreField store) {
+                getAliasedLoads(store).forEach(solver::addToWorkList);
+            } else if (stmt instanceof StoreArray store) {
+                getAliasedLoads(store).forEach(solver::addToWorkList);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean transferLoad(Var lhs, Value value, CPFact in, CPFact out) {
+        CPFact newOut = in.copy();
+        newOut.update(lhs, value);
+        return ConstantPropagation.update(out, newOut);
+    }
+
+    /**
+     * @return the meet of the values written by the stores that may write
+     * the field read by given load.
+     */
+    private Value loadField(LoadField load) {
+        Value value = Value.getUndef();
+        for (StoreField store : getAliasedStores(load)) {
+            Value stored = solver.getInFact(store).get(store.getRValue());
+            value = cp.meetValue(value, stored);
+        }
+        return value;
+    }
+
+    /**
+     * @return the meet of the values written by the stores that may write
+     * the array element read by given load.
+     */
+    private Value loadArray(LoadArray load, CPFact in) {
+        ArrayAccess access = load.getArrayAccess();
+        Value index = in.get(access.getIndex());
+        Value value = Value.getUndef();
+        for (Obj array : pta.getPointsToSet(access.getBase())) {
+            for (StoreArray store : arrayStores.get(array)) {
+                CPFact storeIn = solver.getInFact(store);
+                if (isAlias(index, storeIn.get(store.getArrayAccess().getIndex()))) {
+                    value = cp.meetValue(value, storeIn.get(store.getRValue()));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return true if two array accesses with given index values may access
+     * the same element of an array.
+     */
+    private static boolean isAlias(Value index1, Value index2) {
+        if (index1.isUndef() || index2.isUndef()) {
+            return false;
+        }
+        if (index1.isConstant() && index2.isConstant()) {
+            return index1.getConstant() == index2.getConstant();
+        }
+        return true;
+    }
+
+    private Set<StoreField> getAliasedStores(LoadField load) {
+        JField field = load.getFieldRef().resolve();
+        if (load.isStatic()) {
+            return staticStores.get(field);
+        }
+        Var base = ((InstanceFieldAccess) load.getFieldAccess()).getBase();
+        Set<StoreField> stores = newHybridSet();
+        for (Obj obj : pta.getPointsToSet(base)) {
+            Set<StoreField> s = fieldStores.get(obj, field);
+            if (s != null) {
+                stores.addAll(s);
+            }
+        }
+        return stores;
+    }
+
+    private Set<LoadField> getAliasedLoads(StoreField store) {
+        JField field = store.getFieldRef().resolve();
+        if (store.isStatic()) {
+            return staticLoads.get(field);
+        }
+        Var base = ((InstanceFieldAccess) store.getFieldAccess()).getBase();
+        Set<LoadField> loads = newHybridSet();
+        for (Obj obj : pta.getPointsToSet(base)) {
+            Set<LoadField> l = fieldLoads.get(obj, field);
+            if (l != null) {
+                loads.addAll(l);
+            }
+        }
+        return loads;
+    }
+
+    private Set<LoadArray> getAliasedLoads(StoreArray store) {
+        Set<LoadArray> loads = newHybridSet();
+        for (Obj array : pta.getPointsToSet(store.getArrayAccess().getBase())) {
+            loads.addAll(arrayLoads.get(array));
+        }
+        return loads;
     }
 
     @Override
     protected CPFact transferNormalEdge(NormalEdge<Stmt> edge, CPFact out) {
-        // TODO - finish me
-        return null;
+        return out;
     }
 
     @Override
     protected CPFact transferCallToReturnEdge(CallToReturnEdge<Stmt> edge, CPFact out) {
-        // TODO - finish me
-        return null;
+        Var lhs = ((Invoke) edge.getSource()).getLValue();
+        if (lhs == null) {
+            return out;
+        }
+        CPFact fact = out.copy();
+        fact.remove(lhs);
+        return fact;
     }
 
     @Override
     protected CPFact transferCallEdge(CallEdge<Stmt> edge, CPFact callSiteOut) {
-        // TODO - finish me
-        return null;
+        InvokeExp invokeExp = ((Invoke) edge.getSource()).getInvokeExp();
+        List<Var> params = edge.getCallee().getIR().getParams();
+        CPFact fact = newInitialFact();
+        for (int i = 0; i < params.size(); ++i) {
+            Var param = params.get(i);
+            if (canHoldInt(param)) {
+                fact.update(param, callSiteOut.get(invokeExp.getArg(i)));
+            }
+        }
+        return fact;
     }
 
     @Override
     protected CPFact transferReturnEdge(ReturnEdge<Stmt> edge, CPFact returnOut) {
-        // TODO - finish me
-        return null;
+        CPFact fact = newInitialFact();
+        Var lhs = ((Invoke) edge.getCallSite()).getLValue();
+        if (lhs != null && canHoldInt(lhs)) {
+            Value value = Value.getUndef();
+            for (Var retVar : edge.getReturnVars()) {
+                value = cp.meetValue(value, returnOut.get(retVar));
+            }
+            fact.update(lhs, value);
+        }
+        return fact;
     }
 }
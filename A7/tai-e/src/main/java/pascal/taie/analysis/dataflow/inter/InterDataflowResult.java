@@ -0,0 +1,72 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+
+/**
+ * Result of the inter-procedural solvers, which creates the facts of
+ * a node when they are first queried.
+ * <p>
+ * The solvers start from the entry methods, so only the nodes reached
+ * by the analysis hold facts. Other nodes get the initial facts when
+ * they are queried, e.g., by the clients of the result.
+ *
+ * @param <Node> type of nodes
+ * @param <Fact> type of data-flow facts
+ */
+class InterDataflowResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private final InterDataflowAnalysis<Node, Fact> analysis;
+
+    InterDataflowResult(InterDataflowAnalysis<Node, Fact> analysis) {
+        this.analysis = analysis;
+    }
+
+    @Override
+    public Fact getInFact(Node node) {
+        Fact fact = super.getInFact(node);
+        if (fact == null) {
+            fact = analysis.newInitialFact();
+            setInFact(node, fact);
+        }
+        return fact;
+    }
+
+    @Override
+    public Fact getOutFact(Node node) {
+        Fact fact = super.getOutFact(node);
+        if (fact == null) {
+            fact = analysis.newInitialFact();
+            setOutFact(node, fact);
+        }
+        return fact;
+    }
+
+    /**
+     * @return true if the out fact of given node has been created.
+     */
+    boolean hasOutFact(Node node) {
+        return super.getOutFact(node) != null;
+    }
+}
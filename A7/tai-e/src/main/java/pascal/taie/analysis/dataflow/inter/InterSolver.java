@@ -23,46 +23,93 @@
 package pascal.taie.analysis.dataflow.inter;
 
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
 import pascal.taie.analysis.graph.icfg.ICFG;
-import pascal.taie.util.collection.SetQueue;
 
-import java.util.Queue;
-import java.util.Set;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Solver for inter-procedural data-flow analysis.
  * The workload of inter-procedural analysis is heavy, thus we always
  * adopt work-list algorithm for efficiency.
+ * <p>
+ * Besides the ICFG edges, the analysis can propagate facts along other
+ * dependencies through {@link #addToWorkList(Object)} and
+ * {@link #getInFact(Object)}, e.g., from a store to the aliased loads.
  */
-class InterSolver<Method, Node, Fact> {
+class InterSolver<Method, Node, Fact> extends AbstractInterSolver<Method, Node, Fact> {
 
-    private final InterDataflowAnalysis<Node, Fact> analysis;
+    /**
+     * Schedule of the methods, which ranks them in the work-list.
+     */
+    private final SCCSchedule<Method> schedule;
 
-    private final ICFG<Method, Node> icfg;
+    private InterDataflowResult<Node, Fact> result;
 
-    private DataflowResult<Node, Fact> result;
-
-    private Queue<Node> workList;
+    private InterWorkList<Method, Node> workList;
 
+    /**
+     * @param schedule the schedule of the methods in {@code icfg},
+     *                 e.g., of the call graph the ICFG is built from
+     */
     InterSolver(InterDataflowAnalysis<Node, Fact> analysis,
-                ICFG<Method, Node> icfg) {
-        this.analysis = analysis;
-        this.icfg = icfg;
+                ICFG<Method, Node> icfg, SCCSchedule<Method> schedule) {
+        super(analysis, icfg);
+        this.schedule = schedule;
     }
 
     DataflowResult<Node, Fact> solve() {
-        result = new DataflowResult<>();
+        result = new InterDataflowResult<>(analysis);
         initialize();
         doSolve();
         return result;
     }
 
     private void initialize() {
-        // TODO - finish me
+        workList = new InterWorkList<>(icfg, schedule);
+        for (Node node : boundaryNodes) {
+            result.setOutFact(node, analysis.newBoundaryFact(node));
+            icfg.getSuccsOf(node).forEach(workList::add);
+        }
     }
 
     private void doSolve() {
-        // TODO - finish me
+        Node node;
+        while ((node = workList.poll()) != null) {
+            if (processNode(node)) {
+                icfg.getSuccsOf(node).forEach(workList::add);
+            }
+        }
+    }
+
+    /**
+     * Adds given node to the work-list, so that it will be processed again.
+     * Nodes that have not been reached are ignored, as they will be
+     * processed when they are reached.
+     */
+    void addToWorkList(Node node) {
+        if (result.hasOutFact(node)) {
+            workList.add(node);
+        }
+    }
+
+    /**
+     * @return the current flowing-in fact of given node, which is
+     * the initial fact if the node has not been reached.
+     */
+    @Override
+    protected Fact getInFact(Node node) {
+        return result.getInFact(node);
+    }
+
+    @Override
+    protected Fact getOutFact(Node node) {
+        return result.getOutFact(node);
+    }
+
+    @Override
+    @Nullable
+    protected Fact getReachedOutFact(Node node) {
+        return result.hasOutFact(node) ? result.getOutFact(node) : null;
     }
 }
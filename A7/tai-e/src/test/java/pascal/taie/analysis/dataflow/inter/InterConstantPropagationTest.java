@@ -0,0 +1,260 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.Value;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.pta.PointerAnalysisResult;
+import pascal.taie.analysis.pta.core.heap.Obj;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.exp.ArrayAccess;
+import pascal.taie.ir.exp.InstanceFieldAccess;
+import pascal.taie.ir.exp.StaticFieldAccess;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.proginfo.FieldRef;
+import pascal.taie.ir.stmt.LoadArray;
+import pascal.taie.ir.stmt.LoadField;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.StoreArray;
+import pascal.taie.ir.stmt.StoreField;
+import pascal.taie.language.annotation.AnnotationHolder;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JField;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Modifier;
+import pascal.taie.language.type.PrimitiveType;
+import pascal.taie.language.type.Type;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static pascal.taie.util.collection.Maps.newMap;
+import static pascal.taie.util.collection.Sets.newSet;
+
+/**
+ * Tests the index of heap stores and loads of alias-aware
+ * {@link InterConstantPropagation} on statements built by hand, with
+ * the points-to sets given by the tests instead of a pointer analysis.
+ */
+public class InterConstantPropagationTest {
+
+    private static final String PTA_ID = "mock-pta";
+
+    /**
+     * Abstract object that is only identified by its name.
+     */
+    private record MockObj(String name) implements Obj {
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+
+        @Override
+        public Object getAllocation() {
+            return name;
+        }
+
+        @Override
+        public Optional<JMethod> getContainerMethod() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Type getContainerType() {
+            return null;
+        }
+    }
+
+    private final Obj o1 = new MockObj("o1");
+
+    private final Obj o2 = new MockObj("o2");
+
+    private final Map<FieldRef, JField> fields = newMap();
+
+    private final Map<Var, Set<Obj>> pointsTo = newMap();
+
+    private final List<Stmt> stmts = new ArrayList<>();
+
+    /**
+     * Nodes that the analysis has put back to the work-list.
+     */
+    private final Set<Stmt> woken = newSet();
+
+    private int nVars = 0;
+
+    public InterConstantPropagationTest() {
+        World world = new World();
+        world.setClassHierarchy((ClassHierarchy) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ClassHierarchy.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("resolveField")) {
+                        return fields.get((FieldRef) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        world.storeResult(PTA_ID, Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{PointerAnalysisResult.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getVars" -> pointsTo.keySet();
+                    case "getPointsToSet" -> pointsTo.get((Var) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }));
+        World.set(world);
+    }
+
+    @Test
+    public void testInstanceFieldStore() {
+        FieldRef f = field("f", false);
+        FieldRef g = field("g", false);
+        Var x = intVar();
+        StoreField store = add(new StoreField(
+                new InstanceFieldAccess(f, base(o1)), x));
+        LoadField aliased = add(new LoadField(intVar(),
+                new InstanceFieldAccess(f, base(o1, o2))));
+        add(new LoadField(intVar(), new InstanceFieldAccess(f, base(o2))));
+        add(new LoadField(intVar(), new InstanceFieldAccess(g, base(o1))));
+        add(new LoadField(intVar(), new StaticFieldAccess(field("s", true))));
+        InterConstantPropagation analysis = newAnalysis();
+        assertWakes(analysis, store, x, Set.of(aliased));
+    }
+
+    @Test
+    public void testStaticFieldStore() {
+        FieldRef s = field("s", true);
+        FieldRef t = field("t", true);
+        Var x = intVar();
+        StoreField store = add(new StoreField(new StaticFieldAccess(s), x));
+        LoadField aliased = add(new LoadField(intVar(), new StaticFieldAccess(s)));
+        add(new LoadField(intVar(), new StaticFieldAccess(t)));
+        add(new LoadField(intVar(), new InstanceFieldAccess(field("f", false), base(o1))));
+        InterConstantPropagation analysis = newAnalysis();
+        assertWakes(analysis, store, x, Set.of(aliased));
+    }
+
+    @Test
+    public void testArrayStore() {
+        Var x = intVar();
+        StoreArray store = add(new StoreArray(
+                new ArrayAccess(base(o1), intVar()), x));
+        LoadArray aliased1 = add(new LoadArray(intVar(),
+                new ArrayAccess(base(o1), intVar())));
+        LoadArray aliased2 = add(new LoadArray(intVar(),
+                new ArrayAccess(base(o2, o1), intVar())));
+        add(new LoadArray(intVar(), new ArrayAccess(base(o2), intVar())));
+        add(new LoadField(intVar(), new InstanceFieldAccess(field("f", false), base(o1))));
+        InterConstantPropagation analysis = newAnalysis();
+        assertWakes(analysis, store, x, Set.of(aliased1, aliased2));
+    }
+
+    /**
+     * Checks that transferring given store wakes exactly given loads when
+     * the stored value changes, and wakes nothing when it does not.
+     */
+    private void assertWakes(InterConstantPropagation analysis, Stmt store,
+                             Var stored, Set<Stmt> expected) {
+        CPFact in = new CPFact();
+        in.update(stored, Value.makeConstant(1));
+        CPFact out = new CPFact();
+        Assert.assertTrue(analysis.transferNode(store, in, out));
+        Assert.assertEquals(expected, woken);
+        woken.clear();
+        Assert.assertFalse(analysis.transferNode(store, in, out));
+        Assert.assertEquals(Set.of(), woken);
+    }
+
+    /**
+     * Creates the analysis over {@link #stmts}, whose solver records
+     * the nodes put back to the work-list instead of processing them.
+     */
+    private InterConstantPropagation newAnalysis() {
+        InterConstantPropagation analysis = new InterConstantPropagation(
+                new AnalysisConfig(InterConstantPropagation.ID,
+                        "edge-refine", false, "alias-aware", true, "pta", PTA_ID));
+        analysis.icfg = newICFG();
+        analysis.initialize();
+        analysis.solver = new InterSolver<>(analysis, analysis.icfg, null) {
+            @Override
+            void addToWorkList(Stmt node) {
+                woken.add(node);
+            }
+        };
+        return analysis;
+    }
+
+    /**
+     * @return an ICFG that only iterates over {@link #stmts}, which are
+     * not call sites, as the analysis needs no more of it.
+     */
+    @SuppressWarnings("unchecked")
+    private ICFG<JMethod, Stmt> newICFG() {
+        return (ICFG<JMethod, Stmt>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ICFG.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "iterator" -> stmts.iterator();
+                    case "entryMethods" -> Stream.empty();
+                    case "isCallSite" -> false;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private <S extends Stmt> S add(S stmt) {
+        stmts.add(stmt);
+        return stmt;
+    }
+
+    private FieldRef field(String name, boolean isStatic) {
+        FieldRef ref = FieldRef.get(null, name, PrimitiveType.INT, isStatic);
+        fields.computeIfAbsent(ref, r -> new JField(null, name,
+                isStatic ? Set.of(Modifier.STATIC) : Set.of(),
+                PrimitiveType.INT, AnnotationHolder.emptyHolder()));
+        return ref;
+    }
+
+    private Var intVar() {
+        return newVar(PrimitiveType.INT);
+    }
+
+    /**
+     * @return a variable of reference type that points to given objects.
+     */
+    private Var base(Obj... objs) {
+        Var var = newVar(null);
+        pointsTo.put(var, Set.of(objs));
+        return var;
+    }
+
+    private Var newVar(Type type) {
+        int index = nVars++;
+        return new Var(null, "v" + index, type, index);
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+import pascal.taie.analysis.graph.icfg.MockICFG;
+import pascal.taie.util.collection.SetQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class InterSolverTest {
+
+    /**
+     * Solver of {@link MarkAnalysis} on mock ICFGs.
+     */
+    interface MarkSolver {
+
+        DataflowResult<String, Set<String>> solve(MarkAnalysis analysis, MockICFG icfg);
+    }
+
+    /**
+     * @return random marks of given ICFG.
+     */
+    static Set<String> randomMarks(Random random, MockICFG icfg) {
+        return randomNodes(random, icfg, 3);
+    }
+
+    /**
+     * @return random nodes of given ICFG, each chosen with 1/n chance.
+     */
+    private static Set<String> randomNodes(Random random, MockICFG icfg, int n) {
+        return icfg.getNodes()
+                .stream()
+                .filter(node -> random.nextInt(n) == 0)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Checks that given solver computes the same facts as the expected
+     * solver on 300 random ICFGs with at most given number of methods.
+     * In half of the rounds, some nodes of the ICFGs kill the marks.
+     */
+    static void assertSameResults(long seed, int maxMethods,
+                                  MarkSolver expectedSolver, MarkSolver solver) {
+        Random random = new Random(seed);
+        for (int i = 0; i < 300; ++i) {
+            MockICFG icfg = MockICFG.random(random, 1 + random.nextInt(maxMethods));
+            Set<String> marks = randomMarks(random, icfg);
+            Set<String> kills = i % 2 == 0 ? Set.of() : randomNodes(random, icfg, 8);
+            DataflowResult<String, Set<String>> expected =
+                    expectedSolver.solve(new MarkAnalysis(marks, kills), icfg);
+            DataflowResult<String, Set<String>> result =
+                    solver.solve(new MarkAnalysis(marks, kills), icfg);
+            for (String node : icfg) {
+                Assert.assertEquals("in fact of " + node + " in round " + i,
+                        expected.getInFact(node), result.getInFact(node));
+                Assert.assertEquals("out fact of " + node + " in round " + i,
+                        expected.getOutFact(node), result.getOutFact(node));
+            }
+        }
+    }
+
+    static DataflowResult<String, Set<String>> solve(
+            MarkAnalysis analysis, MockICFG icfg) {
+        return new InterSolver<>(analysis, icfg, icfg.getSchedule()).solve();
+    }
+
+    /**
+     * Solves the analysis like the plain work-list solver which this
+     * solver replaces, i.e., starting with all nodes in a FIFO queue.
+     * The nodes are enqueued in random order, as an ICFG enumerates
+     * its nodes in no particular order with respect to the flow.
+     */
+    private static void solveWithQueue(
+            MarkAnalysis analysis, MockICFG icfg, Random random) {
+        DataflowResult<String, Set<String>> result = new DataflowResult<>();
+        String boundary = icfg.getEntryOf(0);
+        for (String node : icfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, node.equals(boundary)
+                    ? analysis.newBoundaryFact(node)
+                    : analysis.newInitialFact());
+        }
+        Queue<String> workList = new SetQueue<>();
+        List<String> nodes = new ArrayList<>(icfg.getNodes());
+        Collections.shuffle(nodes, random);
+        workList.addAll(nodes);
+        String node;
+        while ((node = workList.poll()) != null) {
+            if (node.equals(boundary)) {
+                continue;
+            }
+            Set<String> in = result.getInFact(node);
+            for (ICFGEdge<String> edge : icfg.getInEdgesOf(node)) {
+                analysis.meetInto(analysis.transferEdge(
+                        edge, result.getOutFact(edge.getSource())), in);
+            }
+            if (analysis.transferNode(node, in, result.getOutFact(node))) {
+                workList.addAll(icfg.getSuccsOf(node));
+            }
+        }
+    }
+
+    /**
+     * Computes the fixed point by iterating over all nodes until
+     * no fact changes.
+     */
+    private static DataflowResult<String, Set<String>> solveNaively(
+            MarkAnalysis analysis, MockICFG icfg) {
+        DataflowResult<String, Set<String>> result = new DataflowResult<>();
+        String boundary = icfg.getEntryOf(0);
+        for (String node : icfg) {
+            result.setInFact(node, analysis.newInitialFact());
+            result.setOutFact(node, node.equals(boundary)
+                    ? analysis.newBoundaryFact(node)
+                    : analysis.newInitialFact());
+        }
+        boolean changed;
+        do {
+            changed = false;
+            for (String node : icfg) {
+                if (node.equals(boundary)) {
+                    continue;
+                }
+                Set<String> in = result.getInFact(node);
+                for (ICFGEdge<String> edge : icfg.getInEdgesOf(node)) {
+                    analysis.meetInto(analysis.transferEdge(
+                            edge, result.getOutFact(edge.getSource())), in);
+                }
+                changed |= analysis.transferNode(node, in, result.getOutFact(node));
+            }
+        } while (changed);
+        return result;
+    }
+
+    @Test
+    public void testRandomICFGs() {
+        assertSameResults(0, 15, InterSolverTest::solveNaively, InterSolverTest::solve);
+    }
+
+    /**
+     * @return an ICFG where method 0 calls method 1, and method 2,
+     * which calls method 3, is never called.
+     */
+    static MockICFG newICFGWithUnreachableMethods() {
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 4);
+        icfg.addMethod(1, 3);
+        icfg.addMethod(2, 4);
+        icfg.addMethod(3, 2);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addCall("0:1", 1);
+        icfg.addNormalEdge("0:2", "0:3");
+        icfg.addNormalEdge("1:0", "1:1");
+        icfg.addNormalEdge("1:1", "1:2");
+        icfg.addNormalEdge("2:0", "2:1");
+        icfg.addCall("2:1", 3);
+        icfg.addNormalEdge("2:2", "2:3");
+        icfg.addNormalEdge("3:0", "3:1");
+        return icfg;
+    }
+
+    /**
+     * Checks that given result of {@link #newICFGWithUnreachableMethods()}
+     * is computed without touching the unreachable methods.
+     */
+    static void checkUnreachableMethods(
+            MockICFG icfg, DataflowResult<String, Set<String>> result) {
+        Assert.assertEquals(Set.of(0, 1), icfg.getTouchedMethods());
+        Assert.assertFalse(icfg.isNodesQueried());
+        Assert.assertEquals(Set.of("entry"), result.getOutFact("1:2"));
+        Assert.assertEquals(Set.of("entry"), result.getOutFact("0:3"));
+        // unreachable nodes have the initial facts
+        Assert.assertEquals(Set.of(), result.getOutFact("2:2"));
+        Assert.assertEquals(Set.of(), result.getInFact("3:1"));
+    }
+
+    @Test
+    public void testUnreachableMethods() {
+        MockICFG icfg = newICFGWithUnreachableMethods();
+        MarkAnalysis analysis = new MarkAnalysis(Set.of("2:2"));
+        checkUnreachableMethods(icfg, solve(analysis, icfg));
+        Assert.assertEquals(0, analysis.getVisits("2:2"));
+    }
+
+    @Test
+    public void testVisitEachNodeOnceWithoutLoops() {
+        // 0 -> 1 -> 3 -> 4 and 0 -> 2 -> 3, where node 3 is a join point
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 5);
+        icfg.addNormalEdge("0:0", "0:2");
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addNormalEdge("0:2", "0:3");
+        icfg.addNormalEdge("0:1", "0:3");
+        icfg.addNormalEdge("0:3", "0:4");
+        MarkAnalysis analysis = new MarkAnalysis(Set.of("0:1", "0:2"));
+        DataflowResult<String, Set<String>> result = solve(analysis, icfg);
+        Assert.assertEquals(Set.of("entry", "0:1", "0:2"), result.getOutFact("0:4"));
+        for (String node : List.of("0:1", "0:2", "0:3", "0:4")) {
+            Assert.assertEquals(node, 1, analysis.getVisits(node));
+        }
+    }
+
+    /**
+     * @return an ICFG where method 0 calls method 1, and the nodes of
+     * method 1 are not numbered in reverse postorder.
+     */
+    private static MockICFG newTwoMethodICFG() {
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 4);
+        icfg.addMethod(1, 4);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addCall("0:1", 1);
+        icfg.addNormalEdge("0:2", "0:3");
+        icfg.addNormalEdge("1:0", "1:2");
+        icfg.addNormalEdge("1:2", "1:1");
+        icfg.addNormalEdge("1:1", "1:3");
+        return icfg;
+    }
+
+    private static List<String> pollAll(InterWorkList<Integer, String> workList) {
+        List<String> nodes = new ArrayList<>();
+        String node;
+        while ((node = workList.poll()) != null) {
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    @Test
+    public void testFewerVisitsThanQueue() {
+        Random random = new Random(1);
+        int visits = 0;
+        int queueVisits = 0;
+        for (int i = 0; i < 300; ++i) {
+            MockICFG icfg = MockICFG.random(random, 1 + random.nextInt(15));
+            Set<String> marks = randomMarks(random, icfg);
+            MarkAnalysis analysis = new MarkAnalysis(marks);
+            solve(analysis, icfg);
+            MarkAnalysis queueAnalysis = new MarkAnalysis(marks);
+            solveWithQueue(queueAnalysis, icfg, random);
+            for (String node : icfg) {
+                visits += analysis.getVisits(node);
+                queueVisits += queueAnalysis.getVisits(node);
+            }
+        }
+        // 99,497 vs. 123,434 visits when this test was written
+        Assert.assertTrue(visits + " vs. " + queueVisits,
+                visits < queueVisits);
+    }
+
+    @Test
+    public void testWorkListDeduplication() {
+        MockICFG icfg = newTwoMethodICFG();
+        InterWorkList<Integer, String> workList =
+                new InterWorkList<>(icfg, icfg.getSchedule());
+        Assert.assertTrue(workList.isEmpty());
+        Assert.assertTrue(workList.add("0:2"));
+        Assert.assertFalse(workList.add("0:2"));
+        Assert.assertTrue(workList.add("1:1"));
+        Assert.assertEquals(List.of("0:2", "1:1"), pollAll(workList));
+        Assert.assertTrue(workList.isEmpty());
+        // a polled node can be added again
+        Assert.assertTrue(workList.add("0:2"));
+        Assert.assertEquals("0:2", workList.poll());
+    }
+
+    @Test
+    public void testWorkListOrder() {
+        MockICFG icfg = newTwoMethodICFG();
+        InterWorkList<Integer, String> workList =
+                new InterWorkList<>(icfg, icfg.getSchedule());
+        List.of("0:3", "1:3", "1:1", "1:2", "0:2").forEach(workList::add);
+        // nodes of the caller first, then reverse postorder in each method
+        Assert.assertEquals("0:2", workList.poll());
+        Assert.assertEquals("0:3", workList.poll());
+        Assert.assertEquals("1:2", workList.poll());
+        // a node of higher priority added during polling comes next
+        workList.add("0:1");
+        Assert.assertEquals(List.of("0:1", "1:1", "1:3"), pollAll(workList));
+    }
+
+    @Test
+    public void testWorkListRanksCallersFirst() {
+        // method 0 calls methods 1 and 2, and method 2 calls method 1
+        MockICFG icfg = new MockICFG();
+        icfg.addMethod(0, 5);
+        icfg.addMethod(1, 3);
+        icfg.addMethod(2, 4);
+        icfg.addNormalEdge("0:0", "0:1");
+        icfg.addCall("0:1", 1);
+        icfg.addCall("0:2", 2);
+        icfg.addNormalEdge("1:0", "1:1");
+        icfg.addNormalEdge("1:1", "1:2");
+        icfg.addNormalEdge("2:0", "2:1");
+        icfg.addCall("2:1", 1);
+        icfg.addNormalEdge("2:2", "2:3");
+        InterWorkList<Integer, String> workList =
+                new InterWorkList<>(icfg, icfg.getSchedule());
+        // method 1 is touched first, but its caller method 2 comes first
+        List.of("1:1", "2:2", "0:4", "2:1").forEach(workList::add);
+        Assert.assertEquals(List.of("0:4", "2:1", "2:2", "1:1"), pollAll(workList));
+        // only the touched methods are numbered
+        Assert.assertEquals(Set.of(0, 1, 2), icfg.getTouchedMethods());
+    }
+}
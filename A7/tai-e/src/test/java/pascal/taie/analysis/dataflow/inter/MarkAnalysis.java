@@ -0,0 +1,113 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forward analysis for testing the solvers, which computes the marked
+ * nodes that may reach each node. The boundary fact is {@code {"entry"}},
+ * and call-to-return edges drop "entry", so that it reaches a return site
+ * only through the callees. Killing nodes remove the marks flowing into
+ * them before adding their own, so facts do not only grow along paths.
+ * The analysis also counts the transfers of each node, and can be used
+ * by parallel solvers.
+ */
+class MarkAnalysis implements InterDataflowAnalysis<String, Set<String>> {
+
+    private final Set<String> marks;
+
+    private final Set<String> kills;
+
+    private final Map<String, Integer> visits = new ConcurrentHashMap<>();
+
+    MarkAnalysis(Set<String> marks) {
+        this(marks, Set.of());
+    }
+
+    MarkAnalysis(Set<String> marks, Set<String> kills) {
+        this.marks = marks;
+        this.kills = kills;
+    }
+
+    /**
+     * @return the number of times that given node has been transferred.
+     */
+    int getVisits(String node) {
+        return visits.getOrDefault(node, 0);
+    }
+
+    @Override
+    public boolean isForward() {
+        return true;
+    }
+
+    @Override
+    public Set<String> newBoundaryFact(String boundary) {
+        return new HashSet<>(Set.of("entry"));
+    }
+
+    @Override
+    public Set<String> newInitialFact() {
+        return new HashSet<>();
+    }
+
+    @Override
+    public void meetInto(Set<String> fact, Set<String> target) {
+        target.addAll(fact);
+    }
+
+    @Override
+    public boolean transferNode(String node, Set<String> in, Set<String> out) {
+        visits.merge(node, 1, Integer::sum);
+        Set<String> newOut = new HashSet<>(in);
+        if (kills.contains(node)) {
+            newOut.retainAll(Set.of("entry"));
+        }
+        if (marks.contains(node)) {
+            newOut.add(node);
+        }
+        if (newOut.equals(out)) {
+            return false;
+        }
+        out.clear();
+        out.addAll(newOut);
+        return true;
+    }
+
+    @Override
+    public Set<String> transferEdge(ICFGEdge<String> edge, Set<String> out) {
+        if (edge instanceof CallToReturnEdge) {
+            Set<String> fact = new HashSet<>(out);
+            fact.remove("entry");
+            return fact;
+        }
+        return out;
+    }
+}
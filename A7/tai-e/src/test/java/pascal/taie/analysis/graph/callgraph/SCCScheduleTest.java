@@ -0,0 +1,152 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SCCScheduleTest {
+
+    /**
+     * @return a call relation over methods 0, 1, ..., n - 1.
+     */
+    private static Map<Integer, List<Integer>> newCalls(int n) {
+        Map<Integer, List<Integer>> calls = new HashMap<>();
+        for (int i = 0; i < n; ++i) {
+            calls.put(i, new ArrayList<>());
+        }
+        return calls;
+    }
+
+    private static SCCSchedule<Integer> schedule(Map<Integer, List<Integer>> calls) {
+        return new SCCSchedule<>(calls.keySet(), calls::get);
+    }
+
+    @Test
+    public void testDeepChain() {
+        int n = 200_000;
+        Map<Integer, List<Integer>> calls = newCalls(n);
+        for (int i = 0; i + 1 < n; ++i) {
+            calls.get(i).add(i + 1);
+        }
+        SCCSchedule<Integer> schedule = schedule(calls);
+        Assert.assertEquals(n, schedule.getComponents().size());
+        Assert.assertEquals(n, schedule.getBatches().size());
+        // the last method of the chain comes first
+        Assert.assertEquals(List.of(n - 1), schedule.getComponents().get(0));
+        Assert.assertFalse(schedule.isRecursive(0));
+        // closing the chain makes it a single recursive component
+        calls.get(n - 1).add(0);
+        schedule = schedule(calls);
+        Assert.assertEquals(1, schedule.getComponents().size());
+        Assert.assertTrue(schedule.isRecursive(n / 2));
+    }
+
+    @Test
+    public void testMutualRecursion() {
+        // 0 -> 1 <-> 2 -> 3 -> 3, and 4 is isolated
+        Map<Integer, List<Integer>> calls = newCalls(5);
+        calls.get(0).add(1);
+        calls.get(1).add(2);
+        calls.get(2).addAll(List.of(1, 3));
+        calls.get(3).add(3);
+        SCCSchedule<Integer> schedule = schedule(calls);
+        Assert.assertEquals(4, schedule.getComponents().size());
+        Assert.assertEquals(schedule.getComponentIndex(1),
+                schedule.getComponentIndex(2));
+        Assert.assertTrue(schedule.getComponentIndex(3)
+                < schedule.getComponentIndex(1));
+        Assert.assertTrue(schedule.getComponentIndex(1)
+                < schedule.getComponentIndex(0));
+        Assert.assertFalse(schedule.isRecursive(0));
+        Assert.assertTrue(schedule.isRecursive(1));
+        Assert.assertTrue(schedule.isRecursive(2));
+        Assert.assertTrue(schedule.isRecursive(3));
+        Assert.assertFalse(schedule.isRecursive(4));
+        Assert.assertEquals(-1, schedule.getComponentIndex(5));
+        // batches: {3, 4}, {1, 2}, {0}
+        Assert.assertEquals(3, schedule.getBatches().size());
+        Assert.assertEquals(2, schedule.getBatches().get(0).size());
+    }
+
+    @Test
+    public void testBatches() {
+        Random random = new Random(0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; ++round) {
+                int n = 1 + random.nextInt(50);
+                Map<Integer, List<Integer>> calls = newCalls(n);
+                for (int i = random.nextInt(3 * n); i > 0; --i) {
+                    calls.get(random.nextInt(n)).add(random.nextInt(n));
+                }
+                SCCSchedule<Integer> schedule = schedule(calls);
+                Map<Integer, Integer> batchIndexes = new HashMap<>();
+                List<List<List<Integer>>> batches = schedule.getBatches();
+                for (int b = 0; b < batches.size(); ++b) {
+                    for (List<Integer> component : batches.get(b)) {
+                        for (int method : component) {
+                            batchIndexes.put(method, b);
+                        }
+                    }
+                }
+                Assert.assertEquals(n, batchIndexes.size());
+                for (int caller = 0; caller < n; ++caller) {
+                    for (int callee : calls.get(caller)) {
+                        int c1 = schedule.getComponentIndex(caller);
+                        int c2 = schedule.getComponentIndex(callee);
+                        if (c1 != c2) {
+                            // callees are in the preceding components and batches,
+                            // so no two components in a batch call each other
+                            Assert.assertTrue(c2 < c1);
+                            Assert.assertTrue(batchIndexes.get(callee)
+                                    < batchIndexes.get(caller));
+                        }
+                    }
+                }
+                // the callees of a component are done before it is processed
+                Set<Integer> done = ConcurrentHashMap.newKeySet();
+                schedule.process(component -> {
+                    component.stream()
+                            .flatMap(m -> calls.get(m).stream())
+                            .filter(m -> !component.contains(m))
+                            .forEach(m -> Assert.assertTrue(done.contains(m)));
+                    done.addAll(component);
+                }, executor);
+                Assert.assertEquals(n, done.size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.icfg;
+
+import pascal.taie.analysis.graph.callgraph.SCCSchedule;
+import pascal.taie.analysis.graph.cfg.CFGEdges;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * ICFG for testing inter-procedural solvers without a program.
+ * <p>
+ * The methods are integers, and method 0 is the only entry method.
+ * Node {@code "m:i"} is the i-th node of method m, where node 0 is
+ * the entry and the last node is the exit. The return site of call site
+ * {@code "m:i"} is always {@code "m:(i+1)"}.
+ */
+public class MockICFG implements ICFG<Integer, String> {
+
+    private final Map<Integer, List<String>> methods = new LinkedHashMap<>();
+
+    private final Map<String, Set<ICFGEdge<String>>> inEdges = new LinkedHashMap<>();
+
+    private final Map<String, Set<ICFGEdge<String>>> outEdges = new LinkedHashMap<>();
+
+    private final Map<String, Set<Integer>> callees = new LinkedHashMap<>();
+
+    private final Map<Integer, Set<String>> callers = new LinkedHashMap<>();
+
+    /**
+     * Methods whose edges have been queried.
+     */
+    private final Set<Integer> touchedMethods = new LinkedHashSet<>();
+
+    private boolean nodesQueried = false;
+
+    /**
+     * Adds a method of given number of nodes.
+     */
+    public void addMethod(int method, int size) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+            String node = method + ":" + i;
+            nodes.add(node);
+            inEdges.put(node, new LinkedHashSet<>());
+            outEdges.put(node, new LinkedHashSet<>());
+        }
+        methods.put(method, nodes);
+        callers.put(method, new LinkedHashSet<>());
+    }
+
+    public void addNormalEdge(String source, String target) {
+        addEdge(new NormalEdge<>(CFGEdges.newFallThroughEdge(source, target)));
+    }
+
+    /**
+     * Adds a call from given call site to given callee, together with
+     * the call-to-return edge of the call site (if absent).
+     */
+    public void addCall(String callSite, int callee) {
+        String returnSite = getReturnSiteOf(callSite);
+        if (!callees.containsKey(callSite)) {
+            callees.put(callSite, new LinkedHashSet<>());
+            addEdge(new CallToReturnEdge<>(
+                    CFGEdges.newFallThroughEdge(callSite, returnSite)));
+        }
+        if (callees.get(callSite).add(callee)) {
+            callers.get(callee).add(callSite);
+            addEdge(new CallEdge<>(callSite, getEntryOf(callee), null));
+            addEdge(new ReturnEdge<>(getExitOf(callee), returnSite, callSite,
+                    List.of(), List.of()));
+        }
+    }
+
+    private void addEdge(ICFGEdge<String> edge) {
+        outEdges.get(edge.getSource()).add(edge);
+        inEdges.get(edge.getTarget()).add(edge);
+    }
+
+    private static String getReturnSiteOf(String callSite) {
+        int colon = callSite.indexOf(':');
+        return callSite.substring(0, colon + 1) +
+                (Integer.parseInt(callSite.substring(colon + 1)) + 1);
+    }
+
+    /**
+     * @return a random ICFG of given number of methods, with loops and
+     * (possibly recursive) calls, in which every node is reachable
+     * from the entry of method 0.
+     */
+    public static MockICFG random(Random random, int nMethods) {
+        MockICFG icfg = new MockICFG();
+        for (int m = 0; m < nMethods; ++m) {
+            icfg.addMethod(m, 4 + random.nextInt(5));
+        }
+        // each method is called by some method before it
+        for (int m = 1; m < nMethods; ++m) {
+            icfg.addCall(icfg.randomCallSite(random, random.nextInt(m)), m);
+        }
+        if (nMethods > 1) {
+            for (int i = random.nextInt(2 * nMethods); i > 0; --i) {
+                icfg.addCall(icfg.randomCallSite(random, random.nextInt(nMethods)),
+                        1 + random.nextInt(nMethods - 1));
+            }
+        }
+        icfg.methods.values().forEach(nodes -> {
+            int size = nodes.size();
+            for (int i = 0; i + 1 < size; ++i) {
+                if (!icfg.isCallSite(nodes.get(i))) {
+                    icfg.addNormalEdge(nodes.get(i), nodes.get(i + 1));
+                    if (i > 0 && random.nextInt(4) == 0) {
+                        icfg.addNormalEdge(nodes.get(i),
+                                nodes.get(1 + random.nextInt(i)));
+                    }
+                }
+            }
+        });
+        return icfg;
+    }
+
+    /**
+     * @return a random node of given method which can be a call site,
+     * i.e., neither the entry nor the exit or the node before the exit.
+     */
+    private String randomCallSite(Random random, int method) {
+        List<String> nodes = methods.get(method);
+        return nodes.get(1 + random.nextInt(nodes.size() - 3));
+    }
+
+    /**
+     * @return the schedule of the call relation of this ICFG, which
+     * plays the role of the call graph, so no method is touched.
+     */
+    public SCCSchedule<Integer> getSchedule() {
+        Map<Integer, Set<Integer>> calls = new LinkedHashMap<>();
+        methods.keySet().forEach(m -> calls.put(m, new LinkedHashSet<>()));
+        callees.forEach((callSite, targets) ->
+                calls.get(getContainingMethodOf(callSite)).addAll(targets));
+        return new SCCSchedule<>(calls.keySet(), calls::get);
+    }
+
+    /**
+     * @return the methods whose edges have been queried.
+     */
+    public Set<Integer> getTouchedMethods() {
+        return touchedMethods;
+    }
+
+    /**
+     * @return true if all nodes of this ICFG have been queried.
+     */
+    public boolean isNodesQueried() {
+        return nodesQueried;
+    }
+
+    private void touch(String node) {
+        touchedMethods.add(getContainingMethodOf(node));
+    }
+
+    @Override
+    public Stream<Integer> entryMethods() {
+        return Stream.of(0);
+    }
+
+    @Override
+    public Set<ICFGEdge<String>> getInEdgesOf(String node) {
+        touch(node);
+        return inEdges.get(node);
+    }
+
+    @Override
+    public Set<ICFGEdge<String>> getOutEdgesOf(String node) {
+        touch(node);
+        return outEdges.get(node);
+    }
+
+    @Override
+    public Set<Integer> getCalleesOf(String callSite) {
+        return callees.getOrDefault(callSite, Set.of());
+    }
+
+    @Override
+    public Set<String> getReturnSitesOf(String callSite) {
+        return Set.of(getReturnSiteOf(callSite));
+    }
+
+    @Override
+    public String getEntryOf(Integer method) {
+        return methods.get(method).get(0);
+    }
+
+    @Override
+    public String getExitOf(Integer method) {
+        List<String> nodes = methods.get(method);
+        return nodes.get(nodes.size() - 1);
+    }
+
+    @Override
+    public Set<String> getCallersOf(Integer method) {
+        return callers.get(method);
+    }
+
+    @Override
+    public Integer getContainingMethodOf(String node) {
+        return Integer.parseInt(node.substring(0, node.indexOf(':')));
+    }
+
+    @Override
+    public boolean isCallSite(String node) {
+        return callees.containsKey(node);
+    }
+
+    @Override
+    public boolean hasNode(String node) {
+        return inEdges.containsKey(node);
+    }
+
+    @Override
+    public boolean hasEdge(String source, String target) {
+        return getSuccsOf(source).contains(target);
+    }
+
+    @Override
+    public Set<String> getPredsOf(String node) {
+        Set<String> preds = new LinkedHashSet<>();
+        getInEdgesOf(node).forEach(edge -> preds.add(edge.getSource()));
+        return preds;
+    }
+
+    @Override
+    public Set<String> getSuccsOf(String node) {
+        Set<String> succs = new LinkedHashSet<>();
+        getOutEdgesOf(node).forEach(edge -> succs.add(edge.getTarget()));
+        return succs;
+    }
+
+    @Override
+    public Set<String> getNodes() {
+        nodesQueried = true;
+        return inEdges.keySet();
+    }
+}